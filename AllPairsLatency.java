@@ -0,0 +1,361 @@
+/******************************************************************************
+ *  Compilation:  javac AllPairsLatency.java
+ *  Execution:    java AllPairsLatency input.txt [output.matrix] [threads]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java MediaType.java RadixHeap.java
+ *                FixedPointDijkstraSP.java DijkstraSP.java GraphLoader.java
+ *                StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  The latency between every pair of switches, computed with one
+ *  single-source search per switch on a fork-join pool. Without an output
+ *  file the matrix is kept off-heap in memory; with one, rows are streamed
+ *  to the file as they are finished. Either way a sample of rows is
+ *  checked against DijkstraSP and timed against running it V times.
+ *
+ *  % java AllPairsLatency network_data2.txt
+ *  % java AllPairsLatency big_network.txt big_network.matrix 8
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code AllPairsLatency} class holds the latency of a lowest-latency
+ *  path between every pair of vertices of an {@link EdgeWeightedGraph},
+ *  as a <em>V</em>-by-<em>V</em> matrix of {@code float} seconds.
+ *  <p>
+ *  Row <em>s</em> is the result of one single-source search from <em>s</em>.
+ *  The searches are independent, so they run as fork-join tasks, each
+ *  worker thread reusing one workspace (a distance array, a radix heap and
+ *  a row buffer) for every source it handles; a search is the fixed-point
+ *  Dijkstra of {@link FixedPointDijkstraSP}, so rows come out exactly as
+ *  that class computes them, rounded once to {@code float}.
+ *  <p>
+ *  The matrix lives outside the Java heap, in direct buffers of at most
+ *  1 GB each, and takes 4<em>V</em><sup>2</sup> bytes. When that does not
+ *  fit in memory, {@link #write(EdgeWeightedGraph, String)} streams each
+ *  row to a file as soon as it is computed, so memory use stays
+ *  proportional to <em>V</em> per thread; {@link #open(String, EdgeWeightedGraph)}
+ *  maps such a file back in without reading it. Unreachable pairs hold
+ *  {@code Float.POSITIVE_INFINITY}.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class AllPairsLatency {
+    private static final int MAGIC   = 0x4E45544D;      // "NETM"
+    private static final int VERSION = 1;
+    private static final int HEADER  = 32;
+    private static final long BLOCK_BYTES = 1L << 30;   // largest single buffer of the matrix
+    private static final int LEAF_ROWS = 4;             // sources searched by one fork-join task
+
+    private final int V;
+    private final int rowsPerBlock;
+    private final FloatBuffer[] blocks;     // row s is at blocks[s / rowsPerBlock], offset (s % rowsPerBlock) * V
+
+    /**
+     * Computes the latency matrix of the graph {@code G} on the common
+     * fork-join pool.
+     *
+     * @param  G the edge-weighted graph
+     * @throws IllegalArgumentException if an edge latency is negative
+     */
+    public AllPairsLatency(EdgeWeightedGraph G) {
+        this(G, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the latency matrix of the graph {@code G} on the given
+     * fork-join pool.
+     *
+     * @param  G the edge-weighted graph
+     * @param  pool the pool that runs the searches
+     * @throws IllegalArgumentException if an edge latency is negative
+     */
+    public AllPairsLatency(EdgeWeightedGraph G, ForkJoinPool pool) {
+        V = G.V();
+        rowsPerBlock = rowsPerBlock(V);
+        blocks = new FloatBuffer[(V + rowsPerBlock - 1) / rowsPerBlock];
+        for (int b = 0; b < blocks.length; b++) {
+            int rows = Math.min(rowsPerBlock, V - b * rowsPerBlock);
+            blocks[b] = ByteBuffer.allocateDirect(4 * rows * V).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        }
+        pool.invoke(new Rows(G, (s, row) -> {
+            FloatBuffer dst = blocks[s / rowsPerBlock].duplicate();
+            dst.position((s % rowsPerBlock) * V);
+            dst.put(row.asFloatBuffer());
+        }, 0, V));
+    }
+
+    private AllPairsLatency(int V, FloatBuffer[] blocks) {
+        this.V = V;
+        this.rowsPerBlock = rowsPerBlock(V);
+        this.blocks = blocks;
+    }
+
+    private static int rowsPerBlock(int V) {
+        return (int) Math.max(1, Math.min(V, BLOCK_BYTES / (4L * Math.max(1, V))));
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Returns the latency of a lowest-latency path from {@code s} to {@code t}.
+     *
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @return the latency between {@code s} and {@code t} in seconds;
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= s < V} and {@code 0 <= t < V}
+     */
+    public double latency(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        return blocks[s / rowsPerBlock].get((s % rowsPerBlock) * V + t);
+    }
+
+    /**
+     * Copies row {@code s} of the matrix, the latency from {@code s} to every
+     * vertex, into {@code row}.
+     *
+     * @param  s the source vertex
+     * @param  row an array of length at least {@code V} to receive the row
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     */
+    public void row(int s, float[] row) {
+        validateVertex(s);
+        FloatBuffer src = blocks[s / rowsPerBlock].duplicate();
+        src.position((s % rowsPerBlock) * V);
+        src.get(row, 0, V);
+    }
+
+    /**
+     * Computes the latency matrix of the graph {@code G} on the common
+     * fork-join pool, writing each row to the named file as soon as it is
+     * ready instead of keeping the matrix in memory.
+     *
+     * @param  G the edge-weighted graph
+     * @param  filename the name of the matrix file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if an edge latency is negative
+     */
+    public static void write(EdgeWeightedGraph G, String filename) throws IOException {
+        write(G, filename, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the latency matrix of the graph {@code G} on the given
+     * fork-join pool, writing each row to the named file as soon as it is
+     * ready. Rows are written with positional writes, so they may reach
+     * the file in any order.
+     *
+     * @param  G the edge-weighted graph
+     * @param  filename the name of the matrix file
+     * @param  pool the pool that runs the searches
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if an edge latency is negative
+     */
+    public static void write(EdgeWeightedGraph G, String filename, ForkJoinPool pool) throws IOException {
+        int V = G.V();
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(HEADER + 4L * V * V);
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(G.E()).putDouble(G.fingerprint());
+            header.rewind();
+            channel.write(header, 0);
+            try {
+                pool.invoke(new Rows(G, (s, row) -> {
+                    long position = HEADER + 4L * V * s;
+                    try {
+                        while (row.hasRemaining())
+                            position += channel.write(row, position);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, 0, V));
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Maps a matrix file written by {@link #write(EdgeWeightedGraph, String)}
+     * for the graph {@code G}. Rows are paged in from the file as they are
+     * read.
+     *
+     * @param  filename the name of the matrix file
+     * @param  G the graph the matrix was computed for
+     * @return the latency matrix stored in the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid matrix
+     *         file, or was computed for a different graph
+     */
+    public static AllPairsLatency open(String filename, EdgeWeightedGraph G) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER)
+                throw new IllegalArgumentException(filename + " is not a latency matrix file");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC)
+                throw new IllegalArgumentException(filename + " is not a latency matrix file");
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("unsupported latency matrix file version " + version);
+            int V = header.getInt();
+            int E = header.getInt();
+            double fingerprint = header.getDouble();
+            if (V != G.V() || E != G.E() || fingerprint != G.fingerprint())
+                throw new IllegalArgumentException("latency matrix " + filename + " was computed for a different graph");
+            if (size != HEADER + 4L * V * V)
+                throw new IllegalArgumentException("latency matrix " + filename + " is truncated or corrupt");
+
+            int rowsPerBlock = rowsPerBlock(V);
+            FloatBuffer[] blocks = new FloatBuffer[(V + rowsPerBlock - 1) / rowsPerBlock];
+            for (int b = 0; b < blocks.length; b++) {
+                int rows = Math.min(rowsPerBlock, V - b * rowsPerBlock);
+                long start = HEADER + 4L * V * b * rowsPerBlock;
+                blocks[b] = channel.map(FileChannel.MapMode.READ_ONLY, start, 4L * rows * V)
+                                   .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            }
+            return new AllPairsLatency(V, blocks);
+        }
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    // receives each finished row as V little-endian floats; called concurrently for different rows
+    private interface RowSink {
+        void accept(int s, ByteBuffer row);
+    }
+
+    // scratch space for the searches of one worker thread
+    private static final class Workspace {
+        final long[] dist;
+        final RadixHeap pq = new RadixHeap();
+        final ByteBuffer row;
+
+        Workspace(int V) {
+            dist = new long[V];
+            row = ByteBuffer.allocateDirect(4 * V).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // searches from sources [lo, hi), splitting until LEAF_ROWS sources per task
+    @SuppressWarnings("serial")
+    private static final class Rows extends RecursiveAction {
+        private final EdgeWeightedGraph G;
+        private final RowSink sink;
+        private final ThreadLocal<Workspace> workspace;
+        private final int lo, hi;
+
+        Rows(EdgeWeightedGraph G, RowSink sink, int lo, int hi) {
+            this(G, sink, ThreadLocal.withInitial(() -> new Workspace(G.V())), lo, hi);
+        }
+
+        private Rows(EdgeWeightedGraph G, RowSink sink, ThreadLocal<Workspace> workspace, int lo, int hi) {
+            this.G = G;
+            this.sink = sink;
+            this.workspace = workspace;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > LEAF_ROWS) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Rows(G, sink, workspace, lo, mid),
+                          new Rows(G, sink, workspace, mid, hi));
+                return;
+            }
+            Workspace w = workspace.get();
+            for (int s = lo; s < hi; s++) {
+                new FixedPointDijkstraSP(G, s, w.dist, w.pq);
+                w.row.clear();
+                for (long d : w.dist)
+                    w.row.putFloat(d == Long.MAX_VALUE ? Float.POSITIVE_INFINITY
+                                                       : (float) ((double) d / MediaType.TICKS_PER_SECOND));
+                w.row.flip();
+                sink.accept(s, w.row);
+            }
+        }
+    }
+
+    /**
+     * Computes the latency matrix of a graph, in memory or streamed to a
+     * file, checks a sample of rows against {@code DijkstraSP}, and compares
+     * the time taken with running {@code DijkstraSP} from every vertex.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int V = g.V();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        long start = System.nanoTime();
+        AllPairsLatency matrix;
+        if (args.length > 1) {
+            write(g, args[1], pool);
+            matrix = open(args[1], g);
+        }
+        else matrix = new AllPairsLatency(g, pool);
+        double parallelMs = (System.nanoTime() - start) / 1e6;
+        pool.shutdown();
+
+        // check a sample of rows against DijkstraSP, then time DijkstraSP on the same sources
+        StdRandom.setSeed(42);
+        int sample = Math.min(V, 20);
+        int[] sources = new int[sample];
+        float[] row = new float[V];
+        for (int q = 0; q < sample; q++) {
+            int s = sources[q] = StdRandom.uniform(V);
+            DijkstraSP sp = new DijkstraSP(g, s);
+            matrix.row(s, row);
+            for (int t = 0; t < V; t++) {
+                double expected = sp.distTo(t);
+                // float rounding, plus at most half a tick per edge on the path
+                double slack = 1e-6 * expected + (double) V / 2 / MediaType.TICKS_PER_SECOND;
+                if (expected == Double.POSITIVE_INFINITY ? row[t] != Float.POSITIVE_INFINITY
+                                                         : Math.abs(row[t] - expected) > slack)
+                    throw new IllegalStateException("latency from " + s + " to " + t + " is " + row[t] + ", not " + expected);
+            }
+        }
+        start = System.nanoTime();
+        for (int s : sources)
+            new DijkstraSP(g, s);
+        double sequentialMs = (System.nanoTime() - start) / 1e6 / sample * V;
+
+        StdOut.printf("%d x %d matrix (%,d bytes) on %d threads in %.1f ms; DijkstraSP from every vertex would take about %.1f ms\n",
+                      V, V, 4L * V * V, threads, parallelMs, sequentialMs);
+        if (V > 1) StdOut.printf("latency 0 to %d: %.8f\n", V - 1, matrix.latency(0, V - 1));
+    }
+}
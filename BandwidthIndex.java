@@ -0,0 +1,289 @@
+/******************************************************************************
+ *  Compilation:  javac BandwidthIndex.java
+ *  Execution:    java BandwidthIndex input.txt [queries]
+ *  Dependencies: EdgeWeightedGraph.java GraphIndex.java Edge.java MediaType.java DijkstraSP.java
+ *                QueryWorkspace.java GraphLoader.java StdRandom.java
+ *                StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Adjacency lists sorted by bandwidth, so that a search restricted to
+ *  cables of at least some bandwidth never looks at the slower ones.
+ *  Running it compares constrained DijkstraSP queries on the index against
+ *  building a filtered copy of the graph for every threshold.
+ *
+ *  % java BandwidthIndex big_network.txt 20
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code BandwidthIndex} class answers "which cables of at least
+ *  <em>X</em> Mbps leave vertex <em>v</em>?" for any <em>X</em>, without
+ *  copying the graph for each threshold. It stores the adjacency lists of
+ *  an {@link EdgeWeightedGraph} in compressed sparse row form, like
+ *  {@link CSRGraph}, but with each vertex's slots sorted by decreasing
+ *  bandwidth: the qualifying cables of <em>v</em> are a prefix of slots
+ *  {@code begin(v)} through {@code end(v) - 1}, and a scan can stop at the
+ *  first slot below the threshold. A high threshold that excludes most
+ *  cables therefore costs nothing for the cables it excludes.
+ *  <p>
+ *  {@link DijkstraSP} uses an index for its bandwidth-constrained queries.
+ *  Cables of equal bandwidth keep the order of the graph's adjacency
+ *  lists, so with a threshold of {@code 0} a search on the index finds the
+ *  same paths as one on the graph itself, up to ties.
+ *  <p>
+ *  Building the index takes time proportional to <em>E</em> log <em>d</em>,
+ *  where <em>d</em> is the largest degree. It is a {@link GraphIndex}
+ *  snapshot, and searches refuse to use it once the graph has been modified.
+ *  {@link #edgesByBandwidth(EdgeWeightedGraph)} gives the whole graph's
+ *  cables in the decreasing-bandwidth order that Kruskal's algorithm on
+ *  bandwidth needs.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class BandwidthIndex extends GraphIndex {
+    private final int V;
+    private final int[] offset;         // slots of v are offset[v]..offset[v+1]-1, fastest cable first
+    private final int[] bandwidth;      // bandwidth[i] = bandwidth of the cable in slot i
+    private final Edge[] edge;          // edge[i]      = the cable in slot i
+    private final int[] sorted;         // bandwidths of all E cables, in increasing order
+
+    /**
+     * Builds the bandwidth index of the edge-weighted graph {@code G}.
+     *
+     * @param  G the edge-weighted graph
+     * @throws IllegalArgumentException if a bandwidth is negative
+     */
+    public BandwidthIndex(EdgeWeightedGraph G) {
+        super(G);
+        this.V = G.V();
+        offset = new int[V + 1];
+        int maxDegree = 0;
+        for (int v = 0; v < V; v++) {
+            int degree = G.degree(v);
+            offset[v+1] = offset[v] + degree;
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        bandwidth = new int[offset[V]];
+        edge = new Edge[offset[V]];
+
+        // sort each adjacency list by decreasing bandwidth, keeping the
+        // adjacency order among equal bandwidths: the key of the j-th cable
+        // is its bandwidth complement in the high word and j in the low word
+        Edge[] adj = new Edge[maxDegree];
+        long[] keys = new long[maxDegree];
+        for (int v = 0; v < V; v++) {
+            int d = 0;
+            for (Edge e : G.adj(v)) {
+                if (e.getBandwidth() < 0)
+                    throw new IllegalArgumentException("edge " + e + " has negative bandwidth");
+                adj[d] = e;
+                keys[d] = ((long) (Integer.MAX_VALUE - e.getBandwidth()) << 32) | d;
+                d++;
+            }
+            Arrays.sort(keys, 0, d);
+            for (int j = 0; j < d; j++) {
+                Edge e = adj[(int) keys[j]];
+                edge[offset[v] + j] = e;
+                bandwidth[offset[v] + j] = e.getBandwidth();
+            }
+        }
+
+        sorted = new int[G.E()];
+        int n = 0;
+        for (Edge e : G.edges())
+            sorted[n++] = e.getBandwidth();
+        Arrays.sort(sorted);
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Returns the first slot of vertex {@code v}, which holds its cable of
+     * highest bandwidth.
+     *
+     * @param  v the vertex
+     * @return the first slot of the adjacency list of {@code v}
+     */
+    public int begin(int v) {
+        return offset[v];
+    }
+
+    /**
+     * Returns one past the last slot of vertex {@code v}.
+     *
+     * @param  v the vertex
+     * @return one past the last slot of the adjacency list of {@code v}
+     */
+    public int end(int v) {
+        return offset[v+1];
+    }
+
+    /**
+     * Returns the bandwidth of the cable in slot {@code i}. Within the slots
+     * of a vertex, bandwidths never increase.
+     *
+     * @param  i the slot
+     * @return the bandwidth of the cable in slot {@code i}
+     */
+    public int bandwidth(int i) {
+        return bandwidth[i];
+    }
+
+    /**
+     * Returns the cable in slot {@code i}.
+     *
+     * @param  i the slot
+     * @return the cable in slot {@code i}
+     */
+    public Edge edge(int i) {
+        return edge[i];
+    }
+
+    /**
+     * Returns the number of cables of at least {@code minBandwidth} Mbps.
+     *
+     * @param  minBandwidth the bandwidth threshold
+     * @return the number of cables whose bandwidth is at least {@code minBandwidth}
+     */
+    public int edgesAtLeast(int minBandwidth) {
+        int lo = 0, hi = sorted.length;         // first index with sorted[i] >= minBandwidth
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < minBandwidth) lo = mid + 1;
+            else                            hi = mid;
+        }
+        return sorted.length - lo;
+    }
+
+    /**
+     * Returns the distinct bandwidths of the cables, in increasing order.
+     *
+     * @return the distinct bandwidths
+     */
+    public int[] bandwidths() {
+        int n = 0;
+        int[] distinct = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++)
+            if (i == 0 || sorted[i] != sorted[i-1]) distinct[n++] = sorted[i];
+        return Arrays.copyOf(distinct, n);
+    }
+
+    /**
+     * Returns the ids of the edges of {@code G} in order of decreasing
+     * bandwidth, edges of equal bandwidth in increasing id order.
+     *
+     * @param  G the edge-weighted graph
+     * @return the edge ids, widest cable first
+     * @throws IllegalArgumentException if a bandwidth is negative
+     */
+    public static int[] edgesByBandwidth(EdgeWeightedGraph G) {
+        // the key of edge id is its bandwidth complement in the high word and the id in the low word
+        long[] keys = new long[G.E()];
+        G.forEachEdge((id, e) -> {
+            if (e.getBandwidth() < 0)
+                throw new IllegalArgumentException("edge " + e + " has negative bandwidth");
+            keys[id] = ((long) (Integer.MAX_VALUE - e.getBandwidth()) << 32) | id;
+        });
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            order[i] = (int) keys[i];
+        return order;
+    }
+
+    // the graph without the cables below minBandwidth, as callers had to build it before
+    static EdgeWeightedGraph filter(EdgeWeightedGraph G, int minBandwidth) {
+        EdgeWeightedGraph H = new EdgeWeightedGraph(G.V());
+        for (Edge e : G.edges())
+            if (e.getBandwidth() >= minBandwidth) H.addEdge(e);
+        return H;
+    }
+
+    /**
+     * For every distinct bandwidth threshold, times constrained
+     * point-to-point {@code DijkstraSP} queries on the index against a
+     * filtered copy of the graph, and checks that they agree.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int V = g.V();
+
+        long start = System.nanoTime();
+        BandwidthIndex index = new BandwidthIndex(g);
+        StdOut.printf("index of %d cables built in %.1f ms\n", g.E(), (System.nanoTime() - start) / 1e6);
+
+        StdRandom.setSeed(42);
+        int[] from = new int[queries], to = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            from[q] = StdRandom.uniform(V);
+            to[q] = StdRandom.uniform(V);
+        }
+
+        QueryWorkspace ws = QueryWorkspace.forThread(V);
+        for (int min : index.bandwidths()) {
+            new DijkstraSP(index, min, from[0], ws);     // checks a whole constrained tree when run with -ea
+
+            start = System.nanoTime();
+            EdgeWeightedGraph filtered = filter(g, min);
+            double copyMs = (System.nanoTime() - start) / 1e6;
+
+            long copied = 0, indexed = 0, settledCopied = 0, settledIndexed = 0;
+            int connected = 0;
+            for (int q = 0; q < queries; q++) {
+                int s = from[q], t = to[q];
+                start = System.nanoTime();
+                DijkstraSP a = new DijkstraSP(filtered, s, t);
+                copied += System.nanoTime() - start;
+                double expected = a.distTo(t);
+                int bottleneck = a.bottleneckTo(t);
+                settledCopied += a.settled();
+
+                start = System.nanoTime();
+                DijkstraSP b = new DijkstraSP(index, min, s, t, ws);
+                indexed += System.nanoTime() - start;
+                settledIndexed += b.settled();
+
+                if (b.hasPathTo(t) != a.hasPathTo(t) || Math.abs(b.distTo(t) - expected) > 1e-12 * expected)
+                    throw new IllegalStateException("constrained query disagrees from " + s + " to " + t
+                                                    + " at " + min + " Mbps");
+                if (b.hasPathTo(t)) {
+                    connected++;
+                    if (b.bottleneckTo(t) < min || bottleneck < min)
+                        throw new IllegalStateException("path from " + s + " to " + t + " uses a cable below "
+                                                        + min + " Mbps");
+                }
+            }
+            StdOut.printf(">= %6d Mbps: %9d cables, %d/%d connected   filtered copy %8.1f ms + %7.2f ms/query (%d settled)"
+                          + "   index %7.2f ms/query (%d settled)\n",
+                          min, index.edgesAtLeast(min), connected, queries, copyMs,
+                          copied / 1e6 / queries, settledCopied / queries,
+                          indexed / 1e6 / queries, settledIndexed / queries);
+        }
+
+        // the index is a snapshot, so modifying the graph retires it
+        if (!(g instanceof CSRGraph) && V > 1) {
+            g.addEdge(new Edge(0, V - 1, MediaType.OPTICAL, 1, 0.0));
+            try {
+                new DijkstraSP(index, 0, 0, V - 1);
+                throw new IllegalStateException("stale index was accepted");
+            }
+            catch (IllegalStateException e) {
+                StdOut.println("after addEdge: " + e.getMessage());
+            }
+        }
+    }
+}
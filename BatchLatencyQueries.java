@@ -0,0 +1,220 @@
+/******************************************************************************
+ *  Compilation:  javac BatchLatencyQueries.java
+ *  Execution:    java BatchLatencyQueries input.txt queries.txt output.txt [threads]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java DijkstraSP.java
+ *                GraphLoader.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Answers a file of lowest-latency queries, one "source destination"
+ *  pair per line, computing one shortest-paths tree per distinct source
+ *  and writing every path, latency and bottleneck bandwidth to an output
+ *  file.
+ *
+ *  % java BatchLatencyQueries network_data2.txt queries.txt answers.txt
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code BatchLatencyQueries} class answers many lowest-latency path
+ *  queries at once, as the batch counterpart of option 1 of
+ *  {@link NetworkAnalysis}.
+ *  <p>
+ *  The queries are grouped by source vertex with a counting sort, so each
+ *  distinct source costs one {@link DijkstraSP} tree no matter how many
+ *  destinations it is paired with. The groups are independent and run as
+ *  tasks on a fork-join pool. Each task formats its group's answers into
+ *  one block of text and appends it to a single buffered writer, so the
+ *  output is written in large sequential chunks rather than one
+ *  {@code StdOut} call per edge.
+ *  <p>
+ *  Each output line reads
+ *  <pre>
+ *  source destination latency-in-ns bottleneck-bandwidth edge edge ...
+ *  </pre>
+ *  or {@code source destination no path}. Lines of the same source are
+ *  kept together and in input order, but the groups appear in whatever
+ *  order the tasks finish.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class BatchLatencyQueries {
+    private static final int BUFFER = 1 << 20;      // bytes buffered by the output writer
+
+    // this class should not be instantiated
+    private BatchLatencyQueries() { }
+
+    /**
+     * Answers every query in the named query file and writes the answers to
+     * the named output file, using the common fork-join pool.
+     *
+     * @param  G the edge-weighted graph
+     * @param  queryFile the name of the file of "source destination" pairs
+     * @param  outputFile the name of the file to write the answers to
+     * @return the number of queries answered
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if a line is malformed or a vertex
+     *         is not between {@code 0} and {@code V-1}
+     */
+    public static int run(EdgeWeightedGraph G, String queryFile, String outputFile) throws IOException {
+        return run(G, queryFile, outputFile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Answers every query in the named query file and writes the answers to
+     * the named output file, running the source groups on the given pool.
+     *
+     * @param  G the edge-weighted graph
+     * @param  queryFile the name of the file of "source destination" pairs
+     * @param  outputFile the name of the file to write the answers to
+     * @param  pool the pool that runs the searches
+     * @return the number of queries answered
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if a line is malformed or a vertex
+     *         is not between {@code 0} and {@code V-1}
+     */
+    public static int run(EdgeWeightedGraph G, String queryFile, String outputFile, ForkJoinPool pool) throws IOException {
+        int[][] pairs = read(queryFile, G.V());
+        int[] from = pairs[0], to = pairs[1];
+        int n = from.length;
+
+        // counting sort of the query indices by source; group g is order[start[g]..start[g+1]-1]
+        int V = G.V();
+        int[] count = new int[V + 1];
+        for (int q = 0; q < n; q++)
+            count[from[q] + 1]++;
+        for (int v = 0; v < V; v++)
+            count[v + 1] += count[v];
+        int[] order = new int[n];
+        int[] next = Arrays.copyOf(count, V);
+        for (int q = 0; q < n; q++)
+            order[next[from[q]]++] = q;
+        int groups = 0;
+        int[] start = new int[V + 1];
+        for (int v = 0; v < V; v++)
+            if (count[v + 1] > count[v]) start[groups++] = count[v];
+        start[groups] = n;
+
+        try (Writer out = new BufferedWriter(new FileWriter(outputFile), BUFFER)) {
+            try {
+                pool.invoke(new Groups(G, from, to, order, start, out, 0, groups));
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return n;
+    }
+
+    // reads the "source destination" pairs of the named file
+    private static int[][] read(String filename, int V) throws IOException {
+        int[] from = new int[1024], to = new int[1024];
+        int n = 0;
+        try (BufferedReader in = new BufferedReader(new FileReader(filename), BUFFER)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length == 1 && fields[0].isEmpty()) continue;
+                if (fields.length != 2)
+                    throw new IllegalArgumentException(filename + ":" + lineNumber + ": expected \"source destination\"");
+                int v = Integer.parseInt(fields[0]), w = Integer.parseInt(fields[1]);
+                if (v < 0 || v >= V)
+                    throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+                if (w < 0 || w >= V)
+                    throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (V-1));
+                if (n == from.length) {
+                    from = Arrays.copyOf(from, 2 * n);
+                    to = Arrays.copyOf(to, 2 * n);
+                }
+                from[n] = v;
+                to[n] = w;
+                n++;
+            }
+        }
+        return new int[][] { Arrays.copyOf(from, n), Arrays.copyOf(to, n) };
+    }
+
+    // answers source groups [lo, hi), one group per leaf task
+    @SuppressWarnings("serial")
+    private static final class Groups extends RecursiveAction {
+        private final EdgeWeightedGraph G;
+        private final int[] from, to, order, start;
+        private final Writer out;
+        private final int lo, hi;
+
+        Groups(EdgeWeightedGraph G, int[] from, int[] to, int[] order, int[] start, Writer out, int lo, int hi) {
+            this.G = G;
+            this.from = from;
+            this.to = to;
+            this.order = order;
+            this.start = start;
+            this.out = out;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Groups(G, from, to, order, start, out, lo, mid),
+                          new Groups(G, from, to, order, start, out, mid, hi));
+                return;
+            }
+            if (hi == lo) return;
+            int s = from[order[start[lo]]];
+            DijkstraSP sp = new DijkstraSP(G, s);
+            StringBuilder block = new StringBuilder();
+            for (int k = start[lo]; k < start[lo + 1]; k++) {
+                int t = to[order[k]];
+                block.append(s).append(' ').append(t);
+                if (!sp.hasPathTo(t)) {
+                    block.append(" no path\n");
+                    continue;
+                }
+                block.append(' ').append(String.format(Locale.ROOT, "%.3f", sp.distTo(t) * 1e9))
+                     .append(' ').append(sp.bottleneckTo(t));
+                for (Edge e : sp.pathTo(t))
+                    block.append("  ").append(e);
+                block.append('\n');
+            }
+            try {
+                synchronized (out) {
+                    out.append(block);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Answers a query file and reports how long it took.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        int n = run(g, args[1], args[2], pool);
+        pool.shutdown();
+        StdOut.printf("%d queries answered on %d threads in %.1f ms\n", n, threads, (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,248 @@
+/******************************************************************************
+ *  Compilation:  javac BidirectionalDijkstraSP.java
+ *  Execution:    java BidirectionalDijkstraSP input.txt [queries]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java DoubleIndexMinPQ.java Stack.java
+ *                DijkstraSP.java GraphLoader.java StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Lowest-latency path between two vertices, found by running Dijkstra's
+ *  algorithm from both ends at once. Running it benchmarks random queries
+ *  against the point-to-point DijkstraSP.
+ *
+ *  % java NetworkGenerator 500000 2000000 42 big_network.txt
+ *  % java BidirectionalDijkstraSP big_network.txt 20
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code BidirectionalDijkstraSP} class finds a lowest-latency path
+ *  between a source vertex <em>s</em> and a target vertex <em>t</em> in an
+ *  {@link EdgeWeightedGraph}. Every cable is full duplex, so the graph is
+ *  undirected and the search can grow a shortest-paths tree from
+ *  <em>s</em> and another from <em>t</em> at the same time, always advancing
+ *  the side whose next vertex is closer.
+ *  <p>
+ *  Whenever a vertex has been reached from both sides, the sum of its two
+ *  distances is the latency of some <em>s</em>-<em>t</em> path; the best
+ *  such sum <em>&mu;</em> is kept. The search stops once the two smallest
+ *  keys left in the priority queues add up to at least <em>&mu;</em>, at
+ *  which point no undiscovered path can be shorter. On large topologies
+ *  the two searches settle far fewer vertices between them than a single
+ *  search from <em>s</em> that runs until it reaches <em>t</em>.
+ *  <p>
+ *  The results match those of {@link DijkstraSP}: {@code distance()} and
+ *  {@code path()} give the same latency as {@code distTo(t)} and
+ *  {@code pathTo(t)}, up to floating-point rounding in the order the
+ *  latencies are added. If several paths tie, the two classes may return
+ *  different ones.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+
+public class BidirectionalDijkstraSP {
+    private final int s, t;             // source and target
+    private double[] distF, distB;      // distF[v] = latency of best s->v path found, distB[v] of best v->t
+    private Edge[] edgeF, edgeB;        // last edge on those paths, as seen from s and from t
+    private DoubleIndexMinPQ pqF, pqB;
+    private double mu = Double.POSITIVE_INFINITY;   // latency of best s->t path found
+    private int meet = -1;              // vertex where that path's two halves join
+    private int settled;                // number of vertices removed from either queue
+
+    /**
+     * Computes a lowest-latency path from {@code s} to {@code t} in the
+     * edge-weighted graph {@code G}.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public BidirectionalDijkstraSP(EdgeWeightedGraph G, int s, int t) {
+        int V = G.V();
+        validateVertex(s, V);
+        validateVertex(t, V);
+        this.s = s;
+        this.t = t;
+
+        distF = new double[V];
+        distB = new double[V];
+        edgeF = new Edge[V];
+        edgeB = new Edge[V];
+        for (int v = 0; v < V; v++) {
+            distF[v] = Double.POSITIVE_INFINITY;
+            distB[v] = Double.POSITIVE_INFINITY;
+        }
+        distF[s] = 0.0;
+        distB[t] = 0.0;
+        if (s == t) {
+            mu = 0.0;
+            meet = s;
+            return;
+        }
+
+        pqF = new DoubleIndexMinPQ(V);
+        pqB = new DoubleIndexMinPQ(V);
+        pqF.insert(s, 0.0);
+        pqB.insert(t, 0.0);
+        while (!pqF.isEmpty() && !pqB.isEmpty()) {
+            if (pqF.minKey() + pqB.minKey() >= mu) break;
+            if (pqF.minKey() <= pqB.minKey()) scan(G, pqF.delMin(), distF, edgeF, pqF, distB);
+            else                              scan(G, pqB.delMin(), distB, edgeB, pqB, distF);
+            settled++;
+        }
+    }
+
+    // relax every edge out of v on one side of the search, and note any
+    // vertex whose distance improves and that the other side has reached
+    private void scan(EdgeWeightedGraph G, int v, double[] dist, Edge[] edgeTo,
+                      DoubleIndexMinPQ pq, double[] otherDist) {
+        for (Edge e : G.adj(v)) {
+            int w = e.other(v);
+            double latency = e.getLatency();
+            if (latency < 0)
+                throw new IllegalArgumentException("edge " + e + " has negative weight");
+
+            if (dist[w] > dist[v] + latency) {
+                dist[w] = dist[v] + latency;
+                edgeTo[w] = e;
+                if (pq.contains(w)) pq.decreaseKey(w, dist[w]);
+                else                pq.insert(w, dist[w]);
+                if (dist[w] + otherDist[w] < mu) {
+                    mu = dist[w] + otherDist[w];
+                    meet = w;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the latency of a lowest-latency path from {@code s} to {@code t}.
+     *
+     * @return the latency of a lowest-latency path from {@code s} to {@code t};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     */
+    public double distance() {
+        return mu;
+    }
+
+    /**
+     * Returns true if there is a path from {@code s} to {@code t}.
+     *
+     * @return {@code true} if there is a path from {@code s} to {@code t};
+     *         {@code false} otherwise
+     */
+    public boolean hasPath() {
+        return meet >= 0;
+    }
+
+    /**
+     * Returns a lowest-latency path from {@code s} to {@code t}.
+     *
+     * @return a lowest-latency path from {@code s} to {@code t} as an iterable
+     *         of edges in order from {@code s}, and {@code null} if no such path
+     */
+    public Iterable<Edge> path() {
+        if (!hasPath()) return null;
+
+        // collect the t side first, from t back to the meeting vertex
+        Stack<Edge> path = new Stack<Edge>();
+        for (int v = meet; edgeB[v] != null; ) {
+            path.push(edgeB[v]);
+            v = edgeB[v].other(v);
+        }
+        Stack<Edge> reversed = new Stack<Edge>();
+        for (Edge e : path)
+            reversed.push(e);
+
+        // then push the s side from the meeting vertex back to s
+        for (int v = meet; edgeF[v] != null; ) {
+            reversed.push(edgeF[v]);
+            v = edgeF[v].other(v);
+        }
+        return reversed;
+    }
+
+    /**
+     * Returns the smallest bandwidth of any cable on {@code path()}.
+     *
+     * @return the bottleneck bandwidth of the path; {@code Integer.MAX_VALUE}
+     *         if {@code s == t}, and {@code 0} if there is no path
+     */
+    public int bottleneck() {
+        if (!hasPath()) return 0;
+        int min = Integer.MAX_VALUE;
+        for (Edge e : path())
+            min = Math.min(min, e.getBandwidth());
+        return min;
+    }
+
+    /**
+     * Returns the number of vertices removed from the priority queues of
+     * both searches together.
+     *
+     * @return the number of settled vertices
+     */
+    public int settled() {
+        return settled;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private static void validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Unit tests the {@code BidirectionalDijkstraSP} data type, and times
+     * random queries against the point-to-point {@code DijkstraSP}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        StdRandom.setSeed(42);
+        long uni = 0, bi = 0, settledUni = 0, settledBi = 0;
+        for (int q = 0; q < queries; q++) {
+            int s = StdRandom.uniform(g.V()), t = StdRandom.uniform(g.V());
+
+            long start = System.nanoTime();
+            DijkstraSP a = new DijkstraSP(g, s, t);
+            uni += System.nanoTime() - start;
+            start = System.nanoTime();
+            BidirectionalDijkstraSP b = new BidirectionalDijkstraSP(g, s, t);
+            bi += System.nanoTime() - start;
+
+            double expected = a.distTo(t);
+            if (a.hasPathTo(t) != b.hasPath() || Math.abs(expected - b.distance()) > 1e-12 * expected)
+                throw new IllegalStateException("searches disagree from " + s + " to " + t);
+            if (b.hasPath()) {
+                double sum = 0.0;
+                int v = s;
+                for (Edge e : b.path()) {
+                    if (!(e.either() == v || e.other(e.either()) == v))
+                        throw new IllegalStateException("path from " + s + " to " + t + " is not connected");
+                    v = e.other(v);
+                    sum += e.getLatency();
+                }
+                if (v != t || Math.abs(sum - expected) > 1e-12 * expected)
+                    throw new IllegalStateException("path from " + s + " to " + t + " is not a shortest path");
+            }
+            settledUni += a.settled();
+            settledBi += b.settled();
+
+            if (q == 0) {
+                StdOut.printf("%d to %d (%.8f)  ", s, t, b.distance());
+                if (b.hasPath()) for (Edge e : b.path()) StdOut.print(e + "   ");
+                StdOut.println();
+            }
+        }
+        StdOut.printf("%d queries: DijkstraSP %.2f ms/query (%d settled)   bidirectional %.2f ms/query (%d settled)\n",
+                      queries, uni / 1e6 / queries, settledUni / queries, bi / 1e6 / queries, settledBi / queries);
+    }
+}
@@ -1,7 +1,7 @@
 /******************************************************************************
  *  Compilation:  javac CC.java
  *  Execution:    java CC filename.txt
- *  Dependencies: Graph.java StdOut.java Queue.java
+ *  Dependencies: Graph.java StdOut.java Queue.java IntStack.java QueryWorkspace.java
  *  Data files:   http://algs4.cs.princeton.edu/41graph/tinyG.txt
  *                http://algs4.cs.princeton.edu/41graph/mediumG.txt
  *                http://algs4.cs.princeton.edu/41graph/largeG.txt
@@ -19,13 +19,12 @@
  *  1 components
  *  0 1 2 3 4 5 6 7 8 9 10 ...
  *
- *  % java -Xss50m CC largeG.txt 
+ *  % java CC largeG.txt 
  *  1 components
  *  0 1 2 3 4 5 6 7 8 9 10 ...
  *
- *  Note: This implementation uses a recursive DFS. To avoid needing
- *        a potentially very large stack size, replace with a non-recurisve
- *        DFS ala NonrecursiveDFS.java.
+ *  Note: This implementation uses a nonrecursive DFS with an IntStack,
+ *        so it does not need a large thread stack size.
  *
  ******************************************************************************/
 
@@ -59,10 +58,12 @@
  */
 import dependencies.*;
 public class CC {
-    private boolean[] marked;   // marked[v] = has vertex v been marked?
-    private int[] id;           // id[v] = id of connected component containing v
-    private int[] size;         // size[id] = number of vertices in given component
-    private int count;          // number of connected components
+    private final QueryWorkspace ws;    // marks the vertices visited so far, and holds the arrays below
+    private final int generation;       // the workspace generation of this computation
+    private final int V;
+    private final int[] id;             // id[v] = id of connected component containing v
+    private final int[] size;           // size[id] = number of vertices in given component
+    private int count;                  // number of connected components
 
     /*
      * Computes the connected components of the undirected graph {@code G}.
@@ -87,11 +88,29 @@ public class CC {
      * @param G the edge-weighted graph
      */
     public CC(EdgeWeightedGraph G) {
-        marked = new boolean[G.V()];
-        id = new int[G.V()];
-        size = new int[G.V()];
+        this(G, new QueryWorkspace(G.V()));
+        ws.trim();
+    }
+
+    /**
+     * Computes the connected components of {@code G} using the arrays and
+     * stack of {@code ws}. The result is only valid until the next query on
+     * {@code ws} begins.
+     *
+     * @param  G the edge-weighted graph
+     * @param  ws the workspace, for at least {@code V} vertices
+     */
+    public CC(EdgeWeightedGraph G, QueryWorkspace ws) {
+        this.ws = ws;
+        this.V = G.V();
+        if (ws.V() < V)
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, graph has " + V);
+        this.generation = ws.begin();
+        id = ws.ints();
+        size = ws.counts();
         for (int v = 0; v < G.V(); v++) {
-            if (!marked[v]) {
+            if (!ws.marked(v)) {
+                size[count] = 0;
                 dfs(G, v);
                 count++;
             }
@@ -100,29 +119,41 @@ public class CC {
     /*
     // depth-first search for a Graph
     private void dfs(Graph G, int v) {
-        marked[v] = true;
+        ws.mark(v);
         id[v] = count;
         size[count]++;
         for (int w : G.adj(v)) {
-            if (!marked[w]) {
+            if (!ws.marked(w)) {
                 dfs(G, w);
             }
         }
     }*/
 
-    // depth-first search for an EdgeWeightedGraph
-    private void dfs(EdgeWeightedGraph G, int v) {
-        marked[v] = true;
-        id[v] = count;
-        size[count]++;
-        for (Edge e : G.adj(v)) {
-            int w = e.other(v);
-            if (!marked[w]) {
-                dfs(G, w);
+    // depth-first search for an EdgeWeightedGraph, using an explicit stack so
+    // that long paths cannot overflow the call stack
+    private void dfs(EdgeWeightedGraph G, int s) {
+        IntStack stack = ws.stack();
+        stack.clear();
+        visit(s);
+        stack.push(s);
+        while (!stack.isEmpty()) {
+            int v = stack.pop();
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                if (!ws.marked(w)) {
+                    visit(w);
+                    stack.push(w);
+                }
             }
         }
     }
 
+    private void visit(int v) {
+        ws.mark(v);
+        id[v] = count;
+        size[count]++;
+    }
+
 
     /**
      * Returns the component id of the connected component containing vertex {@code v}.
@@ -154,6 +185,7 @@ public class CC {
      * @return the number of connected components in the graph {@code G}
      */
     public int count() {
+        ws.checkGeneration(generation);
         return count;
     }
 
@@ -194,8 +226,9 @@ public class CC {
     }
 
     // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    // and unless the workspace still holds this computation's results
     private void validateVertex(int v) {
-        int V = marked.length;
+        ws.checkGeneration(generation);
         if (v < 0 || v >= V)
             throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
     }
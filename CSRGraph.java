@@ -0,0 +1,345 @@
+/******************************************************************************
+ *  Compilation:  javac CSRGraph.java
+ *  Execution:    java CSRGraph filename.txt [trials]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java GraphLoader.java
+ *                DijkstraSP.java CC.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  An immutable edge-weighted undirected graph in compressed sparse row
+ *  form. Running it benchmarks adjacency traversal against the Bag-based
+ *  EdgeWeightedGraph.
+ *
+ *  % java NetworkGenerator 1000000 4000000 42 big_network.txt
+ *  % java CSRGraph big_network.txt 5
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code CSRGraph} class represents a frozen {@link EdgeWeightedGraph}
+ *  stored in <em>compressed sparse row</em> form. The adjacency list of
+ *  vertex <em>v</em> occupies the slots
+ *  {@code begin(v)} through {@code end(v) - 1} of a set of parallel arrays
+ *  holding, for every slot, the neighbouring vertex, the bandwidth, the
+ *  length and the precomputed latency of the cable, along with the
+ *  {@link Edge} itself.
+ *  <p>
+ *  {@code CSRGraph} extends {@code EdgeWeightedGraph}, so {@link DijkstraSP},
+ *  {@link PrimMST}, {@link CC}, {@link CopperConnected} and the rest run
+ *  against it unchanged; {@code adj(v)} then walks a contiguous array slice
+ *  rather than a linked {@link dependencies.Bag}. Hot loops that only need
+ *  primitive fields can read the slot arrays directly through
+ *  {@link #target(int)}, {@link #latency(int)} and friends without touching
+ *  any {@code Edge} objects.
+ *  <p>
+ *  The adjacency lists, and therefore {@code edges()}, iterate in exactly
+ *  the same order as in the graph the {@code CSRGraph} was built from.
+ *  The graph is immutable: {@link #addEdge(Edge)} and
+ *  {@link #removeEdge(Edge)} throw {@link UnsupportedOperationException}.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class CSRGraph extends EdgeWeightedGraph {
+    private final int V;
+    private final int E;
+    private final int[] offset;         // adjacency list of v is slots offset[v]..offset[v+1]-1
+    private final int[] target;         // target[i]    = other endpoint of slot i
+    private final int[] bandwidth;      // bandwidth[i] = bandwidth of the cable in slot i
+    private final double[] length;      // length[i]    = length of the cable in slot i
+    private final double[] latency;     // latency[i]   = time to cross the cable in slot i
+    private final Edge[] edge;          // edge[i]      = the cable in slot i
+
+    /**
+     * Initializes a frozen copy of the edge-weighted graph {@code G}.
+     *
+     * @param  G the edge-weighted graph
+     */
+    public CSRGraph(EdgeWeightedGraph G) {
+        super(0);      // the adjacency Bags of the superclass are never used
+        V = G.V();
+        E = G.E();
+        offset = new int[V + 1];
+        for (int v = 0; v < V; v++)
+            offset[v+1] = offset[v] + G.degree(v);
+        int slots = offset[V];
+        target = new int[slots];
+        bandwidth = new int[slots];
+        length = new double[slots];
+        latency = new double[slots];
+        edge = new Edge[slots];
+        for (int v = 0; v < V; v++) {
+            int i = offset[v];
+            for (Edge e : G.adj(v)) {
+                fill(i++, v, e);
+            }
+        }
+    }
+
+    /**
+     * Initializes a frozen graph from prebuilt adjacency lists, as stored in
+     * a {@link GraphSnapshot}.
+     *
+     * @param  V the number of vertices
+     * @param  edges the edges, indexed by edge id
+     * @param  adjOffset the start of each vertex's run in {@code adjEdge}
+     * @param  adjEdge the edge ids of all adjacency lists, concatenated
+     * @throws IllegalArgumentException if the arrays are inconsistent or an
+     *         endpoint is not between {@code 0} and {@code V-1}
+     */
+    CSRGraph(int V, Edge[] edges, int[] adjOffset, int[] adjEdge) {
+        super(0);
+        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        if (adjOffset.length != V + 1 || adjOffset[0] != 0 || adjOffset[V] != 2 * edges.length
+                || adjEdge.length != 2 * edges.length)
+            throw new IllegalArgumentException("adjacency offsets do not match " + edges.length + " edges");
+        this.V = V;
+        this.E = edges.length;
+        offset = adjOffset;
+        int slots = adjEdge.length;
+        target = new int[slots];
+        bandwidth = new int[slots];
+        length = new double[slots];
+        latency = new double[slots];
+        edge = new Edge[slots];
+        for (int v = 0; v < V; v++) {
+            if (offset[v] > offset[v+1])
+                throw new IllegalArgumentException("adjacency offsets must be nondecreasing");
+            for (int i = offset[v]; i < offset[v+1]; i++) {
+                Edge e = edges[adjEdge[i]];
+                validateVertex(e.either());
+                validateVertex(e.other(e.either()));
+                fill(i, v, e);
+            }
+        }
+    }
+
+    private void fill(int i, int v, Edge e) {
+        target[i] = e.other(v);
+        bandwidth[i] = e.getBandwidth();
+        length[i] = e.getLength();
+        latency[i] = e.getLatency();
+        edge[i] = e;
+    }
+
+    /**
+     * Opens a {@link GraphSnapshot} file directly into a frozen graph.
+     *
+     * @param  filename the name of the snapshot file
+     * @return the graph stored in the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    public static CSRGraph open(String filename) throws IOException {
+        return GraphSnapshot.openFrozen(filename);
+    }
+
+    @Override
+    public int V() {
+        return V;
+    }
+
+    @Override
+    public int E() {
+        return E;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Unsupported: a {@code CSRGraph} is immutable.
+     *
+     * @param  e the edge
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addEdge(Edge e) {
+        throw new UnsupportedOperationException("CSRGraph is immutable");
+    }
+
+    /**
+     * Unsupported: a {@code CSRGraph} is immutable.
+     *
+     * @param  e the edge
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void removeEdge(Edge e) {
+        throw new UnsupportedOperationException("CSRGraph is immutable");
+    }
+
+    @Override
+    public Iterable<Edge> adj(int v) {
+        validateVertex(v);
+        final int from = offset[v], to = offset[v+1];
+        return new Iterable<Edge>() {
+            public Iterator<Edge> iterator() {
+                return new SlotIterator(from, to);
+            }
+        };
+    }
+
+    @Override
+    public int degree(int v) {
+        validateVertex(v);
+        return offset[v+1] - offset[v];
+    }
+
+    /**
+     * Returns the first adjacency slot of vertex {@code v}.
+     *
+     * @param  v the vertex
+     * @return the first slot of the adjacency list of {@code v}
+     */
+    public int begin(int v) {
+        return offset[v];
+    }
+
+    /**
+     * Returns one past the last adjacency slot of vertex {@code v}.
+     *
+     * @param  v the vertex
+     * @return one past the last slot of the adjacency list of {@code v}
+     */
+    public int end(int v) {
+        return offset[v+1];
+    }
+
+    /**
+     * Returns the vertex at the far end of adjacency slot {@code i}.
+     *
+     * @param  i the slot
+     * @return the neighbour stored in slot {@code i}
+     */
+    public int target(int i) {
+        return target[i];
+    }
+
+    /**
+     * Returns the bandwidth of the cable in adjacency slot {@code i}.
+     *
+     * @param  i the slot
+     * @return the bandwidth of the cable in slot {@code i}
+     */
+    public int bandwidth(int i) {
+        return bandwidth[i];
+    }
+
+    /**
+     * Returns the length of the cable in adjacency slot {@code i}.
+     *
+     * @param  i the slot
+     * @return the length of the cable in slot {@code i}
+     */
+    public double length(int i) {
+        return length[i];
+    }
+
+    /**
+     * Returns the latency of the cable in adjacency slot {@code i}, that is,
+     * its length divided by the propagation speed of its cable type.
+     *
+     * @param  i the slot
+     * @return the latency of the cable in slot {@code i}
+     */
+    public double latency(int i) {
+        return latency[i];
+    }
+
+    /**
+     * Returns the edge in adjacency slot {@code i}. Not to be confused with
+     * {@link #edge(int)}, which looks an edge up by its id.
+     *
+     * @param  i the slot
+     * @return the edge stored in slot {@code i}
+     */
+    public Edge slotEdge(int i) {
+        return edge[i];
+    }
+
+    // iterates the edges in slots [from, to)
+    private class SlotIterator implements Iterator<Edge> {
+        private int i;
+        private final int to;
+
+        SlotIterator(int from, int to) {
+            this.i = from;
+            this.to = to;
+        }
+
+        public boolean hasNext()  { return i < to;                              }
+        public void remove()      { throw new UnsupportedOperationException();  }
+
+        public Edge next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return edge[i++];
+        }
+    }
+
+    /**
+     * Benchmarks adjacency traversal and algorithms on the Bag-based graph
+     * and on its CSR form.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        CSRGraph csr = new CSRGraph(g);
+        if (!g.toString().equals(csr.toString()))
+            throw new IllegalStateException("CSR graph does not match its source");
+        for (int id = 0; id < g.E(); id++)
+            if (csr.edge(id) != g.edge(id))
+                throw new IllegalStateException("edge id " + id + " differs from its source");
+        StdOut.println(g.V() + " vertices, " + g.E() + " edges");
+
+        for (int t = 1; t <= trials; t++) {
+            long start = System.nanoTime();
+            double bagSum = 0.0;
+            for (int v = 0; v < g.V(); v++)
+                for (Edge e : g.adj(v))
+                    bagSum += e.getLatency();
+            double bag = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            double adapterSum = 0.0;
+            for (int v = 0; v < csr.V(); v++)
+                for (Edge e : csr.adj(v))
+                    adapterSum += e.getLatency();
+            double adapter = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            double slotSum = 0.0;
+            for (int v = 0; v < csr.V(); v++)
+                for (int i = csr.begin(v); i < csr.end(v); i++)
+                    slotSum += csr.latency(i);
+            double slots = (System.nanoTime() - start) / 1e6;
+
+            if (bagSum != adapterSum || adapterSum != slotSum)
+                throw new IllegalStateException("traversals disagree");
+
+            start = System.nanoTime();
+            DijkstraSP a = new DijkstraSP(g, 0);
+            new CC(g);
+            double bagAlgs = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            DijkstraSP b = new DijkstraSP(csr, 0);
+            new CC(csr);
+            double csrAlgs = (System.nanoTime() - start) / 1e6;
+
+            if (a.distTo(g.V() - 1) != b.distTo(g.V() - 1))
+                throw new IllegalStateException("DijkstraSP disagrees");
+            StdOut.printf("trial %d: adj sweep  Bag %8.1f ms   CSR adj() %8.1f ms   CSR slots %8.1f ms"
+                          + "   |   Dijkstra+CC  Bag %8.1f ms   CSR %8.1f ms\n",
+                          t, bag, adapter, slots, bagAlgs, csrAlgs);
+        }
+    }
+}
@@ -0,0 +1,853 @@
+/******************************************************************************
+ *  Compilation:  javac ContractionHierarchy.java
+ *  Execution:    java ContractionHierarchy input.txt [queries] [coreDegree] [budgetMillis]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java DoubleIndexMinPQ.java
+ *                IntStack.java IntBag.java Queue.java
+ *                BidirectionalDijkstraSP.java GraphLoader.java
+ *                StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Contraction hierarchy over cable latencies: a one-off preprocessing
+ *  step that orders the vertices and adds shortcut edges, after which
+ *  lowest-latency queries only search upwards in the order. Running it
+ *  builds the hierarchy and checks random queries against
+ *  BidirectionalDijkstraSP.
+ *
+ *  % java ContractionHierarchy network_data2.txt 100
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code ContractionHierarchy} class answers lowest-latency path
+ *  queries in an {@link EdgeWeightedGraph} that changes rarely, after a
+ *  preprocessing step that makes each query touch only a tiny part of the
+ *  graph.
+ *  <p>
+ *  Preprocessing <em>contracts</em> the vertices one at a time, in order
+ *  of increasing importance. Contracting <em>v</em> removes it from the
+ *  remaining graph; for each pair of remaining neighbours <em>u</em> and
+ *  <em>w</em> whose only lowest-latency connection ran through <em>v</em>,
+ *  a <em>shortcut</em> <em>u</em>-<em>w</em> with the latency of
+ *  <em>u</em>-<em>v</em>-<em>w</em> is added. A bounded Dijkstra
+ *  <em>witness search</em> from <em>u</em> that avoids <em>v</em> decides
+ *  whether the shortcut is needed. Importance is estimated as the
+ *  <em>edge difference</em> (shortcuts that contracting the vertex would
+ *  add, less the edges it would remove) plus the number of neighbours
+ *  already contracted, which spreads contraction evenly over the graph;
+ *  estimates are refreshed lazily when a vertex reaches the front of the
+ *  queue, and for the neighbours of each contracted vertex.
+ *  <p>
+ *  Only the lightest arc between two vertices is kept: a shortcut lighter
+ *  than an existing edge or shortcut takes its place rather than running
+ *  beside it.
+ *  <p>
+ *  Contraction stops once the remaining graph gets denser than an average
+ *  degree of {@code maxCoreDegree}, since further shortcuts there would
+ *  cost more than they save; once a tenth of the vertices are contracted
+ *  without the remaining graph losing any arcs, since such a graph has no
+ *  hierarchy to find; and once preprocessing has run for
+ *  {@code budgetMillis}. The vertices left over form the <em>core</em> and
+ *  rank above every contracted vertex. On road-like topologies such as
+ *  grids the core is empty or tiny; on random topologies it is most of the
+ *  graph, and queries cost about as much as {@link BidirectionalDijkstraSP}.
+ *  Check {@link #coreSize()} before preferring a hierarchy.
+ *  <p>
+ *  A query runs in two phases. First, Dijkstra's algorithm runs from
+ *  <em>s</em> and from <em>t</em> at once, each following only edges and
+ *  shortcuts that lead to vertices contracted later, and pruning vertices
+ *  that a higher neighbour reaches more cheaply (<em>stall-on-demand</em>).
+ *  Some lowest-latency path always climbs from both ends to a common
+ *  highest vertex, so without a core the two searches meet on it. Core
+ *  vertices the climbs reach are not expanded; instead, if both sides
+ *  reached the core, a bidirectional Dijkstra restricted to the core
+ *  starts from all of them and stops as in {@link BidirectionalDijkstraSP}.
+ *  Every shortcut remembers the two edges it replaces, so the path is
+ *  unpacked into the original cables before it is returned.
+ *  <p>
+ *  Queries reuse per-thread scratch arrays, so after the first query on a
+ *  thread they take time proportional to the size of the two upward
+ *  searches rather than to <em>V</em>. A hierarchy is not updated when
+ *  its graph changes; build a new one instead.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ContractionHierarchy {
+    private static final int WITNESS_SETTLE_LIMIT = 500;    // witness searches give up after this many vertices
+    private static final int ORDER_SETTLE_LIMIT   = 50;     // and after this many when only estimating importance
+
+    private static final int SHRINK_CHECK         = 10;     // after V/SHRINK_CHECK contractions the graph must have shrunk
+
+    /** The average degree at which the default hierarchy stops contracting. */
+    public static final double DEFAULT_CORE_DEGREE = 24.0;
+
+    /** The preprocessing time, in milliseconds, after which the default hierarchy stops contracting. */
+    public static final long DEFAULT_BUDGET_MILLIS = 30000;
+
+    private final int V;
+    private final int E;                // arcs 0..E-1 are the original edges, in edge id order
+    private final Edge[] edges;         // edges[a] = original edge of arc a < E
+    private int arcs;                   // number of arcs, originals plus shortcuts
+    private int[] arcU, arcV;           // endpoints of each arc
+    private double[] arcW;              // latency of each arc
+    private int[] arcMid;               // for a shortcut, the contracted vertex it bypasses
+    private int[] arcFirst, arcSecond;  // for a shortcut, its arcs arcU-arcMid and arcMid-arcV
+    private boolean[] arcReplaced;      // arcReplaced[a] = a lighter arc between the same vertices took its place
+    private final int[] rank;           // rank[v] = position of v in the contraction order
+    private final double maxCoreDegree;
+    private final long budgetMillis;
+    private int coreSize;               // the coreSize highest-ranked vertices were never contracted
+
+    // upward graph: arcs from v to vertices of higher rank, in slots upOffset[v]..upOffset[v+1]-1
+    private int[] upOffset;
+    private int[] upTarget;
+    private double[] upWeight;
+    private int[] upArc;
+
+    // working state that only exists during preprocessing
+    private int[][] adj;                // adj[v][0..degree[v]-1] = arcs at v into the remaining graph
+    private int[] degree;
+    private boolean[] contracted;
+    private double[] witnessDist;
+    private int[] witnessStamp;
+    private int witnessGeneration;
+    private DoubleIndexMinPQ witnessPQ;
+    private int[] nbr, nbrArc;          // remaining neighbours of the vertex being contracted
+    private double[] nbrW;
+    private int[] nbrSlot;              // nbrSlot[w] = index of w in nbr, valid when nbrStamp[w] == nbrGeneration
+    private int[] nbrStamp;
+    private int nbrGeneration;
+
+    private final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+        @Override
+        protected Search initialValue() {
+            return new Search(V);
+        }
+    };
+
+    /**
+     * Builds a contraction hierarchy for the latencies of the edge-weighted
+     * graph {@code G}, leaving an uncontracted core once the remaining graph
+     * reaches an average degree of {@value #DEFAULT_CORE_DEGREE}, stops
+     * shrinking, or preprocessing has run for
+     * {@value #DEFAULT_BUDGET_MILLIS} milliseconds.
+     *
+     * @param  G the edge-weighted graph
+     * @throws IllegalArgumentException if an edge has negative latency
+     */
+    public ContractionHierarchy(EdgeWeightedGraph G) {
+        this(G, DEFAULT_CORE_DEGREE, DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * Builds a contraction hierarchy for the latencies of the edge-weighted
+     * graph {@code G}, leaving an uncontracted core once the remaining graph
+     * reaches an average degree of {@code maxCoreDegree}, stops shrinking,
+     * or preprocessing has run for {@code budgetMillis} milliseconds.
+     *
+     * @param  G the edge-weighted graph
+     * @param  maxCoreDegree the average degree at which contraction stops;
+     *         {@code Double.POSITIVE_INFINITY} for no limit
+     * @param  budgetMillis the preprocessing time after which contraction
+     *         stops; {@code Long.MAX_VALUE} for no limit
+     * @throws IllegalArgumentException if an edge has negative latency
+     * @throws IllegalArgumentException unless {@code maxCoreDegree > 0}
+     * @throws IllegalArgumentException if {@code budgetMillis} is negative
+     */
+    public ContractionHierarchy(EdgeWeightedGraph G, double maxCoreDegree, long budgetMillis) {
+        if (!(maxCoreDegree > 0)) throw new IllegalArgumentException("core degree must be positive");
+        if (budgetMillis < 0) throw new IllegalArgumentException("time budget must be nonnegative");
+        this.maxCoreDegree = maxCoreDegree;
+        this.budgetMillis = budgetMillis;
+        long start = System.nanoTime();
+        V = G.V();
+        E = G.E();
+        edges = new Edge[E];
+        int capacity = Math.max(16, 2 * E);
+        arcU = new int[capacity];
+        arcV = new int[capacity];
+        arcW = new double[capacity];
+        arcMid = new int[capacity];
+        arcFirst = new int[capacity];
+        arcSecond = new int[capacity];
+        arcReplaced = new boolean[capacity];
+        rank = new int[V];
+
+        adj = new int[V][];
+        degree = new int[V];
+        for (int v = 0; v < V; v++)
+            adj[v] = new int[Math.max(4, G.degree(v))];
+        G.forEachEdge((id, e) -> {
+            int v = e.either(), w = e.other(v);
+            if (e.getLatency() < 0)
+                throw new IllegalArgumentException("edge " + e + " has negative weight");
+            edges[id] = e;
+            int a = newArc(v, w, e.getLatency(), -1, -1, -1);
+            if (v != w) link(a);    // self loops never lie on a lowest-latency path
+            else        arcReplaced[a] = true;
+        });
+
+        contract(start);
+        buildUpwardGraph();
+
+        // drop the preprocessing state
+        adj = null;
+        degree = null;
+        contracted = null;
+        witnessDist = null;
+        witnessStamp = null;
+        witnessPQ = null;
+        nbr = nbrArc = nbrSlot = nbrStamp = null;
+        nbrW = null;
+    }
+
+    private int newArc(int u, int v, double w, int mid, int first, int second) {
+        if (arcs == arcU.length) {
+            int capacity = 2 * arcs;
+            arcU = Arrays.copyOf(arcU, capacity);
+            arcV = Arrays.copyOf(arcV, capacity);
+            arcW = Arrays.copyOf(arcW, capacity);
+            arcMid = Arrays.copyOf(arcMid, capacity);
+            arcFirst = Arrays.copyOf(arcFirst, capacity);
+            arcSecond = Arrays.copyOf(arcSecond, capacity);
+            arcReplaced = Arrays.copyOf(arcReplaced, capacity);
+        }
+        arcU[arcs] = u;
+        arcV[arcs] = v;
+        arcW[arcs] = w;
+        arcMid[arcs] = mid;
+        arcFirst[arcs] = first;
+        arcSecond[arcs] = second;
+        return arcs++;
+    }
+
+    // adds arc a to the remaining graph, keeping at most one arc, the
+    // lightest, between any two vertices: parallel arcs would only grow
+    // the degrees that witness searches and importance estimates scan;
+    // returns true if u and w were not yet adjacent
+    private boolean link(int a) {
+        int u = arcU[a], w = arcV[a];
+        int k = slotOf(u, w);
+        if (k < 0) {
+            attach(u, a);
+            attach(w, a);
+            return true;
+        }
+        int b = adj[u][k];
+        if (arcW[a] < arcW[b]) {
+            adj[u][k] = a;
+            adj[w][slotOf(w, u)] = a;
+            arcReplaced[b] = true;
+        }
+        else arcReplaced[a] = true;
+        return false;
+    }
+
+    // position of the arc between v and w in v's list, or -1 if there is none
+    private int slotOf(int v, int w) {
+        int[] list = adj[v];
+        for (int k = 0; k < degree[v]; k++)
+            if (other(list[k], v) == w) return k;
+        return -1;
+    }
+
+    private void attach(int v, int a) {
+        if (degree[v] == adj[v].length) adj[v] = Arrays.copyOf(adj[v], 2 * degree[v]);
+        adj[v][degree[v]++] = a;
+    }
+
+    private int other(int a, int v) {
+        return arcU[a] == v ? arcV[a] : arcU[a];
+    }
+
+
+   /***************************************************************************
+    * Node ordering and contraction.
+    ***************************************************************************/
+
+    private void contract(long start) {
+        contracted = new boolean[V];
+        witnessDist = new double[V];
+        witnessStamp = new int[V];
+        witnessPQ = new DoubleIndexMinPQ(V);
+        nbr = new int[16];
+        nbrArc = new int[16];
+        nbrW = new double[16];
+        nbrSlot = new int[V];
+        nbrStamp = new int[V];
+        int[] deleted = new int[V];         // deleted[v] = number of contracted neighbours of v
+
+        DoubleIndexMinPQ order = new DoubleIndexMinPQ(V);
+        long remainingArcs = 0;
+        for (int v = 0; v < V; v++) {
+            order.insert(v, overBudget(start) ? 0.0 : importance(v, deleted));
+            remainingArcs += degree[v];
+        }
+        remainingArcs /= 2;
+        long initialArcs = remainingArcs;
+
+        int next = 0;
+        while (!order.isEmpty()) {
+            // stop once the remaining graph is too dense to contract cheaply; it becomes the core
+            int remaining = V - next;
+            if (2.0 * remainingArcs / remaining > maxCoreDegree) break;
+            // or if contraction only adds arcs: on random topologies the core would end up most of the graph anyway
+            if (next > 0 && next == V / SHRINK_CHECK && remainingArcs >= initialArcs) break;
+            if (overBudget(start)) break;
+
+            int v = order.minIndex();
+
+            // lazy update: re-estimate v and only contract it if it is still the least important
+            double p = importance(v, deleted);
+            if (p > order.minKey()) {
+                order.increaseKey(v, p);
+                if (order.minIndex() != v) continue;
+            }
+            order.delMin();
+
+            remainingArcs += contract(v, false, WITNESS_SETTLE_LIMIT) - degree[v];
+            contracted[v] = true;
+            rank[v] = next++;
+
+            for (int i = 0; i < nbrCount; i++) {
+                int w = nbr[i];
+                deleted[w]++;
+                removeContracted(w);
+            }
+            int[] touched = Arrays.copyOf(nbr, nbrCount);
+            for (int w : touched)
+                order.changeKey(w, importance(w, deleted));
+        }
+
+        // the core is ranked above every contracted vertex, in queue order
+        coreSize = V - next;
+        while (!order.isEmpty())
+            rank[order.delMin()] = next++;
+    }
+
+    private boolean overBudget(long start) {
+        return (System.nanoTime() - start) / 1000000 >= budgetMillis;
+    }
+
+    // estimated cost of contracting v next
+    private double importance(int v, int[] deleted) {
+        int shortcuts = contract(v, true, ORDER_SETTLE_LIMIT);
+        return shortcuts - nbrCount + deleted[v];
+    }
+
+    // drop arcs from w's list whose other end has been contracted
+    private void removeContracted(int w) {
+        int[] list = adj[w];
+        int n = 0;
+        for (int k = 0; k < degree[w]; k++) {
+            int a = list[k];
+            if (!contracted[other(a, w)]) list[n++] = a;
+        }
+        degree[w] = n;
+    }
+
+    private int nbrCount;
+
+    // collects the remaining neighbours of v, keeping the lightest arc to
+    // each, then adds (or, when simulating, counts) the shortcuts needed
+    // to contract v; returns the number of shortcuts, less any that only
+    // replaced a heavier arc
+    private int contract(int v, boolean simulate, int settleLimit) {
+        nbrGeneration++;
+        nbrCount = 0;
+        for (int k = 0; k < degree[v]; k++) {
+            int a = adj[v][k];
+            int w = other(a, v);
+            if (contracted[w]) continue;
+            if (nbrStamp[w] == nbrGeneration) {
+                int i = nbrSlot[w];
+                if (arcW[a] < nbrW[i]) {
+                    nbrW[i] = arcW[a];
+                    nbrArc[i] = a;
+                }
+                continue;
+            }
+            if (nbrCount == nbr.length) {
+                nbr = Arrays.copyOf(nbr, 2 * nbrCount);
+                nbrArc = Arrays.copyOf(nbrArc, 2 * nbrCount);
+                nbrW = Arrays.copyOf(nbrW, 2 * nbrCount);
+            }
+            nbrStamp[w] = nbrGeneration;
+            nbrSlot[w] = nbrCount;
+            nbr[nbrCount] = w;
+            nbrArc[nbrCount] = a;
+            nbrW[nbrCount] = arcW[a];
+            nbrCount++;
+        }
+
+        int shortcuts = 0;
+        int n = nbrCount;
+        for (int i = 0; i < n - 1; i++) {
+            int u = nbr[i];
+            double max = 0.0;
+            for (int j = i + 1; j < n; j++)
+                max = Math.max(max, nbrW[i] + nbrW[j]);
+            witnessSearch(u, v, max, settleLimit);
+            for (int j = i + 1; j < n; j++) {
+                int w = nbr[j];
+                double via = nbrW[i] + nbrW[j];
+                if (witnessDistance(w) <= via) continue;
+                if (simulate || link(newArc(u, w, via, v, nbrArc[i], nbrArc[j])))
+                    shortcuts++;
+            }
+        }
+        return shortcuts;
+    }
+
+    // Dijkstra from u in the remaining graph without vertex skip, up to latency max
+    private void witnessSearch(int u, int skip, double max, int settleLimit) {
+        witnessGeneration++;
+        witnessPQ.clear();
+        witnessStamp[u] = witnessGeneration;
+        witnessDist[u] = 0.0;
+        witnessPQ.insert(u, 0.0);
+        int settled = 0;
+        while (!witnessPQ.isEmpty() && witnessPQ.minKey() <= max && settled++ < settleLimit) {
+            int x = witnessPQ.delMin();
+            double dx = witnessDist[x];
+            int[] list = adj[x];
+            for (int k = 0; k < degree[x]; k++) {
+                int a = list[k];
+                int y = other(a, x);
+                if (y == skip || contracted[y]) continue;
+                double d = dx + arcW[a];
+                if (d > max) continue;      // too far to witness any shortcut
+                if (d < witnessDistance(y)) {
+                    witnessStamp[y] = witnessGeneration;
+                    witnessDist[y] = d;
+                    if (witnessPQ.contains(y)) witnessPQ.decreaseKey(y, d);
+                    else                       witnessPQ.insert(y, d);
+                }
+            }
+        }
+    }
+
+    private double witnessDistance(int v) {
+        return witnessStamp[v] == witnessGeneration ? witnessDist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    // every arc is stored at its lower-ranked endpoint; arcs inside the core at both endpoints
+    private void buildUpwardGraph() {
+        int coreRank = V - coreSize;
+        upOffset = new int[V + 1];
+        for (int a = 0; a < arcs; a++) {
+            if (arcReplaced[a]) continue;   // a lighter arc joins the same vertices, or a self loop
+            int u = arcU[a], v = arcV[a];
+            if (rank[u] >= coreRank && rank[v] >= coreRank) {
+                upOffset[u + 1]++;
+                upOffset[v + 1]++;
+            }
+            else upOffset[(rank[u] < rank[v] ? u : v) + 1]++;
+        }
+        for (int v = 0; v < V; v++)
+            upOffset[v+1] += upOffset[v];
+        upTarget = new int[upOffset[V]];
+        upWeight = new double[upOffset[V]];
+        upArc = new int[upOffset[V]];
+        int[] next = Arrays.copyOf(upOffset, V);
+        for (int a = 0; a < arcs; a++) {
+            if (arcReplaced[a]) continue;
+            int u = arcU[a], v = arcV[a];
+            if (rank[u] >= coreRank && rank[v] >= coreRank) {
+                addUpward(next[u]++, u, a);
+                addUpward(next[v]++, v, a);
+            }
+            else {
+                int low = rank[u] < rank[v] ? u : v;
+                addUpward(next[low]++, low, a);
+            }
+        }
+    }
+
+    private void addUpward(int i, int from, int a) {
+        upTarget[i] = other(a, from);
+        upWeight[i] = arcW[a];
+        upArc[i] = a;
+    }
+
+
+   /***************************************************************************
+    * Queries.
+    ***************************************************************************/
+
+    // per-thread scratch space for queries; entries are valid only when stamped with the current generation
+    private static class Search {
+        final double[] distF, distB;
+        final int[] arcF, arcB;         // arc to the parent in each upward search tree
+        final int[] stampF, stampB;
+        final DoubleIndexMinPQ pqF, pqB;
+        final IntBag seedsF = new IntBag(), seedsB = new IntBag();  // core vertices reached by each climb
+        final IntStack unpack = new IntStack();
+        int generation;
+
+        Search(int V) {
+            distF = new double[V];
+            distB = new double[V];
+            arcF = new int[V];
+            arcB = new int[V];
+            stampF = new int[V];
+            stampB = new int[V];
+            pqF = new DoubleIndexMinPQ(V);
+            pqB = new DoubleIndexMinPQ(V);
+        }
+    }
+
+    /**
+     * A lowest-latency path found by a {@link ContractionHierarchy}, as the
+     * sequence of original cables from the source to the target.
+     */
+    public static final class Path implements Iterable<Edge> {
+        private final Queue<Edge> edges;
+        private final double latency;
+        private final int bandwidth;
+        private final int settled;
+
+        private Path(Queue<Edge> edges, double latency, int bandwidth, int settled) {
+            this.edges = edges;
+            this.latency = latency;
+            this.bandwidth = bandwidth;
+            this.settled = settled;
+        }
+
+        /**
+         * Returns the total latency of this path.
+         *
+         * @return the total latency of this path
+         */
+        public double latency() {
+            return latency;
+        }
+
+        /**
+         * Returns the smallest bandwidth of any cable on this path.
+         *
+         * @return the bottleneck bandwidth; {@code Integer.MAX_VALUE} if the
+         *         path has no edges
+         */
+        public int bandwidth() {
+            return bandwidth;
+        }
+
+        /**
+         * Returns the number of vertices the query settled to find this path.
+         *
+         * @return the number of settled vertices
+         */
+        public int settled() {
+            return settled;
+        }
+
+        /**
+         * Returns the number of cables on this path.
+         *
+         * @return the number of cables on this path
+         */
+        public int size() {
+            return edges.size();
+        }
+
+        /**
+         * Returns an iterator over the cables of this path, from the source.
+         *
+         * @return an iterator over the cables of this path
+         */
+        public java.util.Iterator<Edge> iterator() {
+            return edges.iterator();
+        }
+    }
+
+    /**
+     * Returns a lowest-latency path from {@code s} to {@code t}.
+     *
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @return a lowest-latency path from {@code s} to {@code t}, or
+     *         {@code null} if there is no such path
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public Path path(int s, int t) {
+        Search q = searches.get();
+        int[] result = search(q, s, t);
+        int meet = result[0], settled = result[1];
+        if (meet < 0) return null;
+
+        // parent arcs from the meeting vertex back down to s, then up from the meeting vertex down to t
+        IntStack down = new IntStack();
+        for (int v = meet; v != s; v = other(q.arcF[v], v))
+            down.push(q.arcF[v]);
+        Queue<Edge> path = new Queue<Edge>();
+        int from = s;
+        while (!down.isEmpty()) {
+            int a = down.pop();
+            unpack(q.unpack, a, from, path);
+            from = other(a, from);
+        }
+        for (int v = meet; v != t; v = other(q.arcB[v], v))
+            unpack(q.unpack, q.arcB[v], v, path);
+
+        double latency = q.distF[meet] + q.distB[meet];
+        int bandwidth = Integer.MAX_VALUE;
+        for (Edge e : path)
+            bandwidth = Math.min(bandwidth, e.getBandwidth());
+        return new Path(path, latency, bandwidth, settled);
+    }
+
+    /**
+     * Returns the latency of a lowest-latency path from {@code s} to {@code t},
+     * without unpacking the path itself.
+     *
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @return the latency of a lowest-latency path from {@code s} to {@code t};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public double distance(int s, int t) {
+        Search q = searches.get();
+        int meet = search(q, s, t)[0];
+        if (meet < 0) return Double.POSITIVE_INFINITY;
+        return q.distF[meet] + q.distB[meet];
+    }
+
+    // bidirectional upward search; returns the meeting vertex (or -1) and the number of settled vertices
+    private int[] search(Search q, int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        int generation = ++q.generation;
+        int coreRank = V - coreSize;
+        q.pqF.clear();
+        q.pqB.clear();
+        q.seedsF.clear();
+        q.seedsB.clear();
+        q.stampF[s] = generation;
+        q.distF[s] = 0.0;
+        q.stampB[t] = generation;
+        q.distB[t] = 0.0;
+        q.pqF.insert(s, 0.0);
+        q.pqB.insert(t, 0.0);
+
+        // phase 1: climb the contracted part of the hierarchy from both ends,
+        // stopping at core vertices, until neither side can improve on mu
+        double mu = Double.POSITIVE_INFINITY;
+        int meet = -1, settled = 0;
+        while (true) {
+            double minF = q.pqF.isEmpty() ? Double.POSITIVE_INFINITY : q.pqF.minKey();
+            double minB = q.pqB.isEmpty() ? Double.POSITIVE_INFINITY : q.pqB.minKey();
+            if (Math.min(minF, minB) >= mu || (minF == Double.POSITIVE_INFINITY && minB == Double.POSITIVE_INFINITY))
+                break;
+            boolean forward = minF <= minB;
+            DoubleIndexMinPQ pq = forward ? q.pqF : q.pqB;
+            double[] dist = forward ? q.distF : q.distB, otherDist = forward ? q.distB : q.distF;
+            int[] stamp = forward ? q.stampF : q.stampB, otherStamp = forward ? q.stampB : q.stampF;
+            int[] parent = forward ? q.arcF : q.arcB;
+
+            int v = pq.delMin();
+            settled++;
+            double dv = dist[v];
+            if (otherStamp[v] == generation && dv + otherDist[v] < mu) {
+                mu = dv + otherDist[v];
+                meet = v;
+            }
+            if (rank[v] >= coreRank) {
+                (forward ? q.seedsF : q.seedsB).add(v);
+                continue;
+            }
+            if (stalled(v, dv, dist, stamp, generation)) continue;
+            for (int i = upOffset[v]; i < upOffset[v+1]; i++)
+                relax(pq, dist, stamp, parent, generation, upTarget[i], dv + upWeight[i], upArc[i]);
+        }
+        if (q.seedsF.isEmpty() || q.seedsB.isEmpty()) return new int[] { meet, settled };
+
+        // phase 2: plain bidirectional Dijkstra inside the core, starting from
+        // every core vertex the two climbs reached
+        q.pqF.clear();
+        q.pqB.clear();
+        for (int k = 0; k < q.seedsF.size(); k++) {
+            int v = q.seedsF.get(k);
+            if (q.distF[v] < mu) q.pqF.insert(v, q.distF[v]);
+        }
+        for (int k = 0; k < q.seedsB.size(); k++) {
+            int v = q.seedsB.get(k);
+            if (q.distB[v] < mu) q.pqB.insert(v, q.distB[v]);
+        }
+        while (!q.pqF.isEmpty() && !q.pqB.isEmpty()) {
+            double minF = q.pqF.minKey(), minB = q.pqB.minKey();
+            if (minF + minB >= mu) break;
+            boolean forward = minF <= minB;
+            DoubleIndexMinPQ pq = forward ? q.pqF : q.pqB;
+            double[] dist = forward ? q.distF : q.distB, otherDist = forward ? q.distB : q.distF;
+            int[] stamp = forward ? q.stampF : q.stampB, otherStamp = forward ? q.stampB : q.stampF;
+            int[] parent = forward ? q.arcF : q.arcB;
+
+            int v = pq.delMin();
+            settled++;
+            double dv = dist[v];
+            for (int i = upOffset[v]; i < upOffset[v+1]; i++) {
+                int w = upTarget[i];
+                if (relax(pq, dist, stamp, parent, generation, w, dv + upWeight[i], upArc[i])
+                        && otherStamp[w] == generation && dist[w] + otherDist[w] < mu) {
+                    mu = dist[w] + otherDist[w];
+                    meet = w;
+                }
+            }
+        }
+        return new int[] { meet, settled };
+    }
+
+    // lower the label of w to d through arc a if that improves it
+    private static boolean relax(DoubleIndexMinPQ pq, double[] dist, int[] stamp, int[] parent,
+                                 int generation, int w, double d, int a) {
+        if (stamp[w] == generation && d >= dist[w]) return false;
+        boolean queued = stamp[w] == generation && pq.contains(w);
+        stamp[w] = generation;
+        dist[w] = d;
+        parent[w] = a;
+        if (queued) pq.decreaseKey(w, d);
+        else        pq.insert(w, d);
+        return true;
+    }
+
+    // stall-on-demand: the arcs of v also lead down to v from its higher
+    // neighbours, and if one of those already gives a shorter path to v
+    // then v is not on any shortest upward path and need not be expanded
+    private boolean stalled(int v, double dv, double[] dist, int[] stamp, int generation) {
+        for (int i = upOffset[v]; i < upOffset[v+1]; i++) {
+            int u = upTarget[i];
+            if (stamp[u] == generation && dist[u] + upWeight[i] < dv) return true;
+        }
+        return false;
+    }
+
+    // appends the original edges of arc a, walked starting at vertex from, to path
+    private void unpack(IntStack stack, int a, int from, Queue<Edge> path) {
+        stack.clear();
+        stack.push(a);
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            from = stack.pop();
+            a = stack.pop();
+            if (a < E) {
+                path.enqueue(edges[a]);
+                continue;
+            }
+            int mid = arcMid[a];
+            if (from == arcU[a]) {
+                stack.push(arcSecond[a]);
+                stack.push(mid);
+                stack.push(arcFirst[a]);
+                stack.push(from);
+            }
+            else {
+                stack.push(arcFirst[a]);
+                stack.push(mid);
+                stack.push(arcSecond[a]);
+                stack.push(from);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of shortcut edges added by preprocessing.
+     *
+     * @return the number of shortcuts
+     */
+    public int shortcuts() {
+        return arcs - E;
+    }
+
+    /**
+     * Returns the number of vertices left uncontracted in the core. Queries
+     * search the core with plain bidirectional Dijkstra.
+     *
+     * @return the number of core vertices
+     */
+    public int coreSize() {
+        return coreSize;
+    }
+
+    /**
+     * Returns the position of vertex {@code v} in the contraction order.
+     *
+     * @param  v the vertex
+     * @return the rank of {@code v}, between {@code 0} and {@code V-1}
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public int rank(int v) {
+        validateVertex(v);
+        return rank[v];
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Builds a hierarchy for a graph and checks random queries against
+     * {@code BidirectionalDijkstraSP}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        double coreDegree = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_CORE_DEGREE;
+        long budget = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_BUDGET_MILLIS;
+
+        long start = System.nanoTime();
+        ContractionHierarchy ch = new ContractionHierarchy(g, coreDegree, budget);
+        StdOut.printf("%d vertices, %d edges: hierarchy built in %.1f ms with %d shortcuts and a core of %d vertices\n",
+                      g.V(), g.E(), (System.nanoTime() - start) / 1e6, ch.shortcuts(), ch.coreSize());
+
+        StdRandom.setSeed(42);
+        long bi = 0, chTime = 0, settledBi = 0, settledCh = 0;
+        for (int q = 0; q < queries; q++) {
+            int s = StdRandom.uniform(g.V()), t = StdRandom.uniform(g.V());
+
+            start = System.nanoTime();
+            BidirectionalDijkstraSP b = new BidirectionalDijkstraSP(g, s, t);
+            bi += System.nanoTime() - start;
+            start = System.nanoTime();
+            Path p = ch.path(s, t);
+            chTime += System.nanoTime() - start;
+
+            double expected = b.distance();
+            if (b.hasPath() != (p != null) || (p != null && Math.abs(expected - p.latency()) > 1e-9 * expected))
+                throw new IllegalStateException("hierarchy disagrees from " + s + " to " + t);
+            if (p != null) {
+                double sum = 0.0;
+                int v = s;
+                for (Edge e : p) {
+                    if (!(e.either() == v || e.other(e.either()) == v))
+                        throw new IllegalStateException("path from " + s + " to " + t + " is not connected");
+                    v = e.other(v);
+                    sum += e.getLatency();
+                }
+                if (v != t || Math.abs(sum - expected) > 1e-9 * expected)
+                    throw new IllegalStateException("unpacked path from " + s + " to " + t + " is not a shortest path");
+                settledCh += p.settled();
+            }
+            settledBi += b.settled();
+
+            if (q == 0 && p != null) {
+                StdOut.printf("%d to %d (%.8f)  ", s, t, p.latency());
+                for (Edge e : p) StdOut.print(e + "   ");
+                StdOut.println();
+                StdOut.println("Minimum Bandwidth: " + p.bandwidth());
+            }
+        }
+        StdOut.printf("%d queries: bidirectional %.3f ms/query (%d settled)   hierarchy %.1f us/query (%d settled)\n",
+                      queries, bi / 1e6 / queries, settledBi / queries, chTime / 1e3 / queries, settledCh / queries);
+    }
+}
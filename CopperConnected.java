@@ -1,7 +1,7 @@
 /******************************************************************************
  *  Compilation:  javac CC.java
  *  Execution:    java CC filename.txt
- *  Dependencies: Graph.java StdOut.java Queue.java
+ *  Dependencies: Graph.java StdOut.java IntStack.java QueryWorkspace.java IntBag.java
  *  Data files:   http://algs4.cs.princeton.edu/41graph/tinyG.txt
  *                http://algs4.cs.princeton.edu/41graph/mediumG.txt
  *                http://algs4.cs.princeton.edu/41graph/largeG.txt
@@ -19,13 +19,12 @@
  *  1 components
  *  0 1 2 3 4 5 6 7 8 9 10 ...
  *
- *  % java -Xss50m CC largeG.txt 
+ *  % java CC largeG.txt 
  *  1 components
  *  0 1 2 3 4 5 6 7 8 9 10 ...
  *
- *  Note: This implementation uses a recursive DFS. To avoid needing
- *        a potentially very large stack size, replace with a non-recurisve
- *        DFS ala NonrecursiveDFS.java.
+ *  Note: This implementation uses a nonrecursive DFS with an IntStack,
+ *        so it does not need a large thread stack size.
  *
  ******************************************************************************/
 
@@ -58,15 +57,15 @@
  *  @author Kevin Wayne
  */
 import dependencies.*;
-import java.util.Scanner;
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 
 public class CopperConnected {
-    private boolean[] marked;   // marked[v] = has vertex v been marked?
-    private int[] id;           // id[v] = id of connected component containing v
-    private int[] size;         // size[id] = number of vertices in given component
-    private int count;          // number of connected components
+    private final QueryWorkspace ws;    // marks the vertices visited so far, and holds the arrays below
+    private final int generation;       // the workspace generation of this computation
+    private final int V;
+    private final int[] id;             // id[v] = id of connected component containing v
+    private final int[] size;           // size[id] = number of vertices in given component
+    private int count;                  // number of connected components
 
     /**
      * Computes the connected components of the edge-weighted graph {@code G}.
@@ -74,30 +73,60 @@ public class CopperConnected {
      * @param G the edge-weighted graph
      */
     public CopperConnected(EdgeWeightedGraph G) {
-        marked = new boolean[G.V()];
-        id = new int[G.V()];
-        size = new int[G.V()];
+        this(G, new QueryWorkspace(G.V()));
+        ws.trim();
+    }
+
+    /**
+     * Computes the connected components of {@code G} using the arrays and
+     * stack of {@code ws}. The result is only valid until the next query on
+     * {@code ws} begins.
+     *
+     * @param  G the edge-weighted graph
+     * @param  ws the workspace, for at least {@code V} vertices
+     */
+    public CopperConnected(EdgeWeightedGraph G, QueryWorkspace ws) {
+        this.ws = ws;
+        this.V = G.V();
+        if (ws.V() < V)
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, graph has " + V);
+        this.generation = ws.begin();
+        id = ws.ints();
+        size = ws.counts();
         for (int v = 0; v < G.V(); v++) {
-            if (!marked[v]) {
+            if (!ws.marked(v)) {
+                size[count] = 0;
                 dfs(G, v);
                 count++;
             }
         }
     }
 
-    // depth-first search for an EdgeWeightedGraph
-    private void dfs(EdgeWeightedGraph G, int v) {
-        marked[v] = true;
-        id[v] = count;
-        size[count]++;
-        for (Edge e : G.adj(v)) {
-            int w = e.other(v);
-            if (!marked[w] && e.getType().compareTo("copper") == 0) {
-                dfs(G, w);
+    // depth-first search for an EdgeWeightedGraph, using an explicit stack so
+    // that long paths cannot overflow the call stack
+    private void dfs(EdgeWeightedGraph G, int s) {
+        IntStack stack = ws.stack();
+        stack.clear();
+        visit(s);
+        stack.push(s);
+        while (!stack.isEmpty()) {
+            int v = stack.pop();
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                if (!ws.marked(w) && e.getTypeCode() == MediaType.COPPER) {
+                    visit(w);
+                    stack.push(w);
+                }
             }
         }
     }
 
+    private void visit(int v) {
+        ws.mark(v);
+        id[v] = count;
+        size[count]++;
+    }
+
 
     /**
      * Returns the component id of the connected component containing vertex {@code v}.
@@ -129,6 +158,7 @@ public class CopperConnected {
      * @return the number of connected components in the graph {@code G}
      */
     public int count() {
+        ws.checkGeneration(generation);
         return count;
     }
 
@@ -169,8 +199,9 @@ public class CopperConnected {
     }
 
     // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    // and unless the workspace still holds this computation's results
     private void validateVertex(int v) {
-        int V = marked.length;
+        ws.checkGeneration(generation);
         if (v < 0 || v >= V)
             throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
     }
@@ -180,30 +211,10 @@ public class CopperConnected {
      *
      * @param args the command-line arguments
      */
-    public static void main(String[] args) throws FileNotFoundException {
-        Scanner reader = new Scanner(new File(args[0]));
-        
+    public static void main(String[] args) throws IOException {
         System.out.println("---Network Info---");
-        EdgeWeightedGraph g = new EdgeWeightedGraph(reader.nextInt()); // Set scanner to read in info from file
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
         System.out.println("# of Vertices: "+g.V()+"\n");
-        int v,w;
-        String type;
-        int bandwidth;
-        int length;
-
-        while(reader.hasNextLine()) {    // Reads in all data in from file, abiding by the predetermined format
-                   v = reader.nextInt();
-                   if (v < 0 || v >= g.V())
-                    throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (g.V()-1));
-                   w = reader.nextInt();
-                   if (w < 0 || w >= g.V())
-                    throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (g.V()-1));
-                type = reader.next();
-           bandwidth = reader.nextInt();
-              length = reader.nextInt();
-            System.out.println("V: "+v+"\nW: "+w+"\nEdge Type: "+type+"\nBandwidth: "+bandwidth+"\nLength: "+length+"\n");
-            g.addEdge(new Edge(v, w, type, bandwidth, length));
-        }
 
         CopperConnected cc = new CopperConnected(g);
 
@@ -214,18 +225,18 @@ public class CopperConnected {
         StdOut.println(m + " components");
 
         // compute list of vertices in each connected component
-        Queue<Integer>[] components = (Queue<Integer>[]) new Queue[m];
+        IntBag[] components = new IntBag[m];
         for (int i = 0; i < m; i++) {
-            components[i] = new Queue<Integer>();
+            components[i] = new IntBag();
         }
         for (int j = 0; j < g.V(); j++) {
-            components[cc.id(j)].enqueue(j);
+            components[cc.id(j)].add(j);
         }
 
         // print results
         for (int i = 0; i < m; i++) {
-            for (int j : components[i]) {
-                StdOut.print(j + " ");
+            for (int k = 0; k < components[i].size(); k++) {
+                StdOut.print(components[i].get(k) + " ");
             }
             StdOut.println();
         }
@@ -0,0 +1,431 @@
+/******************************************************************************
+ *  Compilation:  javac DeltaSteppingSP.java
+ *  Execution:    java DeltaSteppingSP input.txt [maxThreads] [delta]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java IntBag.java Stack.java
+ *                DijkstraSP.java GraphLoader.java StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Single-source lowest-latency tree computed with the parallel
+ *  delta-stepping algorithm. Running it checks the result against
+ *  DijkstraSP and times it on 1, 2, 4, ... up to maxThreads threads.
+ *
+ *  % java DeltaSteppingSP big_network.txt 8
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code DeltaSteppingSP} class computes the same shortest-paths tree
+ *  as {@link DijkstraSP}, with the latency of each cable as its weight, but
+ *  spreads the work over the threads of a fork-join pool.
+ *  <p>
+ *  Instead of settling one vertex at a time, <em>delta-stepping</em>
+ *  groups tentative distances into buckets of width &Delta; and settles a
+ *  whole bucket at once. Edges no longer than &Delta; are <em>light</em>:
+ *  relaxing them can put a vertex back into the current bucket, so they
+ *  are relaxed in rounds until the bucket stays empty. The remaining
+ *  <em>heavy</em> edges can only reach later buckets, so each is relaxed
+ *  once, after the bucket is done. Every round relaxes the edges of all
+ *  vertices in the bucket in parallel; distances are updated with a
+ *  compare-and-set on their bit patterns, which order the same way as the
+ *  nonnegative {@code double}s they encode. A &Delta; as small as the
+ *  shortest edge makes this Dijkstra's algorithm; a huge one makes it
+ *  Bellman-Ford. The default is the longest latency divided by the average
+ *  degree.
+ *  <p>
+ *  Each task owns one slice of the buckets and only adds to its own slice,
+ *  so insertion needs no locking; the slices are merged, without
+ *  duplicates, at the start of every round. Buckets are reused cyclically,
+ *  since no pending distance is more than one maximum edge latency beyond
+ *  the current bucket.
+ *  <p>
+ *  Once all distances are final, {@code edgeTo[v]} is chosen in parallel
+ *  as an edge <em>u</em>-<em>v</em> with
+ *  {@code distTo[u] + latency == distTo[v]}, so {@code distTo} and
+ *  {@code pathTo} mean exactly what they do for {@code DijkstraSP}. The
+ *  distances are identical up to floating-point rounding, and when several
+ *  paths tie the two classes may pick different ones.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class DeltaSteppingSP {
+    private static final int SEQUENTIAL_CUTOFF = 512;   // frontiers smaller than this are relaxed by one task
+    private static final long INFINITY = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+    private final EdgeWeightedGraph G;
+    private final int s;
+    private final double delta;
+    private final AtomicLongArray dist;     // bits of the tentative distance of each vertex
+    private final Edge[] edgeTo;
+    private final int slices;               // number of tasks, each with its own bucket slice
+    private final IntBag[][] buckets;       // buckets[k][b % B] = vertices task k put in bucket b
+    private final int B;                    // number of cyclic buckets
+    private int phases;                     // number of light-edge rounds
+
+    /**
+     * Computes a shortest-paths tree from {@code s} on the common fork-join
+     * pool, with the default bucket width.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @throws IllegalArgumentException if an edge latency is negative
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     */
+    public DeltaSteppingSP(EdgeWeightedGraph G, int s) {
+        this(G, s, defaultDelta(G), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes a shortest-paths tree from {@code s} on the given fork-join
+     * pool, with buckets of width {@code delta}.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  delta the bucket width, in seconds
+     * @param  pool the pool that runs the relaxations
+     * @throws IllegalArgumentException if an edge latency is negative
+     * @throws IllegalArgumentException unless {@code delta > 0}
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     */
+    public DeltaSteppingSP(EdgeWeightedGraph G, int s, double delta, ForkJoinPool pool) {
+        if (s < 0 || s >= G.V())
+            throw new IllegalArgumentException("vertex " + s + " is not between 0 and " + (G.V()-1));
+        if (!(delta > 0) || Double.isInfinite(delta))
+            throw new IllegalArgumentException("delta must be positive");
+        double maxLatency = 0.0;
+        for (Edge e : G.edges()) {
+            if (e.getLatency() < 0)
+                throw new IllegalArgumentException("edge " + e + " has negative weight");
+            maxLatency = Math.max(maxLatency, e.getLatency());
+        }
+
+        this.G = G;
+        this.s = s;
+        this.delta = delta;
+        int V = G.V();
+        dist = new AtomicLongArray(V);
+        for (int v = 0; v < V; v++)
+            dist.set(v, INFINITY);
+        edgeTo = new Edge[V];
+        slices = pool.getParallelism();
+        double span = Math.ceil(maxLatency / delta) + 2;
+        if (span > 1 << 20)
+            throw new IllegalArgumentException("delta " + delta + " is too small for edges of latency " + maxLatency);
+        B = (int) span;
+        buckets = new IntBag[slices][B];
+        for (int k = 0; k < slices; k++)
+            for (int b = 0; b < B; b++)
+                buckets[k][b] = new IntBag();
+
+        dist.set(s, Double.doubleToRawLongBits(0.0));
+        buckets[0][0].add(s);
+        search(pool);
+        pool.invoke(new Parents(0, V));
+        fixZeroLatencyParents();
+    }
+
+    // the longest latency divided by the average degree, or 1 if that is not positive
+    private static double defaultDelta(EdgeWeightedGraph G) {
+        double max = 0.0;
+        for (Edge e : G.edges())
+            max = Math.max(max, e.getLatency());
+        double degree = G.V() == 0 ? 0.0 : 2.0 * G.E() / G.V();
+        double delta = max / Math.max(1.0, degree);
+        return delta > 0 ? delta : 1.0;
+    }
+
+    private double distance(int v) {
+        return Double.longBitsToDouble(dist.get(v));
+    }
+
+    private long bucketOf(double d) {
+        return (long) (d / delta);
+    }
+
+    // the outer loop: settle buckets in increasing order until none has a vertex left
+    private void search(ForkJoinPool pool) {
+        int V = G.V();
+        int[] stamp = new int[V];               // stamp[v] == round: v already in this round's frontier
+        int[] settledIn = new int[V];           // settledIn[v] == bucket + 1: v already in this bucket's set
+        int round = 0, bucketStamp = 0;
+        IntBag frontier = new IntBag(), settled = new IntBag();
+        long current = 0;
+        while (true) {
+            bucketStamp++;
+            settled.clear();
+            while (true) {
+                round++;
+                collect(current, frontier, stamp, round);
+                if (frontier.size() == 0) break;
+                for (int j = 0; j < frontier.size(); j++) {
+                    int v = frontier.get(j);
+                    if (settledIn[v] != bucketStamp) {
+                        settledIn[v] = bucketStamp;
+                        settled.add(v);
+                    }
+                }
+                relaxAll(pool, frontier.toArray(), true);
+                phases++;
+            }
+            if (settled.size() > 0) relaxAll(pool, settled.toArray(), false);
+
+            // find the next bucket that holds anything, possibly stale
+            long next = -1;
+            for (long b = current + 1; b < current + B && next < 0; b++) {
+                int slot = (int) (b % B);
+                for (int k = 0; k < slices; k++)
+                    if (buckets[k][slot].size() > 0) { next = b; break; }
+            }
+            if (next < 0) return;
+            current = next;
+        }
+    }
+
+    // gathers the live, distinct vertices of bucket b from every slice into frontier, and empties the slices
+    private void collect(long b, IntBag frontier, int[] stamp, int round) {
+        frontier.clear();
+        int slot = (int) (b % B);
+        for (int k = 0; k < slices; k++) {
+            IntBag bag = buckets[k][slot];
+            for (int j = 0; j < bag.size(); j++) {
+                int v = bag.get(j);
+                if (stamp[v] != round && bucketOf(distance(v)) == b) {
+                    stamp[v] = round;
+                    frontier.add(v);
+                }
+            }
+            bag.clear();
+        }
+    }
+
+    // relaxes the light (or heavy) edges of every vertex in vertices, in parallel if there are many
+    private void relaxAll(ForkJoinPool pool, int[] vertices, boolean light) {
+        if (vertices.length < SEQUENTIAL_CUTOFF || slices == 1) {
+            relax(vertices, 0, vertices.length, light, 0);
+            return;
+        }
+        pool.invoke(new Relax(vertices, light, 0, slices));
+    }
+
+    // relaxes edges out of vertices[lo..hi), recording improved vertices in slice k
+    private void relax(int[] vertices, int lo, int hi, boolean light, int k) {
+        IntBag[] mine = buckets[k];
+        for (int j = lo; j < hi; j++) {
+            int v = vertices[j];
+            double dv = distance(v);
+            for (Edge e : G.adj(v)) {
+                double latency = e.getLatency();
+                if ((latency <= delta) != light) continue;
+                int w = e.other(v);
+                long bits = Double.doubleToRawLongBits(dv + latency);
+                long old = dist.get(w);
+                while (bits < old) {
+                    if (dist.compareAndSet(w, old, bits)) {
+                        mine[(int) (bucketOf(dv + latency) % B)].add(w);
+                        break;
+                    }
+                    old = dist.get(w);
+                }
+            }
+        }
+    }
+
+    // one task per bucket slice, each relaxing an equal share of the vertices
+    @SuppressWarnings("serial")
+    private final class Relax extends RecursiveAction {
+        private final int[] vertices;
+        private final boolean light;
+        private final int lo, hi;       // slices [lo, hi)
+
+        Relax(int[] vertices, boolean light, int lo, int hi) {
+            this.vertices = vertices;
+            this.light = light;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Relax(vertices, light, lo, mid), new Relax(vertices, light, mid, hi));
+                return;
+            }
+            int n = vertices.length;
+            relax(vertices, (int) ((long) n * lo / slices), (int) ((long) n * hi / slices), light, lo);
+        }
+    }
+
+    // picks edgeTo[v] for vertices [lo, hi) among the tight edges from strictly closer vertices
+    @SuppressWarnings("serial")
+    private final class Parents extends RecursiveAction {
+        private final int lo, hi;
+
+        Parents(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 4096) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Parents(lo, mid), new Parents(mid, hi));
+                return;
+            }
+            for (int v = lo; v < hi; v++) {
+                double dv = distance(v);
+                if (v == s || dv == Double.POSITIVE_INFINITY) continue;
+                for (Edge e : G.adj(v)) {
+                    double du = distance(e.other(v));
+                    if (du < dv && du + e.getLatency() == dv) {
+                        edgeTo[v] = e;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // a vertex reached only over zero-latency cables has no strictly closer parent;
+    // hang it off a neighbour at the same distance that already has one
+    private void fixZeroLatencyParents() {
+        IntStack stack = new IntStack();
+        boolean any = false;
+        for (int v = 0; v < G.V(); v++) {
+            if (v != s && edgeTo[v] == null && distance(v) != Double.POSITIVE_INFINITY) any = true;
+        }
+        if (!any) return;
+        for (int v = 0; v < G.V(); v++)
+            if (v == s || edgeTo[v] != null) stack.push(v);
+        while (!stack.isEmpty()) {
+            int v = stack.pop();
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                if (w != s && edgeTo[w] == null && e.getLatency() == 0.0 && distance(w) == distance(v)) {
+                    edgeTo[w] = e;
+                    stack.push(w);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the length of a shortest path from the source vertex {@code s} to vertex {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return the length of a shortest path from the source vertex {@code s} to vertex {@code v};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public double distTo(int v) {
+        validateVertex(v);
+        return distance(v);
+    }
+
+    /**
+     * Returns true if there is a path from the source vertex {@code s} to vertex {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return {@code true} if there is a path from the source vertex
+     *         {@code s} to vertex {@code v}; {@code false} otherwise
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public boolean hasPathTo(int v) {
+        validateVertex(v);
+        return distance(v) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from the source vertex {@code s} to vertex {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return a shortest path from the source vertex {@code s} to vertex {@code v}
+     *         as an iterable of edges, and {@code null} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public Iterable<Edge> pathTo(int v) {
+        validateVertex(v);
+        if (!hasPathTo(v)) return null;
+        Stack<Edge> path = new Stack<Edge>();
+        for (Edge e = edgeTo[v]; e != null; e = edgeTo[v]) {
+            path.push(e);
+            v = e.other(v);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the bucket width used by the search.
+     *
+     * @return the bucket width, in seconds
+     */
+    public double delta() {
+        return delta;
+    }
+
+    /**
+     * Returns the number of parallel light-edge rounds the search took. A
+     * smaller bucket width means more, shorter rounds.
+     *
+     * @return the number of light-edge rounds
+     */
+    public int phases() {
+        return phases;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        int V = edgeTo.length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Checks {@code DeltaSteppingSP} against {@code DijkstraSP} and times it
+     * with 1, 2, 4, ... threads, up to the given maximum.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double delta = args.length > 2 ? Double.parseDouble(args[2]) : defaultDelta(g);
+        StdRandom.setSeed(42);
+        int s = StdRandom.uniform(g.V());
+
+        long start = System.nanoTime();
+        DijkstraSP sp = new DijkstraSP(g, s);
+        StdOut.printf("source %d, delta %.3e s: DijkstraSP %.1f ms\n", s, delta, (System.nanoTime() - start) / 1e6);
+
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(2 * threads, maxThreads) : threads + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            new DeltaSteppingSP(g, s, delta, pool);                 // warm up
+            start = System.nanoTime();
+            DeltaSteppingSP ds = new DeltaSteppingSP(g, s, delta, pool);
+            double ms = (System.nanoTime() - start) / 1e6;
+            pool.shutdown();
+
+            for (int v = 0; v < g.V(); v++) {
+                double expected = sp.distTo(v);
+                if (sp.hasPathTo(v) != ds.hasPathTo(v) || Math.abs(expected - ds.distTo(v)) > 1e-12 * expected)
+                    throw new IllegalStateException("distances disagree at " + v);
+                if (!ds.hasPathTo(v)) continue;
+                double sum = 0.0;
+                int w = s;
+                for (Edge e : ds.pathTo(v)) {
+                    w = e.other(w);
+                    sum += e.getLatency();
+                }
+                if (w != v || Math.abs(sum - expected) > 1e-12 * expected)
+                    throw new IllegalStateException("path to " + v + " is not a shortest path");
+            }
+            StdOut.printf("%2d threads: %8.1f ms (%d light rounds)\n", threads, ms, ds.phases());
+        }
+    }
+}
@@ -1,7 +1,8 @@
 /******************************************************************************
  *  Compilation:  javac DijkstraSP.java
- *  Execution:    java DijkstraSP input.txt s
- *  Dependencies: EdgeWeightedDigraph.java IndexMinPQ.java Stack.java DirectedEdge.java
+ *  Execution:    java DijkstraSP input.txt [queries]
+ *  Dependencies: EdgeWeightedGraph.java DoubleIndexMinPQ.java Stack.java Edge.java
+ *                QueryWorkspace.java BandwidthIndex.java GraphLoader.java StdRandom.java
  *  Data files:   http://algs4.cs.princeton.edu/44sp/tinyEWD.txt
  *                http://algs4.cs.princeton.edu/44sp/mediumEWD.txt
  *                http://algs4.cs.princeton.edu/44sp/largeEWD.txt
@@ -15,17 +16,19 @@
  *  @editor Christian Jarani
  */
 import dependencies.*;
-import java.util.Scanner;
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 
 public class DijkstraSP {
-    private double[] distTo;          // distTo[v] = distance  of shortest s->v path
-    private Edge[] edgeTo;            // edgeTo[v] = last edge on shortest s->v path
-    private IndexMinPQ<Double> pq;    // priority queue of vertices
+    private static final double EPSILON = 1e-12;  // relative rounding slack for check()
+    private static final int ALL = -1;            // target of a full shortest-paths tree
 
-    private final double copperSpeed = 230000000;
-    private final double opticalSpeed = 200000000;
+    private final QueryWorkspace ws;  // holds the arrays below; entries count only for reached vertices
+    private final int generation;     // the workspace generation of this search
+    private final int V;
+    private final double[] distTo;    // distTo[v] = distance  of shortest s->v path
+    private final Edge[] edgeTo;      // edgeTo[v] = last edge on shortest s->v path
+    private final int[] bandwidthTo;  // bandwidthTo[v] = smallest bandwidth on edgeTo path s->v
+    private int settled;              // number of vertices removed from pq
 
     /**
      * Computes a shortest-paths tree from the source vertex {@code s} to every other
@@ -37,51 +40,234 @@ public class DijkstraSP {
      * @throws IllegalArgumentException unless {@code 0 <= s < V}
      */
     public DijkstraSP(EdgeWeightedGraph G, int s) {
-        for (Edge e : G.edges()) {
-            if (e.getBandwidth() < 0)
-                throw new IllegalArgumentException("edge " + e + " has negative weight");
+        this(G, s, new QueryWorkspace(G.V()));
+        ws.trim();      // the tree outlives the search; don't keep the queue alive with it
+    }
+
+    /**
+     * Computes a shortest-paths tree from the source vertex {@code s} to every
+     * other vertex, using the arrays and priority queue of {@code ws}. The
+     * result is only valid until the next query on {@code ws} begins.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  ws the workspace, for at least {@code V} vertices
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     */
+    public DijkstraSP(EdgeWeightedGraph G, int s, QueryWorkspace ws) {
+        this(G, null, 0, s, ALL, ws);
+    }
+
+    /**
+     * Computes a shortest path from the source vertex {@code s} to the target
+     * vertex {@code t} only. The search stops as soon as {@code t} is removed
+     * from the priority queue, so only vertices closer to {@code s} than
+     * {@code t} are settled.
+     * <p>
+     * Afterwards {@code distTo(t)}, {@code pathTo(t)} and {@code bottleneckTo(t)}
+     * are exact, as they are for every vertex settled before {@code t}; for
+     * the remaining vertices they describe the best path found so far.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public DijkstraSP(EdgeWeightedGraph G, int s, int t) {
+        this(G, s, t, new QueryWorkspace(G.V()));
+        ws.trim();
+    }
+
+    /**
+     * Computes a shortest path from the source vertex {@code s} to the target
+     * vertex {@code t} only, using the arrays and priority queue of
+     * {@code ws}. On a large graph the search touches only a small part of
+     * it, and so does resetting the workspace for the next query. The result
+     * is only valid until the next query on {@code ws} begins.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @param  ws the workspace, for at least {@code V} vertices
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public DijkstraSP(EdgeWeightedGraph G, int s, int t, QueryWorkspace ws) {
+        this(G, null, 0, s, validateTarget(t, G.V()), ws);
+    }
+
+    /**
+     * Computes a shortest-paths tree from the source vertex {@code s} that
+     * uses only cables of at least {@code minBandwidth} Mbps. Slower cables
+     * are skipped during relaxation without being looked at, thanks to the
+     * bandwidth order of {@code index}; the graph is not copied.
+     *
+     * @param  index the bandwidth index of the edge-weighted graph
+     * @param  minBandwidth the smallest bandwidth a cable may have
+     * @param  s the source vertex
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalStateException if the graph was modified after {@code index} was built
+     */
+    public DijkstraSP(BandwidthIndex index, int minBandwidth, int s) {
+        this(index, minBandwidth, s, new QueryWorkspace(index.V()));
+        ws.trim();
+    }
+
+    /**
+     * Computes a shortest-paths tree from the source vertex {@code s} that
+     * uses only cables of at least {@code minBandwidth} Mbps, using the arrays
+     * and priority queue of {@code ws}. The result is only valid until the
+     * next query on {@code ws} begins.
+     *
+     * @param  index the bandwidth index of the edge-weighted graph
+     * @param  minBandwidth the smallest bandwidth a cable may have
+     * @param  s the source vertex
+     * @param  ws the workspace, for at least {@code V} vertices
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalStateException if the graph was modified after {@code index} was built
+     */
+    public DijkstraSP(BandwidthIndex index, int minBandwidth, int s, QueryWorkspace ws) {
+        this(index.graph(), index, minBandwidth, s, ALL, ws);
+    }
+
+    /**
+     * Computes a lowest-latency path from {@code s} to {@code t} that uses
+     * only cables of at least {@code minBandwidth} Mbps, stopping as soon as
+     * {@code t} is settled.
+     *
+     * @param  index the bandwidth index of the edge-weighted graph
+     * @param  minBandwidth the smallest bandwidth a cable may have
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     * @throws IllegalStateException if the graph was modified after {@code index} was built
+     */
+    public DijkstraSP(BandwidthIndex index, int minBandwidth, int s, int t) {
+        this(index, minBandwidth, s, t, new QueryWorkspace(index.V()));
+        ws.trim();
+    }
+
+    /**
+     * Computes a lowest-latency path from {@code s} to {@code t} that uses
+     * only cables of at least {@code minBandwidth} Mbps, using the arrays and
+     * priority queue of {@code ws}. The result is only valid until the next
+     * query on {@code ws} begins.
+     *
+     * @param  index the bandwidth index of the edge-weighted graph
+     * @param  minBandwidth the smallest bandwidth a cable may have
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @param  ws the workspace, for at least {@code V} vertices
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     * @throws IllegalStateException if the graph was modified after {@code index} was built
+     */
+    public DijkstraSP(BandwidthIndex index, int minBandwidth, int s, int t, QueryWorkspace ws) {
+        this(index.graph(), index, minBandwidth, s, validateTarget(t, index.V()), ws);
+    }
+
+    // a full shortest-paths tree if t == ALL, else a point-to-point query;
+    // with an index, only cables of at least minBandwidth are relaxed
+    private DijkstraSP(EdgeWeightedGraph G, BandwidthIndex index, int minBandwidth, int s, int t, QueryWorkspace ws) {
+        if (index != null && !index.isCurrent())
+            throw new IllegalStateException("graph was modified after the bandwidth index was built");
+        if (t == ALL && index == null) {
+            G.forEachEdge((id, e) -> {
+                if (e.getBandwidth() < 0)
+                    throw new IllegalArgumentException("edge " + e + " has negative weight");
+            });
         }
+        this.ws = ws;
+        this.V = G.V();
+        this.generation = ws.begin();
+        distTo = ws.doubles();
+        edgeTo = ws.edges();
+        bandwidthTo = ws.ints();
+
+        search(G, index, minBandwidth, s, t);
 
-        distTo = new double[G.V()];
-        edgeTo = new Edge[G.V()];
+        // check optimality conditions
+        assert t != ALL || check(G, s, index == null ? 0 : minBandwidth);
+    }
 
+    // t, unless it is not a vertex
+    private static int validateTarget(int t, int V) {
+        if (t < 0 || t >= V)
+            throw new IllegalArgumentException("vertex " + t + " is not between 0 and " + (V-1));
+        return t;
+    }
+
+    // relax vertices in order of distance from s, stopping once t (if any) is settled;
+    // with an index, each vertex's cables are scanned fastest first down to minBandwidth
+    private void search(EdgeWeightedGraph G, BandwidthIndex index, int minBandwidth, int s, int t) {
         validateVertex(s);
+        if (ws.V() < V)
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, graph has " + V);
 
-        for (int v = 0; v < G.V(); v++)
-            distTo[v] = Double.POSITIVE_INFINITY;
-            distTo[s] = 0.0;
+        ws.reach(s);
+        distTo[s] = 0.0;
+        edgeTo[s] = null;
+        bandwidthTo[s] = Integer.MAX_VALUE;
 
-        // relax vertices in order of distance from s
-        pq = new IndexMinPQ<Double>(G.V());
+        DoubleIndexMinPQ pq = ws.pq();
         pq.insert(s, distTo[s]);
         while (!pq.isEmpty()) {
             int v = pq.delMin();
-            for (Edge e : G.adj(v))
-                relax(e);
+            settled++;
+            if (v == t) break;
+            if (index == null) {
+                for (Edge e : G.adj(v))
+                    relax(pq, e, v);
+            }
+            else {
+                for (int i = index.begin(v), end = index.end(v); i < end && index.bandwidth(i) >= minBandwidth; i++)
+                    relax(pq, index.edge(i), v);
+            }
         }
-
-        // check optimality conditions
-        assert check(G, s);
     }
 
-    // relax edge e and update pq if changed
-    private void relax(Edge e) {
-        int v = e.either(), w = e.other(v);
-        double speed = 0;
+    // relax edge e out of vertex v and update pq if changed
+    private void relax(DoubleIndexMinPQ pq, Edge e, int v) {
+        int w = e.other(v);
+        double latency = e.getLatency();
+        if (latency < 0)
+            throw new IllegalArgumentException("edge " + e + " has negative weight");
 
-             if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-        else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
-
-        double latency = e.getLength() / speed;
-
-        if (distTo[w] > distTo[v] + latency) {
+        if (!ws.reached(w)) {
+            ws.reach(w);
+            distTo[w] = distTo[v] + latency;
+            edgeTo[w] = e;
+            bandwidthTo[w] = Math.min(bandwidthTo[v], e.getBandwidth());
+            pq.insert(w, distTo[w]);
+        }
+        else if (distTo[w] > distTo[v] + latency) {
             distTo[w] = distTo[v] + latency;
             edgeTo[w] = e;
+            bandwidthTo[w] = Math.min(bandwidthTo[v], e.getBandwidth());
             if (pq.contains(w)) pq.decreaseKey(w, distTo[w]);
             else                pq.insert(w, distTo[w]);
         }
     }
 
+    // distance to v, or infinity if the search never reached it
+    private double dist(int v) {
+        return ws.reached(v) ? distTo[v] : Double.POSITIVE_INFINITY;
+    }
+
+    // last edge on the path to v, or null if v is the source or was never reached
+    private Edge edge(int v) {
+        return ws.reached(v) ? edgeTo[v] : null;
+    }
+
     /**
      * Returns the length of a shortest path from the source vertex {@code s} to vertex {@code v}.
      * @param  v the destination vertex
@@ -91,7 +277,7 @@ public class DijkstraSP {
      */
     public double distTo(int v) {
         validateVertex(v);
-        return distTo[v];
+        return dist(v);
     }
 
     /**
@@ -104,7 +290,7 @@ public class DijkstraSP {
      */
     public boolean hasPathTo(int v) {
         validateVertex(v);
-        return distTo[v] < Double.POSITIVE_INFINITY;
+        return dist(v) < Double.POSITIVE_INFINITY;
     }
 
     /**
@@ -119,43 +305,77 @@ public class DijkstraSP {
         validateVertex(v);
         if (!hasPathTo(v)) return null;
         Stack<Edge> path = new Stack<Edge>();
-        for (Edge e = edgeTo[v]; e != null; e = edgeTo[e.either()]) {
+        for (Edge e = edge(v); e != null; e = edge(v)) {
             path.push(e);
+            v = e.other(v);
         }
         return path;
     }
 
+    /**
+     * Returns the last edge on a shortest path from the source vertex
+     * {@code s} to vertex {@code v}; its other endpoint is the next vertex
+     * on the way back to {@code s}.
+     *
+     * @param  v the destination vertex
+     * @return the last edge on a shortest path from {@code s} to {@code v};
+     *         {@code null} if {@code v} is the source or there is no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public Edge edgeTo(int v) {
+        validateVertex(v);
+        return edge(v);
+    }
 
-    // check optimality conditions:
-    // (i) for all edges e:            distTo[e.to()] <= distTo[e.from()] + e.weight()
-    // (ii) for all edge e on the SPT: distTo[e.to()] == distTo[e.from()] + e.weight()
-    private boolean check(EdgeWeightedGraph G, int s) {
-        
-        double speed = 1.00;
-        double latency;
+    /**
+     * Returns the smallest bandwidth of any cable on the path returned by
+     * {@code pathTo(v)}, that is, the bandwidth available along it.
+     *
+     * @param  v the destination vertex
+     * @return the bottleneck bandwidth of the shortest path from the source
+     *         vertex {@code s} to vertex {@code v}; {@code Integer.MAX_VALUE}
+     *         if {@code v} is the source, and {@code 0} if there is no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public int bottleneckTo(int v) {
+        validateVertex(v);
+        return ws.reached(v) ? bandwidthTo[v] : 0;
+    }
 
-        // check that edge weights are nonnegative
-        for (Edge e : G.edges()) {
+    /**
+     * Returns the number of vertices the search removed from its priority
+     * queue. This is {@code V} (less any unreachable vertices) for a full
+     * shortest-paths tree, and usually far fewer for a point-to-point query.
+     *
+     * @return the number of settled vertices
+     */
+    public int settled() {
+        return settled;
+    }
 
-                 if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-            else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
 
-            latency = e.getLength() / speed;
-            
-            if (latency < 0) {
+    // check optimality conditions over the cables of at least minBandwidth,
+    // up to a relative rounding error of EPSILON (FixedPointDijkstraSP checks them exactly):
+    // (i) for all edges e = v-w:            distTo[w] <= distTo[v] + e.weight()
+    // (ii) for all edge e = v-w on the SPT: distTo[w] == distTo[v] + e.weight()
+    private boolean check(EdgeWeightedGraph G, int s, int minBandwidth) {
+
+        // check that edge weights are nonnegative
+        for (Edge e : G.edges()) {
+            if (e.getLatency() < 0) {
                 System.err.println("negative edge weight detected");
                 return false;
             }
         }
 
         // check that distTo[v] and edgeTo[v] are consistent
-        if (distTo[s] != 0.0 || edgeTo[s] != null) {
+        if (dist(s) != 0.0 || edge(s) != null) {
             System.err.println("distTo[s] and edgeTo[s] inconsistent");
             return false;
         }
         for (int v = 0; v < G.V(); v++) {
             if (v == s) continue;
-            if (edgeTo[v] == null && distTo[v] != Double.POSITIVE_INFINITY) {
+            if (edge(v) == null && dist(v) != Double.POSITIVE_INFINITY) {
                 System.err.println("distTo[] and edgeTo[] inconsistent");
                 return false;
             }
@@ -164,13 +384,9 @@ public class DijkstraSP {
         // check that all edges e = v->w satisfy distTo[w] <= distTo[v] + e.weight()
         for (int v = 0; v < G.V(); v++) {
             for (Edge e : G.adj(v)) {
-                     
-                     if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-                else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
-                latency = e.getLength() / speed;
-                
+                if (e.getBandwidth() < minBandwidth) continue;
                 int w = e.other(v);
-                if (distTo[v] + latency < distTo[w]) {
+                if (dist(v) + e.getLatency() < dist(w) * (1 - EPSILON)) {
                     System.err.println("edge " + e + " not relaxed");
                     return false;
                 }
@@ -179,16 +395,14 @@ public class DijkstraSP {
 
         // check that all edges e = v->w on SPT satisfy distTo[w] == distTo[v] + e.weight()
         for (int w = 0; w < G.V(); w++) {
-            if (edgeTo[w] == null) continue;
-            Edge e = edgeTo[w];
-            int v = e.either();
-
-                 if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-            else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
-            latency = e.getLength() / speed;
-
-            if (w != e.other(v)) return false;
-            if (distTo[v] + latency != distTo[w]) {
+            Edge e = edge(w);
+            if (e == null) continue;
+            if (e.getBandwidth() < minBandwidth) {
+                System.err.println("edge " + e + " on shortest path is below " + minBandwidth + " Mbps");
+                return false;
+            }
+            int v = e.other(w);
+            if (Math.abs(dist(v) + e.getLatency() - dist(w)) > EPSILON * dist(w)) {
                 System.err.println("edge " + e + " on shortest path not tight");
                 return false;
             }
@@ -197,39 +411,22 @@ public class DijkstraSP {
     }
 
     // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    // and unless the workspace still holds this search's results
     private void validateVertex(int v) {
-        int V = distTo.length;
+        ws.checkGeneration(generation);
         if (v < 0 || v >= V)
             throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
     }
 
     /**
-     * Unit tests the {@code DijkstraSP} data type.
+     * Unit tests the {@code DijkstraSP} data type. With a number of queries,
+     * also times point-to-point queries between nearby vertices against
+     * full shortest-paths trees.
      *
      * @param args the command-line arguments
      */
-    public static void main(String[] args) throws FileNotFoundException {
-        Scanner reader = new Scanner(new File(args[0]));
-        
-        EdgeWeightedGraph g = new EdgeWeightedGraph(reader.nextInt()); // Set scanner to read in info from file
-        int v,w;
-        String type;
-        int bandwidth;
-        double length;
-
-        while(reader.hasNextLine()) {    // Reads in all data in from file, abiding by the predetermined format
-            v = reader.nextInt();
-            if (v < 0 || v >= g.V())
-                throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (g.V()-1));
-            w = reader.nextInt();
-            if (w < 0 || w >= g.V())
-                throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (g.V()-1));
-                type = reader.next();
-           bandwidth = reader.nextInt();
-              length = reader.nextDouble();
-            System.out.println("V: "+v+"\nW: "+w+"\nEdge Type: "+type+"\nBandwidth: "+bandwidth+"\nLength: "+length+"\n");
-            g.addEdge(new Edge(v, w, type, bandwidth, length));
-        }
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
         int s = 0;      // Instead of inputting vertices from the command line, just edit them here. This is the source vertex
         int d = 3;      // Same with this one. This is the destination vertex
 
@@ -243,8 +440,36 @@ public class DijkstraSP {
                     StdOut.print(e + "   ");
                 }
                 StdOut.println();
+                StdOut.println("bottleneck bandwidth " + sp.bottleneckTo(d));
         }
         else StdOut.printf("%d to %d         no path\n", s, d);
+
+        if (args.length < 2) return;
+        int queries = Integer.parseInt(args[1]);
+        StdRandom.setSeed(42);
+        long full = 0, p2p = 0, settledFull = 0, settledP2p = 0;
+        for (int q = 0; q < queries; q++) {
+            // pick a target a few hops away from a random source
+            int from = StdRandom.uniform(g.V()), to = from;
+            for (int hop = 0; hop < 4; hop++) {
+                int k = StdRandom.uniform(Math.max(1, g.degree(to)));
+                for (Edge e : g.adj(to)) if (k-- == 0) { to = e.other(to); break; }
+            }
+
+            long start = System.nanoTime();
+            DijkstraSP a = new DijkstraSP(g, from);
+            full += System.nanoTime() - start;
+            start = System.nanoTime();
+            DijkstraSP b = new DijkstraSP(g, from, to);
+            p2p += System.nanoTime() - start;
+
+            if (a.distTo(to) != b.distTo(to) || a.bottleneckTo(to) != b.bottleneckTo(to))
+                throw new IllegalStateException("point-to-point query disagrees from " + from + " to " + to);
+            settledFull += a.settled();
+            settledP2p += b.settled();
+        }
+        StdOut.printf("%d queries: full tree %.2f ms/query (%d settled)   point-to-point %.2f ms/query (%d settled)\n",
+                      queries, full / 1e6 / queries, settledFull / queries, p2p / 1e6 / queries, settledP2p / queries);
     }
 
 }
\ No newline at end of file
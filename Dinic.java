@@ -0,0 +1,419 @@
+/******************************************************************************
+ *  Compilation:  javac Dinic.java
+ *  Execution:    java Dinic V E [layers]
+ *                java Dinic input.txt [pairs]
+ *  Dependencies: FlowNetwork.java FlowEdge.java IntQueue.java QueryWorkspace.java
+ *                FordFulkerson.java EdgeWeightedGraph.java GraphLoader.java
+ *                StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Dinic's algorithm for computing a max flow and a min cut: a level graph
+ *  built by breadth-first search, then a blocking flow along it, found
+ *  with current-arc pointers.
+ *
+ *  % java Dinic 800 8000 8
+ *  % java Dinic big_network.txt 5
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code Dinic} class represents a data type for computing a
+ *  <em>maximum st-flow</em> and <em>minimum st-cut</em> in a
+ *  {@link FlowNetwork}. It is a drop-in replacement for
+ *  {@link FordFulkerson}: it takes the same network, leaves the same
+ *  maximum flow value on its edges, and reports the same {@code value()}
+ *  and {@code inCut()}. The minimum cut is the set of vertices reachable
+ *  from <em>s</em> in the final residual network, which is the same for
+ *  every maximum flow.
+ *  <p>
+ *  Where {@code FordFulkerson} runs a breadth-first search for every
+ *  augmenting path, this implementation runs one per <em>phase</em>. The
+ *  search labels every vertex with its distance from <em>s</em> in the
+ *  residual network, and the phase then pushes flow along paths whose
+ *  distances increase by one at every step until no such path is left (a
+ *  blocking flow). Each vertex keeps a <em>current arc</em>: the position
+ *  in its adjacency list before which every edge is known to be saturated
+ *  or to lead to a dead end, so that no edge is looked at twice in a phase
+ *  unless it carried flow. The distance from <em>s</em> to <em>t</em>
+ *  grows with every phase, so there are at most <em>V</em> phases.
+ *  <p>
+ *  The constructor takes time proportional to <em>E V</em><sup>2</sup> in
+ *  the worst case, and to <em>E</em> sqrt(<em>E</em>) on unit-capacity
+ *  networks; in practice it runs much faster than that, and than
+ *  {@code FordFulkerson} on dense layered networks. It uses extra space
+ *  proportional to <em>V</em> + <em>E</em> for an array copy of the
+ *  adjacency lists, which the current arcs index into.
+ *  Afterwards, the {@code inCut()} and {@code value()} methods take
+ *  constant time.
+ *  <p>
+ *  If the capacities and initial flow values are all integers, then this
+ *  implementation guarantees to compute an integer-valued maximum flow.
+ *  If the capacities and floating-point numbers, then floating-point
+ *  roundoff error can accumulate.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+
+public class Dinic {
+    private static final double FLOATING_POINT_EPSILON = 1E-11;
+
+    private final int V;              // number of vertices
+    private final QueryWorkspace ws;  // marked v iff v has a level, plus the arrays and the queue
+    private final int[] offset;       // edges of v are arc[offset[v]]..arc[offset[v+1]-1]
+    private final FlowEdge[] arc;     // the adjacency lists of the network, as one array
+    private final int[] level;        // level[v] = residual distance from s, if v is marked; -1 once v is a dead end
+    private final int[] current;      // current[v] = current arc of v in this phase
+    private final FlowEdge[] edgeTo;  // edgeTo[v] = last edge on the path being advanced to v
+    private int generation;           // the workspace generation of the last breadth-first search
+    private int phases;               // number of breadth-first searches
+    private double value;             // current value of max flow
+
+    /**
+     * Compute a maximum flow and minimum cut in the network {@code G}
+     * from vertex {@code s} to vertex {@code t}.
+     *
+     * @param  G the flow network
+     * @param  s the source vertex
+     * @param  t the sink vertex
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if initial flow is infeasible
+     */
+    public Dinic(FlowNetwork G, int s, int t) {
+        this(G, s, t, new QueryWorkspace(G.V()));
+        ws.trim();
+    }
+
+    /**
+     * Compute a maximum flow and minimum cut in the network {@code G}
+     * from vertex {@code s} to vertex {@code t}, using the marks, arrays
+     * and queue of {@code ws}. The minimum cut is only valid until the
+     * next query on {@code ws} begins.
+     *
+     * @param  G the flow network
+     * @param  s the source vertex
+     * @param  t the sink vertex
+     * @param  ws the workspace, for at least {@code V} vertices
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if initial flow is infeasible
+     * @throws IllegalArgumentException if {@code ws} holds fewer than {@code V} vertices
+     */
+    public Dinic(FlowNetwork G, int s, int t, QueryWorkspace ws) {
+        V = G.V();
+        this.ws = ws;
+        if (ws.V() < V)
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, network has " + V);
+        if (s < 0 || s >= V)
+            throw new IllegalArgumentException("vertex " + s + " is not between 0 and " + (V-1));
+        if (t < 0 || t >= V)
+            throw new IllegalArgumentException("vertex " + t + " is not between 0 and " + (V-1));
+        if (s == t)               throw new IllegalArgumentException("Source equals sink");
+        if (!isFeasible(G, s, t)) throw new IllegalArgumentException("Initial flow is infeasible");
+        level = ws.ints();
+        current = ws.counts();
+        edgeTo = ws.flowEdges();
+
+        // copy the adjacency lists into one array, so that a current arc is an index
+        offset = new int[V + 1];
+        int slots = 0;
+        for (int v = 0; v < V; v++) {
+            offset[v] = slots;
+            for (FlowEdge e : G.adj(v)) slots++;
+        }
+        offset[V] = slots;
+        arc = new FlowEdge[slots];
+        for (int v = 0, i = 0; v < V; v++)
+            for (FlowEdge e : G.adj(v)) arc[i++] = e;
+
+        // while t is reachable in the residual network, push a blocking flow
+        value = excess(G, t);
+        while (hasLevelGraph(s, t)) {
+            phases++;
+            value += blockingFlow(s, t);
+        }
+
+        // check optimality conditions
+        assert check(G, s, t);
+    }
+
+    /**
+     * Returns the value of the maximum flow.
+     *
+     * @return the value of the maximum flow
+     */
+    public double value()  {
+        return value;
+    }
+
+    /**
+     * Returns true if the specified vertex is on the {@code s} side of the mincut.
+     *
+     * @param  v vertex
+     * @return {@code true} if vertex {@code v} is on the {@code s} side of the micut;
+     *         {@code false} otherwise
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public boolean inCut(int v)  {
+        validate(v);
+        return ws.marked(v);
+    }
+
+    /**
+     * Returns the number of phases (level graphs) the computation took.
+     *
+     * @return the number of phases
+     */
+    public int phases() {
+        return phases;
+    }
+
+    // throw an IllegalArgumentException if v is outside prescibed range
+    // and an IllegalStateException if the workspace has moved on to another query
+    private void validate(int v)  {
+        ws.checkGeneration(generation);
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    // label vertices with their residual distance from s, and reset the
+    // current arcs; returns whether t is reachable. level[] and current[]
+    // are only read when v is marked, so a new workspace generation clears
+    // them in constant time. When t is not reachable, the marks are the
+    // source side of the minimum cut.
+    private boolean hasLevelGraph(int s, int t) {
+        generation = ws.begin();
+
+        // breadth-first search, which can stop at the level of t: vertices
+        // further away are on no shortest augmenting path
+        IntQueue queue = ws.queue();
+        queue.enqueue(s);
+        ws.mark(s);
+        level[s] = 0;
+        current[s] = offset[s];
+        while (!queue.isEmpty()) {
+            int v = queue.dequeue();
+            if (ws.marked(t) && level[v] >= level[t]) break;
+            for (int i = offset[v]; i < offset[v+1]; i++) {
+                FlowEdge e = arc[i];
+                int w = e.other(v);
+                if (e.residualCapacityTo(w) > 0 && !ws.marked(w)) {
+                    ws.mark(w);
+                    level[w] = level[v] + 1;
+                    current[w] = offset[w];
+                    queue.enqueue(w);
+                }
+            }
+        }
+        return ws.marked(t);
+    }
+
+    // push flow along level-increasing paths from s to t until there are
+    // none; returns the amount pushed. The search advances along current
+    // arcs, and retreats from a dead end after ruling it out for the rest
+    // of the phase, so it needs no recursion however long the paths are.
+    private double blockingFlow(int s, int t) {
+        double pushed = 0.0;
+        int v = s;
+        while (true) {
+            if (v == t) {
+                double bottle = Double.POSITIVE_INFINITY;
+                for (int w = t; w != s; w = edgeTo[w].other(w))
+                    bottle = Math.min(bottle, edgeTo[w].residualCapacityTo(w));
+
+                // augment, and continue from the saturated edge closest to s
+                int restart = s;
+                for (int w = t; w != s; w = edgeTo[w].other(w)) {
+                    edgeTo[w].addResidualFlowTo(w, bottle);
+                    if (edgeTo[w].residualCapacityTo(w) <= 0) restart = edgeTo[w].other(w);
+                }
+                pushed += bottle;
+                v = restart;
+                continue;
+            }
+
+            // advance along the current arc of v, or skip it
+            boolean advanced = false;
+            for (int end = offset[v+1]; current[v] < end; current[v]++) {
+                FlowEdge e = arc[current[v]];
+                int w = e.other(v);
+                if (ws.marked(w) && level[w] == level[v] + 1 && e.residualCapacityTo(w) > 0) {
+                    edgeTo[w] = e;
+                    v = w;
+                    advanced = true;
+                    break;
+                }
+            }
+            if (advanced) continue;
+
+            // dead end: rule v out and retreat past the arc that led to it
+            if (v == s) return pushed;
+            level[v] = -1;
+            v = edgeTo[v].other(v);
+            current[v]++;
+        }
+    }
+
+    // return excess flow at vertex v
+    private double excess(FlowNetwork G, int v) {
+        double excess = 0.0;
+        for (FlowEdge e : G.adj(v)) {
+            if (v == e.from()) excess -= e.flow();
+            else               excess += e.flow();
+        }
+        return excess;
+    }
+
+    // return excess flow at vertex v
+    private boolean isFeasible(FlowNetwork G, int s, int t) {
+
+        // check that capacity constraints are satisfied
+        for (int v = 0; v < G.V(); v++) {
+            for (FlowEdge e : G.adj(v)) {
+                if (e.flow() < -FLOATING_POINT_EPSILON || e.flow() > e.capacity() + FLOATING_POINT_EPSILON) {
+                    System.err.println("Edge does not satisfy capacity constraints: " + e);
+                    return false;
+                }
+            }
+        }
+
+        // check that net flow into a vertex equals zero, except at source and sink
+        if (Math.abs(value + excess(G, s)) > FLOATING_POINT_EPSILON) {
+            System.err.println("Excess at source = " + excess(G, s));
+            System.err.println("Max flow         = " + value);
+            return false;
+        }
+        if (Math.abs(value - excess(G, t)) > FLOATING_POINT_EPSILON) {
+            System.err.println("Excess at sink   = " + excess(G, t));
+            System.err.println("Max flow         = " + value);
+            return false;
+        }
+        for (int v = 0; v < G.V(); v++) {
+            if (v == s || v == t) continue;
+            else if (Math.abs(excess(G, v)) > FLOATING_POINT_EPSILON) {
+                System.err.println("Net flow out of " + v + " doesn't equal zero");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // check optimality conditions
+    private boolean check(FlowNetwork G, int s, int t) {
+
+        // check that flow is feasible
+        if (!isFeasible(G, s, t)) {
+            System.err.println("Flow is infeasible");
+            return false;
+        }
+
+        // check that s is on the source side of min cut and that t is not on source side
+        if (!inCut(s)) {
+            System.err.println("source " + s + " is not on source side of min cut");
+            return false;
+        }
+        if (inCut(t)) {
+            System.err.println("sink " + t + " is on source side of min cut");
+            return false;
+        }
+
+        // check that value of min cut = value of max flow
+        double mincutValue = 0.0;
+        for (int v = 0; v < G.V(); v++) {
+            for (FlowEdge e : G.adj(v)) {
+                if ((v == e.from()) && inCut(e.from()) && !inCut(e.to()))
+                    mincutValue += e.capacity();
+            }
+        }
+
+        if (Math.abs(mincutValue - value) > FLOATING_POINT_EPSILON) {
+            System.err.println("Max flow value = " + value + ", min cut value = " + mincutValue);
+            return false;
+        }
+
+        return true;
+    }
+
+    // a copy of G with zero flow on every edge
+    private static FlowNetwork copy(FlowNetwork G) {
+        FlowNetwork H = new FlowNetwork(G.V());
+        for (FlowEdge e : G.edges())
+            H.addEdge(new FlowEdge(e.from(), e.to(), e.capacity()));
+        return H;
+    }
+
+    // s = 0, then layers of width vertices each, then t = V-1; every vertex
+    // of a layer feeds every vertex of the next, like an aggregation tier
+    private static FlowNetwork layered(int layers, int width) {
+        FlowNetwork G = new FlowNetwork(layers * width + 2);
+        int t = layers * width + 1;
+        for (int j = 0; j < width; j++) {
+            G.addEdge(new FlowEdge(0, 1 + j, 100 * (1 + StdRandom.uniform(100))));
+            G.addEdge(new FlowEdge(1 + (layers - 1) * width + j, t, 100 * (1 + StdRandom.uniform(100))));
+        }
+        for (int l = 0; l + 1 < layers; l++)
+            for (int i = 0; i < width; i++)
+                for (int j = 0; j < width; j++)
+                    G.addEdge(new FlowEdge(1 + l * width + i, 1 + (l + 1) * width + j, 1 + StdRandom.uniform(100)));
+        return G;
+    }
+
+    // the flow network NetworkAnalysis builds: one edge per cable, with its bandwidth as capacity
+    private static FlowNetwork cables(EdgeWeightedGraph g) {
+        FlowNetwork f = new FlowNetwork(g.V());
+        g.forEachEdge((id, e) -> f.addEdge(new FlowEdge(e.either(), e.other(e.either()), e.getBandwidth())));
+        return f;
+    }
+
+    // run both algorithms on copies of G, check that they agree and print the times
+    private static void compare(String name, FlowNetwork G, int s, int t) {
+        FlowNetwork a = copy(G), b = copy(G);
+        long start = System.nanoTime();
+        FordFulkerson ff = new FordFulkerson(a, s, t);
+        double ffMs = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        Dinic dinic = new Dinic(b, s, t);
+        double dinicMs = (System.nanoTime() - start) / 1e6;
+
+        if (Math.abs(ff.value() - dinic.value()) > FLOATING_POINT_EPSILON)
+            throw new IllegalStateException(name + ": max flow " + dinic.value() + " instead of " + ff.value());
+        for (int v = 0; v < G.V(); v++)
+            if (ff.inCut(v) != dinic.inCut(v))
+                throw new IllegalStateException(name + ": min cuts disagree at " + v);
+        StdOut.printf("%-32s flow %10.0f   FordFulkerson %9.1f ms   Dinic %8.1f ms (%d phases)\n",
+                      name, dinic.value(), ffMs, dinicMs, dinic.phases());
+    }
+
+    /**
+     * Benchmarks {@code Dinic} against {@code FordFulkerson} and checks that
+     * they agree: either on a random network with {@code V} vertices and
+     * {@code E} edges and a dense layered network of about {@code V}
+     * vertices, or on random pairs of the cable network in a graph file.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        StdRandom.setSeed(42);
+        if (args[0].matches("\\d+")) {
+            int V = Integer.parseInt(args[0]);
+            int E = Integer.parseInt(args[1]);
+            int layers = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+            compare("random, " + V + " vertices, " + E + " edges", new FlowNetwork(V, E), 0, V - 1);
+            int width = Math.max(1, V / layers);
+            compare(layers + " layers of " + width, layered(layers, width), 0, layers * width + 1);
+        }
+        else {
+            EdgeWeightedGraph g = GraphLoader.load(args[0]);
+            int pairs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+            FlowNetwork f = cables(g);
+            for (int q = 0; q < pairs; q++) {
+                int s = StdRandom.uniform(g.V()), t = StdRandom.uniform(g.V());
+                if (s != t) compare(s + " to " + t, f, s, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/******************************************************************************
+ *  Compilation:  javac DynamicSP.java
+ *  Execution:    java DynamicSP input.txt [updates] [source]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java MediaType.java
+ *                QueryWorkspace.java DoubleIndexMinPQ.java IntStack.java
+ *                Stack.java DijkstraSP.java GraphLoader.java StdRandom.java
+ *                StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  A shortest-paths tree that is repaired in place when cables are added,
+ *  removed or re-typed, instead of being recomputed. Running it applies
+ *  random updates, checks the tree against a fresh DijkstraSP and reports
+ *  how many vertices each kind of update touched.
+ *
+ *  % java DynamicSP big_network.txt 1000
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code DynamicSP} class maintains a lowest-latency tree from a
+ *  source vertex <em>s</em> in an {@link EdgeWeightedGraph} while cables
+ *  come and go. The graph must be modified through {@link #addEdge(Edge)},
+ *  {@link #removeEdge(Edge)} and {@link #replaceEdge(Edge, Edge)}, which
+ *  update the graph and then repair {@code distTo}/{@code edgeTo} touching
+ *  only the vertices whose paths actually change:
+ *  <ul>
+ *  <li>Adding a cable <em>v</em>-<em>w</em> that shortens the path to
+ *      <em>w</em> starts a Dijkstra search from <em>w</em> alone, which
+ *      settles exactly the vertices that get closer to <em>s</em>.
+ *  <li>Removing a cable that is not in the tree changes nothing. Removing
+ *      a tree cable detaches the subtree below it; each vertex of the
+ *      subtree is seeded with its best latency through a neighbour outside
+ *      it, and a Dijkstra search restricted to the subtree settles the
+ *      rest. Vertices outside the subtree keep their paths.
+ *  <li>Re-typing a cable (a change of type, bandwidth or length, since an
+ *      {@link Edge} is immutable) adds the new cable before removing the
+ *      old one, so that a cable that got faster never detaches a subtree.
+ *  </ul>
+ *  Each update returns the number of vertices it re-settled, and
+ *  {@link #touched()} and {@link #updates()} keep running totals.
+ *  Modifying the graph in any other way makes this class throw an
+ *  {@code IllegalStateException}.
+ *  <p>
+ *  Bottleneck bandwidths along the tree paths are repaired together with
+ *  the latencies.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.ArrayList;
+
+public class DynamicSP {
+    private static final double EPSILON = 1e-12;  // relative rounding slack for check()
+
+    private final EdgeWeightedGraph G;
+    private final int s;
+    private final double[] distTo;    // distTo[v] = latency of lowest-latency s->v path
+    private final Edge[] edgeTo;      // edgeTo[v] = last edge on that path
+    private final int[] bandwidthTo;  // bandwidthTo[v] = smallest bandwidth on that path
+    private final QueryWorkspace ws;  // detached-subtree marks and the repair priority queue
+    private int version;              // graph version the tree describes
+    private long touched;             // vertices re-settled by all updates
+    private int updates;              // number of updates
+
+    /**
+     * Computes a lowest-latency tree from {@code s} in {@code G}, to be
+     * kept up to date as {@code G} changes.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     */
+    public DynamicSP(EdgeWeightedGraph G, int s) {
+        validateVertex(s, G.V());
+        this.G = G;
+        this.s = s;
+        int V = G.V();
+        distTo = new double[V];
+        edgeTo = new Edge[V];
+        bandwidthTo = new int[V];
+        ws = new QueryWorkspace(V);
+        for (int v = 0; v < V; v++)
+            distTo[v] = Double.POSITIVE_INFINITY;
+        distTo[s] = 0.0;
+        bandwidthTo[s] = Integer.MAX_VALUE;
+
+        ws.begin();
+        DoubleIndexMinPQ pq = ws.pq();
+        pq.insert(s, 0.0);
+        settle(pq);
+        version = G.version();
+
+        assert check();
+    }
+
+    /**
+     * Adds the cable {@code e} to the graph and repairs the tree.
+     *
+     * @param  e the cable
+     * @return the number of vertices whose path changed
+     * @throws IllegalArgumentException if {@code e} has negative weight
+     * @throws IllegalArgumentException unless both endpoints are between {@code 0} and {@code V-1}
+     * @throws IllegalStateException if the graph was modified behind this tree's back
+     */
+    public int addEdge(Edge e) {
+        checkVersion();
+        if (e.getLatency() < 0)
+            throw new IllegalArgumentException("edge " + e + " has negative weight");
+        G.addEdge(e);
+        version = G.version();
+
+        ws.begin();
+        DoubleIndexMinPQ pq = ws.pq();
+        int v = e.either(), w = e.other(v);
+        relax(pq, e, v);
+        relax(pq, e, w);
+        int count = settle(pq);
+        updates++;
+        touched += count;
+
+        assert check();
+        return count;
+    }
+
+    /**
+     * Removes the cable {@code e} from the graph and repairs the tree.
+     *
+     * @param  e the cable
+     * @return the number of vertices whose path was recomputed: the size of
+     *         the subtree below {@code e} if it was a tree cable, else {@code 0}
+     * @throws IllegalArgumentException if {@code e} is not in the graph
+     * @throws IllegalStateException if the graph was modified behind this tree's back
+     */
+    public int removeEdge(Edge e) {
+        checkVersion();
+        G.removeEdge(e);
+        version = G.version();
+        updates++;
+
+        int v = e.either(), w = e.other(v);
+        int root;
+        if      (edgeTo[v] == e) root = v;
+        else if (edgeTo[w] == e) root = w;
+        else                     return 0;
+
+        // detach the subtree below e: its vertices are the ones whose
+        // tree edge leads to a vertex already in it
+        ws.begin();
+        int[] subtree = ws.ints();
+        int n = 0;
+        IntStack stack = ws.stack();
+        ws.mark(root);
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int x = stack.pop();
+            subtree[n++] = x;
+            for (Edge f : G.adj(x)) {
+                int y = f.other(x);
+                if (edgeTo[y] == f && !ws.marked(y)) {
+                    ws.mark(y);
+                    stack.push(y);
+                }
+            }
+        }
+
+        // reattach each vertex of the subtree through its best neighbour outside it
+        DoubleIndexMinPQ pq = ws.pq();
+        for (int i = 0; i < n; i++) {
+            int x = subtree[i];
+            distTo[x] = Double.POSITIVE_INFINITY;
+            edgeTo[x] = null;
+            bandwidthTo[x] = 0;
+            for (Edge f : G.adj(x)) {
+                int y = f.other(x);
+                if (ws.marked(y) || distTo[y] == Double.POSITIVE_INFINITY) continue;
+                if (distTo[y] + f.getLatency() < distTo[x]) {
+                    distTo[x] = distTo[y] + f.getLatency();
+                    edgeTo[x] = f;
+                    bandwidthTo[x] = Math.min(bandwidthTo[y], f.getBandwidth());
+                }
+            }
+            if (edgeTo[x] != null) pq.insert(x, distTo[x]);
+        }
+        settle(pq);
+        touched += n;
+
+        assert check();
+        return n;
+    }
+
+    /**
+     * Replaces the cable {@code old} with {@code e}, for example after a
+     * cable was re-typed or re-measured, and repairs the tree.
+     *
+     * @param  old the cable to remove
+     * @param  e the cable to add
+     * @return the number of vertices whose path was recomputed
+     * @throws IllegalArgumentException if {@code old} is not in the graph
+     * @throws IllegalArgumentException if {@code e} has negative weight
+     * @throws IllegalStateException if the graph was modified behind this tree's back
+     */
+    public int replaceEdge(Edge old, Edge e) {
+        checkVersion();
+        if (!contains(old))
+            throw new IllegalArgumentException("edge " + old + " is not in the graph");
+        int count = addEdge(e) + removeEdge(old);
+        updates--;
+        return count;
+    }
+
+    private boolean contains(Edge e) {
+        for (Edge f : G.adj(e.either()))
+            if (f.equals(e)) return true;
+        return false;
+    }
+
+    // relax edge e out of vertex v and update pq if changed
+    private void relax(DoubleIndexMinPQ pq, Edge e, int v) {
+        int w = e.other(v);
+        double latency = e.getLatency();
+        if (latency < 0)
+            throw new IllegalArgumentException("edge " + e + " has negative weight");
+        if (distTo[w] > distTo[v] + latency) {
+            distTo[w] = distTo[v] + latency;
+            edgeTo[w] = e;
+            bandwidthTo[w] = Math.min(bandwidthTo[v], e.getBandwidth());
+            if (pq.contains(w)) pq.decreaseKey(w, distTo[w]);
+            else                pq.insert(w, distTo[w]);
+        }
+    }
+
+    // Dijkstra from whatever pq holds; returns the number of vertices settled
+    private int settle(DoubleIndexMinPQ pq) {
+        int count = 0;
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            count++;
+            for (Edge e : G.adj(v))
+                relax(pq, e, v);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the latency of a lowest-latency path from {@code s} to {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return the latency of a lowest-latency path from {@code s} to {@code v};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws IllegalStateException if the graph was modified behind this tree's back
+     */
+    public double distTo(int v) {
+        checkVersion();
+        validateVertex(v, G.V());
+        return distTo[v];
+    }
+
+    /**
+     * Returns true if there is a path from {@code s} to {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return {@code true} if there is a path from {@code s} to {@code v};
+     *         {@code false} otherwise
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws IllegalStateException if the graph was modified behind this tree's back
+     */
+    public boolean hasPathTo(int v) {
+        return distTo(v) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a lowest-latency path from {@code s} to {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return a lowest-latency path from {@code s} to {@code v} as an
+     *         iterable of edges, and {@code null} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws IllegalStateException if the graph was modified behind this tree's back
+     */
+    public Iterable<Edge> pathTo(int v) {
+        if (!hasPathTo(v)) return null;
+        Stack<Edge> path = new Stack<Edge>();
+        for (Edge e = edgeTo[v]; e != null; e = edgeTo[v]) {
+            path.push(e);
+            v = e.other(v);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the smallest bandwidth of any cable on {@code pathTo(v)}.
+     *
+     * @param  v the destination vertex
+     * @return the bottleneck bandwidth of the path from {@code s} to {@code v};
+     *         {@code Integer.MAX_VALUE} if {@code v} is the source, and
+     *         {@code 0} if there is no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws IllegalStateException if the graph was modified behind this tree's back
+     */
+    public int bottleneckTo(int v) {
+        return hasPathTo(v) ? bandwidthTo[v] : 0;
+    }
+
+    /**
+     * Returns the total number of vertices re-settled by all updates.
+     *
+     * @return the number of vertices touched by updates
+     */
+    public long touched() {
+        return touched;
+    }
+
+    /**
+     * Returns the number of updates applied.
+     *
+     * @return the number of updates
+     */
+    public int updates() {
+        return updates;
+    }
+
+    // throw an IllegalStateException if the graph changed other than through this class
+    private void checkVersion() {
+        if (G.version() != version)
+            throw new IllegalStateException("graph was modified outside DynamicSP");
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private static void validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    // check optimality conditions, as DijkstraSP does, plus the bottlenecks
+    private boolean check() {
+        if (distTo[s] != 0.0 || edgeTo[s] != null) {
+            System.err.println("distTo[s] and edgeTo[s] inconsistent");
+            return false;
+        }
+        for (int v = 0; v < G.V(); v++) {
+            if (v == s) continue;
+            if ((edgeTo[v] == null) != (distTo[v] == Double.POSITIVE_INFINITY)) {
+                System.err.println("distTo[] and edgeTo[] inconsistent at " + v);
+                return false;
+            }
+        }
+        for (int v = 0; v < G.V(); v++) {
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                if (distTo[v] + e.getLatency() < distTo[w] * (1 - EPSILON)) {
+                    System.err.println("edge " + e + " not relaxed");
+                    return false;
+                }
+            }
+        }
+        for (int w = 0; w < G.V(); w++) {
+            Edge e = edgeTo[w];
+            if (e == null) continue;
+            int v = e.other(w);
+            if (Math.abs(distTo[v] + e.getLatency() - distTo[w]) > EPSILON * distTo[w]) {
+                System.err.println("edge " + e + " on shortest path not tight");
+                return false;
+            }
+            if (bandwidthTo[w] != Math.min(bandwidthTo[v], e.getBandwidth())) {
+                System.err.println("bottleneck at " + w + " is stale");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies random cable additions, removals of tree and non-tree
+     * cables, and re-typings, comparing the repaired tree with a fresh
+     * {@code DijkstraSP} along the way, and reports the vertices touched
+     * per kind of update.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int s = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int V = g.V();
+
+        long start = System.nanoTime();
+        DynamicSP sp = new DynamicSP(g, s);
+        double buildMs = (System.nanoTime() - start) / 1e6;
+
+        // cables to remove or re-type, drawn up front so edge ids need not be rebuilt per update
+        StdRandom.setSeed(42);
+        Edge[] sample = new Edge[g.E()];
+        g.forEachEdge((id, e) -> sample[id] = e);
+        StdRandom.shuffle(sample);
+        ArrayList<Edge> pool = new ArrayList<Edge>();
+        for (int i = 0; i < Math.min(sample.length, n); i++)
+            pool.add(sample[i]);
+
+        String[] kinds = { "add", "remove", "cut tree edge", "re-type" };
+        long[] count = new long[kinds.length], total = new long[kinds.length], max = new long[kinds.length];
+        long[] nanos = new long[kinds.length];
+        int checks = 0;
+        for (int u = 0; u < n; u++) {
+            int kind = StdRandom.uniform(kinds.length);
+            int touched;
+            if (kind == 0) {
+                int v = StdRandom.uniform(V), w = StdRandom.uniform(V);
+                byte type = StdRandom.bernoulli(0.5) ? MediaType.OPTICAL : MediaType.COPPER;
+                Edge e = new Edge(v, w, type, StdRandom.bernoulli(0.5) ? 100 : 10000, 1 + StdRandom.uniform(100));
+                start = System.nanoTime();
+                touched = sp.addEdge(e);
+                pool.add(e);
+            }
+            else if (kind == 2) {
+                int v = StdRandom.uniform(V);
+                Edge e = v == s ? null : sp.edgeTo[v];
+                if (e == null) { u--; continue; }
+                start = System.nanoTime();
+                touched = sp.removeEdge(e);
+                pool.remove(e);
+            }
+            else {
+                if (pool.isEmpty()) { u--; continue; }
+                Edge e = pool.remove(pool.size() - 1);
+                if (kind == 1) {
+                    start = System.nanoTime();
+                    touched = sp.removeEdge(e);
+                }
+                else {
+                    int v = e.either();
+                    byte type = e.getTypeCode() == MediaType.OPTICAL ? MediaType.COPPER : MediaType.OPTICAL;
+                    Edge retyped = new Edge(v, e.other(v), type, e.getBandwidth(), e.getLength());
+                    start = System.nanoTime();
+                    touched = sp.replaceEdge(e, retyped);
+                    pool.add(0, retyped);
+                }
+            }
+            nanos[kind] += System.nanoTime() - start;
+            count[kind]++;
+            total[kind] += touched;
+            max[kind] = Math.max(max[kind], touched);
+
+            // compare with a tree computed from scratch every so often
+            if (u % Math.max(1, n / 10) == 0 || u == n - 1) {
+                DijkstraSP fresh = new DijkstraSP(g, s);
+                for (int v = 0; v < V; v++) {
+                    double expected = fresh.distTo(v);
+                    if (expected != sp.distTo(v) && Math.abs(expected - sp.distTo(v)) > EPSILON * expected)
+                        throw new IllegalStateException("repaired tree disagrees at " + v + ": " + sp.distTo(v)
+                                                        + " instead of " + expected);
+                }
+                checks++;
+            }
+        }
+
+        start = System.nanoTime();
+        new DijkstraSP(g, s);
+        double freshMs = (System.nanoTime() - start) / 1e6;
+        StdOut.printf("%d vertices, %d cables: initial tree %.1f ms, recomputing it %.1f ms; %d updates checked %d times\n",
+                      V, g.E(), buildMs, freshMs, n, checks);
+        for (int k = 0; k < kinds.length; k++) {
+            if (count[k] == 0) continue;
+            StdOut.printf("  %-14s %5d updates: %9.1f vertices touched on average, %7d at most, %8.3f ms each\n",
+                          kinds[k], count[k], (double) total[k] / count[k], max[k], nanos[k] / 1e6 / count[k]);
+        }
+    }
+}
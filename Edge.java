@@ -1,7 +1,7 @@
 /******************************************************************************
  *  Compilation:  javac Edge.java
  *  Execution:    java Edge
- *  Dependencies: StdOut.java
+ *  Dependencies: MediaType.java StdOut.java
  *
  *  Immutable bandwidthed edge.
  *
@@ -22,13 +22,16 @@
  *  @author Kevin Wayne
  */
 import dependencies.*;
+import java.util.Locale;
 public class Edge implements Comparable<Edge> { 
 
     private final int v;
     private final int w;
-    private final String type;
+    private final byte type;          // cable type code, see MediaType
     private final int bandwidth;
     private final double length;
+    private final double latency;     // length / speed of the cable type, fixed at construction
+    private final long latencyTicks;  // the same latency in whole ticks, see MediaType.ticks
 
     /**
      * Initializes an edge between vertices {@code v} and {@code w} of
@@ -40,20 +43,47 @@ public class Edge implements Comparable<Edge> {
      * @throws IllegalArgumentException if either {@code v} or {@code w} 
      *         is a negative integer
      * @throws IllegalArgumentException if {@code bandwidth} is {@code NaN}
+     * @throws IllegalArgumentException if {@code type} is not a registered {@link MediaType}
      */
     public Edge(int v, int w, String type, int bandwidth, double length) {
+        this(v, w, MediaType.code(type), bandwidth, length);
+    }
+
+    /**
+     * Initializes an edge between vertices {@code v} and {@code w} whose
+     * cable type is given by its {@link MediaType} code.
+     *
+     * @param  v one vertex
+     * @param  w the other vertex
+     * @param  type the cable type code
+     * @param  bandwidth the bandwidth of this edge
+     * @param  length the length of this edge
+     * @throws IllegalArgumentException if either {@code v} or {@code w}
+     *         is a negative integer
+     * @throws IllegalArgumentException if {@code type} is not a registered code
+     */
+    public Edge(int v, int w, byte type, int bandwidth, double length) {
         if (v < 0) throw new IllegalArgumentException("vertex index must be a nonnegative integer");
         if (w < 0) throw new IllegalArgumentException("vertex index must be a nonnegative integer");
-        if (type.compareTo("copper") != 0 && type.compareTo("optical") != 0)
-            throw new IllegalArgumentException("type must be copper or optical");
         this.v = v;
         this.w = w;
         this.type = type;
         this.bandwidth = bandwidth;
         this.length = length;
+        this.latency = length / MediaType.speed(type);
+        this.latencyTicks = MediaType.ticks(type, length);
     }
 
     public String getType() {
+        return MediaType.name(type);
+    }
+
+    /**
+     * Returns the {@link MediaType} code of this edge's cable type.
+     *
+     * @return the cable type code of this edge
+     */
+    public byte getTypeCode() {
         return type;
     }
 
@@ -70,6 +100,26 @@ public class Edge implements Comparable<Edge> {
         return length;
     }
 
+    /**
+     * Returns the time a packet takes to cross this edge: its length divided
+     * by the speed of its cable type, computed once when the edge is created.
+     *
+     * @return the latency of this edge, in seconds
+     */
+    public double getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the latency of this edge in fixed point, as a whole number of
+     * ticks of {@code 1 / MediaType.TICKS_PER_SECOND} seconds.
+     *
+     * @return the latency of this edge, in ticks
+     */
+    public long getLatencyTicks() {
+        return latencyTicks;
+    }
+
 
 
     /**
@@ -116,7 +166,7 @@ public class Edge implements Comparable<Edge> {
      * @return a string representation of this edge
      */
     public String toString() {
-        return String.format("%d-%d %s %d %.2f", v, w, type, bandwidth, length);
+        return String.format(Locale.ROOT, "%d-%d %s %d %.2f", v, w, getType(), bandwidth, length);
     }
 
     /**
@@ -26,8 +26,9 @@
  *  The {@code EdgeWeightedGraph} class represents an edge-weighted
  *  graph of vertices named 0 through <em>V</em> – 1, where each
  *  undirected edge is of type {@link Edge} and has a real-valued weight.
- *  It supports the following two primary operations: add an edge to the graph,
- *  iterate over all of the edges incident to a vertex. It also provides
+ *  It supports the following primary operations: add an edge to the graph,
+ *  remove an edge from the graph, and iterate over all of the edges
+ *  incident to a vertex. It also provides
  *  methods for returning the number of vertices <em>V</em> and the number
  *  of edges <em>E</em>. Parallel edges and self-loops are permitted.
  *  By convention, a self-loop <em>v</em>-<em>v</em> appears in the
@@ -38,7 +39,10 @@
  *  is a vertex-indexed array of {@link Bag} objects.
  *  All operations take constant time (in the worst case) except
  *  iterating over the edges incident to a given vertex, which takes
- *  time proportional to the number of such edges.
+ *  time proportional to the number of such edges, and removing an edge,
+ *  which takes time proportional to the degrees of its endpoints.
+ *  For an immutable, array-based representation of the same graph, see
+ *  {@link CSRGraph}.
  *  <p>
  *  For additional documentation,
  *  see <a href="http://algs4.cs.princeton.edu/43mst">Section 4.3</a> of
@@ -48,12 +52,21 @@
  *  @author Kevin Wayne
  */
 import dependencies.*;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 public class EdgeWeightedGraph {
     private static final String NEWLINE = System.getProperty("line.separator");
 
     private final int V;
     private int E;
     private Bag<Edge>[] adj;
+    private volatile int version;   // bumped by every modification, see version()
+
+    // edges() in order, indexed by edge id; built on demand, discarded by addEdge() and removeEdge()
+    private volatile Edge[] edgeArray;
+    private volatile List<Edge> edgeList;
     
     /**
      * Initializes an empty edge-weighted graph with {@code V} vertices and 0 edges.
@@ -118,6 +131,39 @@ public class EdgeWeightedGraph {
         }
     } */
 
+    /**
+     * Initializes an edge-weighted graph from prebuilt adjacency lists, as
+     * stored in a {@link GraphSnapshot}. The edges incident on {@code v} are
+     * {@code edges[adjEdge[i]]} for {@code adjOffset[v] <= i < adjOffset[v+1]},
+     * in the order {@code adj(v)} will iterate them.
+     *
+     * @param  V the number of vertices
+     * @param  edges the edges, indexed by edge id
+     * @param  adjOffset the start of each vertex's run in {@code adjEdge}
+     * @param  adjEdge the edge ids of all adjacency lists, concatenated
+     * @throws IllegalArgumentException if the arrays are inconsistent or an
+     *         endpoint is not between {@code 0} and {@code V-1}
+     */
+    EdgeWeightedGraph(int V, Edge[] edges, int[] adjOffset, int[] adjEdge) {
+        this(V);
+        if (adjOffset.length != V + 1 || adjOffset[0] != 0 || adjOffset[V] != 2 * edges.length
+                || adjEdge.length != 2 * edges.length)
+            throw new IllegalArgumentException("adjacency offsets do not match " + edges.length + " edges");
+        for (Edge e : edges) {
+            validateVertex(e.either());
+            validateVertex(e.other(e.either()));
+        }
+        for (int v = 0; v < V; v++) {
+            if (adjOffset[v] > adjOffset[v+1])
+                throw new IllegalArgumentException("adjacency offsets must be nondecreasing");
+            // Bag.add() prepends, so add in reverse to preserve the stored order
+            for (int i = adjOffset[v+1] - 1; i >= adjOffset[v]; i--) {
+                adj[v].add(edges[adjEdge[i]]);
+            }
+        }
+        this.E = edges.length;
+    }
+
     /**
      * Initializes a new edge-weighted graph that is a deep copy of {@code G}.
      *
@@ -129,7 +175,7 @@ public class EdgeWeightedGraph {
         for (int v = 0; v < G.V(); v++) {
             // reverse so that adjacency list is in same order as original
             Stack<Edge> reverse = new Stack<Edge>();
-            for (Edge e : G.adj[v]) {
+            for (Edge e : G.adj(v)) {
                 reverse.push(e);
             }
             for (Edge e : reverse) {
@@ -177,6 +223,58 @@ public class EdgeWeightedGraph {
         adj[v].add(e);
         adj[w].add(e);
         E++;
+        version++;
+        edgeArray = null;
+        edgeList = null;
+    }
+
+    /**
+     * Removes the undirected edge {@code e} from this edge-weighted graph.
+     * If {@code e} was added more than once, one copy is removed. This takes
+     * time proportional to the degrees of its endpoints.
+     *
+     * @param  e the edge
+     * @throws IllegalArgumentException unless both endpoints are between {@code 0} and {@code V-1}
+     * @throws IllegalArgumentException if {@code e} is not in this graph
+     */
+    public void removeEdge(Edge e) {
+        int v = e.either();
+        int w = e.other(v);
+        validateVertex(v);
+        validateVertex(w);
+        if (!adj[v].remove(e))
+            throw new IllegalArgumentException("edge " + e + " is not in the graph");
+        adj[w].remove(e);
+        E--;
+        version++;
+        edgeArray = null;
+        edgeList = null;
+    }
+
+    /**
+     * Returns the modification count of this graph. It changes every time
+     * an edge is added or removed, so anything computed from the graph (such as the
+     * trees held by a {@link ShortestPathTreeCache}) can tell whether it is
+     * still current by comparing the version it was computed at.
+     *
+     * @return the number of modifications made to this graph
+     */
+    public int version() {
+        return version;
+    }
+
+    /**
+     * Returns the sum of the latencies of all edges in this graph. Tables
+     * saved to disk for a graph, such as {@link Landmarks} and
+     * {@link AllPairsLatency} files, store it as a cheap check that they are
+     * loaded against the graph they were computed from.
+     *
+     * @return the sum of the edge latencies, added in edge id order
+     */
+    public double fingerprint() {
+        double[] sum = new double[1];
+        forEachEdge((id, e) -> sum[0] += e.getLatency());
+        return sum[0];
     }
 
     /**
@@ -207,25 +305,125 @@ public class EdgeWeightedGraph {
      * Returns all edges in this edge-weighted graph.
      * To iterate over the edges in this edge-weighted graph, use foreach notation:
      * {@code for (Edge e : G.edges())}.
+     * <p>
+     * The edges are listed in order of edge id (see {@link #edge(int)}). The
+     * list is built once and shared by later calls until the next
+     * {@code addEdge()} or {@code removeEdge()}, so repeated calls do not allocate.
      *
-     * @return all edges in this edge-weighted graph, as an iterable
+     * @return all edges in this edge-weighted graph, as an unmodifiable list
      */
     public Iterable<Edge> edges() {
-        Bag<Edge> list = new Bag<Edge>();
-        for (int v = 0; v < V; v++) {
+        List<Edge> list = edgeList;
+        if (list == null) {
+            list = Collections.unmodifiableList(Arrays.asList(edgeArray()));
+            edgeList = list;
+        }
+        return list;
+    }
+
+    /**
+     * Returns the edge with id {@code id}. Edge ids run from {@code 0}
+     * through {@code E-1} in the order {@link #edges()} lists the edges,
+     * and stay valid until the next {@code addEdge()} or {@code removeEdge()}.
+     *
+     * @param  id the edge id
+     * @return the edge with id {@code id}
+     * @throws IllegalArgumentException unless {@code 0 <= id < E}
+     */
+    public Edge edge(int id) {
+        Edge[] edges = edgeArray();
+        if (id < 0 || id >= edges.length)
+            throw new IllegalArgumentException("edge id " + id + " is not between 0 and " + (edges.length-1));
+        return edges[id];
+    }
+
+    /**
+     * Calls {@code visitor} on every edge, in order of edge id, without
+     * allocating.
+     *
+     * @param  visitor the callback
+     */
+    public void forEachEdge(EdgeVisitor visitor) {
+        Edge[] edges = edgeArray();
+        for (int id = 0; id < edges.length; id++)
+            visitor.visit(id, edges[id]);
+    }
+
+    /**
+     * Calls {@code visitor} on the edges with ids {@code from} through
+     * {@code to - 1}, in order, without allocating.
+     *
+     * @param  from the first edge id
+     * @param  to one past the last edge id
+     * @param  visitor the callback
+     * @throws IllegalArgumentException unless {@code 0 <= from <= to <= E}
+     */
+    public void forEachEdge(int from, int to, EdgeVisitor visitor) {
+        Edge[] edges = edgeArray();
+        if (from < 0 || from > to || to > edges.length)
+            throw new IllegalArgumentException("edge range [" + from + ", " + to + ") is not within [0, " + edges.length + ")");
+        for (int id = from; id < to; id++)
+            visitor.visit(id, edges[id]);
+    }
+
+    /**
+     * The callback for {@link #forEachEdge(EdgeVisitor)}.
+     */
+    public interface EdgeVisitor {
+
+        /**
+         * Visits one edge.
+         *
+         * @param id the id of the edge
+         * @param e the edge
+         */
+        void visit(int id, Edge e);
+    }
+
+    // returns the cached edge array, building it if an edge was added or removed since the last call
+    private Edge[] edgeArray() {
+        Edge[] edges = edgeArray;
+        if (edges != null) return edges;
+        edges = new Edge[E()];
+        int n = edges.length;
+        // filled from the back, matching the order the Bag-based edges() used to return
+        for (int v = 0; v < V(); v++) {
             int selfLoops = 0;
             for (Edge e : adj(v)) {
                 if (e.other(v) > v) {
-                    list.add(e);
+                    edges[--n] = e;
                 }
                 // only add one copy of each self loop (self loops will be consecutive)
                 else if (e.other(v) == v) {
-                    if (selfLoops % 2 == 0) list.add(e);
+                    if (selfLoops % 2 == 0) edges[--n] = e;
                     selfLoops++;
                 }
             }
         }
-        return list;
+        edgeArray = edges;
+        return edges;
+    }
+
+    /**
+     * Writes this graph to the named file in the {@link GraphSnapshot} format.
+     *
+     * @param  filename the name of the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(String filename) throws IOException {
+        GraphSnapshot.write(this, filename);
+    }
+
+    /**
+     * Opens a graph previously written with {@link #writeSnapshot(String)}.
+     *
+     * @param  filename the name of the snapshot file
+     * @return the edge-weighted graph stored in the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    public static EdgeWeightedGraph openSnapshot(String filename) throws IOException {
+        return GraphSnapshot.open(filename);
     }
 
     /**
@@ -237,10 +435,10 @@ public class EdgeWeightedGraph {
      */
     public String toString() {
         StringBuilder s = new StringBuilder();
-        s.append(V + " " + E + NEWLINE);
-        for (int v = 0; v < V; v++) {
+        s.append(V() + " " + E() + NEWLINE);
+        for (int v = 0; v < V(); v++) {
             s.append(v + ": ");
-            for (Edge e : adj[v]) {
+            for (Edge e : adj(v)) {
                 s.append(e + "  ");
             }
             s.append(NEWLINE);
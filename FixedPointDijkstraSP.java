@@ -0,0 +1,374 @@
+/******************************************************************************
+ *  Compilation:  javac FixedPointDijkstraSP.java
+ *  Execution:    java FixedPointDijkstraSP input.txt [sources]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java MediaType.java RadixHeap.java
+ *                Stack.java DijkstraSP.java IndexMinPQ.java GraphLoader.java
+ *                StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Dijkstra's algorithm over integer (picosecond) latencies, with a radix
+ *  heap as the frontier. Running it builds full shortest-paths trees from
+ *  random sources and times them against DijkstraSP and a Dijkstra driven
+ *  by IndexMinPQ<Double>.
+ *
+ *  % java FixedPointDijkstraSP big_network.txt 10
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code FixedPointDijkstraSP} class solves the same single-source
+ *  lowest-latency problem as {@link DijkstraSP}, but measures latency in
+ *  whole ticks ({@link Edge#getLatencyTicks()}) instead of seconds. A cable's
+ *  latency is its length divided by one of a handful of propagation
+ *  speeds, so rounding it once to the picosecond loses nothing that
+ *  matters, and from then on every sum is exact.
+ *  <p>
+ *  Integer keys that only grow let the frontier be a {@link RadixHeap}
+ *  rather than a binary heap: inserting is constant time, and there is
+ *  no <em>decrease-key</em>; a vertex whose distance improves is inserted
+ *  again and the stale copy is skipped when it comes out. Exact sums also
+ *  mean the optimality conditions can be checked with {@code ==}.
+ *  <p>
+ *  {@code distTo(v)} reports seconds for comparison with {@code DijkstraSP};
+ *  it can differ from it by at most half a tick per edge on the path.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class FixedPointDijkstraSP {
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    private long[] distTo;            // distTo[v] = ticks of shortest s->v path, or INFINITY
+    private Edge[] edgeTo;            // edgeTo[v] = last edge on shortest s->v path; null if only distances are kept
+    private int[] bandwidthTo;        // bandwidthTo[v] = smallest bandwidth on edgeTo path s->v
+    private RadixHeap pq;             // frontier, possibly holding stale copies of a vertex
+    private int settled;              // number of vertices settled
+
+    /**
+     * Computes a shortest-paths tree from the source vertex {@code s} to every other
+     * vertex in the edge-weighted graph {@code G}.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @throws IllegalArgumentException if an edge latency is negative
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     */
+    public FixedPointDijkstraSP(EdgeWeightedGraph G, int s) {
+        allocate(G.V());
+        search(G, s, -1);
+
+        // check optimality conditions
+        assert check(G, s);
+    }
+
+    /**
+     * Computes a shortest path from the source vertex {@code s} to the target
+     * vertex {@code t} only, stopping as soon as {@code t} is settled.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @throws IllegalArgumentException if an edge scanned by the search has negative latency
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public FixedPointDijkstraSP(EdgeWeightedGraph G, int s, int t) {
+        if (t < 0 || t >= G.V())
+            throw new IllegalArgumentException("vertex " + t + " is not between 0 and " + (G.V()-1));
+        allocate(G.V());
+        search(G, s, t);
+    }
+
+    /**
+     * Computes the latencies, in ticks, of shortest paths from the source
+     * vertex {@code s} to every other vertex into the caller's array, reusing
+     * the caller's heap, so that a search from each of many sources allocates
+     * nothing. Only distances are kept: {@code pathTo()} and
+     * {@code bottleneckTo()} are not available.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  distTo receives the latency to each vertex in ticks, or
+     *         {@code Long.MAX_VALUE} if unreachable
+     * @param  pq the heap to search with; cleared first
+     * @throws IllegalArgumentException if an edge latency is negative
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code distTo.length == V}
+     */
+    public FixedPointDijkstraSP(EdgeWeightedGraph G, int s, long[] distTo, RadixHeap pq) {
+        if (distTo.length != G.V())
+            throw new IllegalArgumentException("distance array has length " + distTo.length + ", not " + G.V());
+        this.distTo = distTo;
+        this.pq = pq;
+        search(G, s, -1);
+    }
+
+    private void allocate(int V) {
+        distTo = new long[V];
+        edgeTo = new Edge[V];
+        bandwidthTo = new int[V];
+        pq = new RadixHeap();
+    }
+
+    // settle vertices in order of distance from s, stopping once t (if any) is settled
+    private void search(EdgeWeightedGraph G, int s, int t) {
+        validateVertex(s);
+
+        Arrays.fill(distTo, INFINITY);
+        distTo[s] = 0;
+        if (edgeTo != null) bandwidthTo[s] = Integer.MAX_VALUE;
+
+        pq.clear();
+        pq.insert(s, 0);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            if (pq.lastKey() > distTo[v]) continue;     // stale copy of a vertex settled earlier
+            settled++;
+            if (v == t) break;
+            for (Edge e : G.adj(v))
+                relax(e, v);
+        }
+    }
+
+    // relax edge e out of vertex v and queue w again if its distance improved
+    private void relax(Edge e, int v) {
+        int w = e.other(v);
+        long latency = e.getLatencyTicks();
+        if (latency < 0)
+            throw new IllegalArgumentException("edge " + e + " has negative weight");
+
+        if (distTo[w] > distTo[v] + latency) {
+            distTo[w] = distTo[v] + latency;
+            if (edgeTo != null) {
+                edgeTo[w] = e;
+                bandwidthTo[w] = Math.min(bandwidthTo[v], e.getBandwidth());
+            }
+            pq.insert(w, distTo[w]);
+        }
+    }
+
+    /**
+     * Returns the latency of a shortest path from the source vertex {@code s}
+     * to vertex {@code v}, in ticks.
+     *
+     * @param  v the destination vertex
+     * @return the latency of a shortest path from {@code s} to {@code v} in
+     *         ticks; {@code Long.MAX_VALUE} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public long ticksTo(int v) {
+        validateVertex(v);
+        return distTo[v];
+    }
+
+    /**
+     * Returns the latency of a shortest path from the source vertex {@code s}
+     * to vertex {@code v}, in seconds.
+     *
+     * @param  v the destination vertex
+     * @return the latency of a shortest path from {@code s} to {@code v};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public double distTo(int v) {
+        validateVertex(v);
+        if (distTo[v] == INFINITY) return Double.POSITIVE_INFINITY;
+        return (double) distTo[v] / MediaType.TICKS_PER_SECOND;
+    }
+
+    /**
+     * Returns true if there is a path from the source vertex {@code s} to vertex {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return {@code true} if there is a path from the source vertex
+     *         {@code s} to vertex {@code v}; {@code false} otherwise
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public boolean hasPathTo(int v) {
+        validateVertex(v);
+        return distTo[v] != INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from the source vertex {@code s} to vertex {@code v}.
+     *
+     * @param  v the destination vertex
+     * @return a shortest path from the source vertex {@code s} to vertex {@code v}
+     *         as an iterable of edges, and {@code null} if no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws UnsupportedOperationException if only distances were kept
+     */
+    public Iterable<Edge> pathTo(int v) {
+        validateVertex(v);
+        checkTree();
+        if (!hasPathTo(v)) return null;
+        Stack<Edge> path = new Stack<Edge>();
+        for (Edge e = edgeTo[v]; e != null; e = edgeTo[v]) {
+            path.push(e);
+            v = e.other(v);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the smallest bandwidth of any cable on the path returned by
+     * {@code pathTo(v)}.
+     *
+     * @param  v the destination vertex
+     * @return the bottleneck bandwidth of the shortest path from the source
+     *         vertex {@code s} to vertex {@code v}; {@code Integer.MAX_VALUE}
+     *         if {@code v} is the source, and {@code 0} if there is no such path
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws UnsupportedOperationException if only distances were kept
+     */
+    public int bottleneckTo(int v) {
+        validateVertex(v);
+        checkTree();
+        return bandwidthTo[v];
+    }
+
+    /**
+     * Returns the number of vertices the search settled, not counting stale
+     * copies skipped on the way.
+     *
+     * @return the number of settled vertices
+     */
+    public int settled() {
+        return settled;
+    }
+
+
+    // check optimality conditions; sums of ticks are exact, so equality is tested exactly:
+    // (i) for all edges e = v-w:            distTo[w] <= distTo[v] + e.ticks()
+    // (ii) for all edge e = v-w on the SPT: distTo[w] == distTo[v] + e.ticks()
+    private boolean check(EdgeWeightedGraph G, int s) {
+
+        // check that edge weights are nonnegative
+        for (Edge e : G.edges()) {
+            if (e.getLatencyTicks() < 0) {
+                System.err.println("negative edge weight detected");
+                return false;
+            }
+        }
+
+        // check that distTo[v] and edgeTo[v] are consistent
+        if (distTo[s] != 0 || edgeTo[s] != null) {
+            System.err.println("distTo[s] and edgeTo[s] inconsistent");
+            return false;
+        }
+        for (int v = 0; v < G.V(); v++) {
+            if (v == s) continue;
+            if (edgeTo[v] == null && distTo[v] != INFINITY) {
+                System.err.println("distTo[] and edgeTo[] inconsistent");
+                return false;
+            }
+        }
+
+        // check that all edges e = v-w satisfy distTo[w] <= distTo[v] + e.ticks()
+        for (int v = 0; v < G.V(); v++) {
+            if (distTo[v] == INFINITY) continue;
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                if (distTo[v] + e.getLatencyTicks() < distTo[w]) {
+                    System.err.println("edge " + e + " not relaxed");
+                    return false;
+                }
+            }
+        }
+
+        // check that all edges e = v-w on SPT satisfy distTo[w] == distTo[v] + e.ticks()
+        for (int w = 0; w < G.V(); w++) {
+            if (edgeTo[w] == null) continue;
+            Edge e = edgeTo[w];
+            int v = e.other(w);
+            if (distTo[v] + e.getLatencyTicks() != distTo[w]) {
+                System.err.println("edge " + e + " on shortest path not tight");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkTree() {
+        if (edgeTo == null)
+            throw new UnsupportedOperationException("only distances were kept by this search");
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        int V = distTo.length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    // Dijkstra's algorithm with the boxed IndexMinPQ<Double> the project started out with
+    private static double[] boxedDijkstra(EdgeWeightedGraph G, int s) {
+        double[] dist = new double[G.V()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[s] = 0.0;
+        IndexMinPQ<Double> pq = new IndexMinPQ<Double>(G.V());
+        pq.insert(s, 0.0);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                if (dist[w] > dist[v] + e.getLatency()) {
+                    dist[w] = dist[v] + e.getLatency();
+                    if (pq.contains(w)) pq.decreaseKey(w, dist[w]);
+                    else                pq.insert(w, dist[w]);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Unit tests the {@code FixedPointDijkstraSP} data type, and times full
+     * shortest-paths trees from random sources against {@code DijkstraSP}
+     * and a Dijkstra driven by {@code IndexMinPQ<Double>}, checking that all
+     * three agree to within the rounding of latencies to ticks.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int sources = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        StdRandom.setSeed(42);
+        long boxed = 0, primitive = 0, fixed = 0;
+        for (int q = 0; q < sources; q++) {
+            int s = StdRandom.uniform(g.V());
+
+            long start = System.nanoTime();
+            double[] b = boxedDijkstra(g, s);
+            boxed += System.nanoTime() - start;
+            start = System.nanoTime();
+            DijkstraSP a = new DijkstraSP(g, s);
+            primitive += System.nanoTime() - start;
+            start = System.nanoTime();
+            FixedPointDijkstraSP f = new FixedPointDijkstraSP(g, s);
+            fixed += System.nanoTime() - start;
+            if (!f.check(g, s))
+                throw new IllegalStateException("fixed-point tree from " + s + " fails the optimality conditions");
+            long[] ticks = new long[g.V()];
+            new FixedPointDijkstraSP(g, s, ticks, new RadixHeap());
+            for (int v = 0; v < g.V(); v++)
+                if (ticks[v] != f.ticksTo(v))
+                    throw new IllegalStateException("distances-only search from " + s + " differs at " + v);
+
+            for (int v = 0; v < g.V(); v++) {
+                if (a.hasPathTo(v) != f.hasPathTo(v) || Math.abs(b[v] - a.distTo(v)) > 1e-12 * b[v])
+                    throw new IllegalStateException("searches disagree from " + s + " to " + v);
+                // each edge on the path rounds by at most half a tick
+                double slack = (double) g.V() / 2 / MediaType.TICKS_PER_SECOND;
+                if (a.hasPathTo(v) && Math.abs(a.distTo(v) - f.distTo(v)) > slack)
+                    throw new IllegalStateException("fixed-point latency from " + s + " to " + v + " is off");
+            }
+        }
+        StdOut.printf("%d trees, ms/tree:  IndexMinPQ<Double> %.1f   DijkstraSP %.1f   FixedPointDijkstraSP %.1f\n",
+                      sources, boxed / 1e6 / sources, primitive / 1e6 / sources, fixed / 1e6 / sources);
+    }
+}
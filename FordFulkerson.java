@@ -1,7 +1,7 @@
 /******************************************************************************
  *  Compilation:  javac FordFulkerson.java
  *  Execution:    java FordFulkerson V E
- *  Dependencies: FlowNetwork.java FlowEdge.java Queue.java
+ *  Dependencies: FlowNetwork.java FlowEdge.java IntQueue.java QueryWorkspace.java
  *  Data files:   http://algs4.cs.princeton.edu/65maxflow/tinyFN.txt
  *
  *  Ford-Fulkerson algorithm for computing a max flow and 
@@ -40,10 +40,11 @@ import dependencies.*;
 public class FordFulkerson {
     private static final double FLOATING_POINT_EPSILON = 1E-11;
 
-    private final int V;          // number of vertices
-    private boolean[] marked;     // marked[v] = true iff s->v path in residual graph
-    private FlowEdge[] edgeTo;    // edgeTo[v] = last edge on shortest residual s->v path 
-    private double value;         // current value of max flow
+    private final int V;              // number of vertices
+    private final QueryWorkspace ws;  // marked v iff s->v path in residual graph, plus edgeTo[] and the queue
+    private final FlowEdge[] edgeTo;  // edgeTo[v] = last edge on shortest residual s->v path 
+    private int generation;           // the workspace generation of the last breadth-first search
+    private double value;             // current value of max flow
   
     /**
      * Compute a maximum flow and minimum cut in the network {@code G}
@@ -58,11 +59,38 @@ public class FordFulkerson {
      * @throws IllegalArgumentException if initial flow is infeasible
      */
     public FordFulkerson(FlowNetwork G, int s, int t) {
+        this(G, s, t, new QueryWorkspace(G.V()));
+        ws.trim();
+    }
+
+    /**
+     * Compute a maximum flow and minimum cut in the network {@code G}
+     * from vertex {@code s} to vertex {@code t}, using the marks, edge
+     * array and queue of {@code ws}. The minimum cut is only valid until
+     * the next query on {@code ws} begins.
+     *
+     * @param  G the flow network
+     * @param  s the source vertex
+     * @param  t the sink vertex
+     * @param  ws the workspace, for at least {@code V} vertices
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     * @throws IllegalArgumentException if {@code s == t}
+     * @throws IllegalArgumentException if initial flow is infeasible
+     * @throws IllegalArgumentException if {@code ws} holds fewer than {@code V} vertices
+     */
+    public FordFulkerson(FlowNetwork G, int s, int t, QueryWorkspace ws) {
         V = G.V();
-        validate(s);
-        validate(t);
+        this.ws = ws;
+        if (ws.V() < V)
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, network has " + V);
+        if (s < 0 || s >= V)
+            throw new IllegalArgumentException("vertex " + s + " is not between 0 and " + (V-1));
+        if (t < 0 || t >= V)
+            throw new IllegalArgumentException("vertex " + t + " is not between 0 and " + (V-1));
         if (s == t)               throw new IllegalArgumentException("Source equals sink");
         if (!isFeasible(G, s, t)) throw new IllegalArgumentException("Initial flow is infeasible");
+        edgeTo = ws.flowEdges();
 
         // while there exists an augmenting path, use it
         value = excess(G, t);
@@ -105,11 +133,13 @@ public class FordFulkerson {
      */
     public boolean inCut(int v)  {
         validate(v);
-        return marked[v];
+        return ws.marked(v);
     }
 
     // throw an IllegalArgumentException if v is outside prescibed range
+    // and an IllegalStateException if the workspace has moved on to another query
     private void validate(int v)  {
+        ws.checkGeneration(generation);
         if (v < 0 || v >= V)
             throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
     }
@@ -119,15 +149,16 @@ public class FordFulkerson {
     // if so, upon termination edgeTo[] will contain a parent-link representation of such a path
     // this implementation finds a shortest augmenting path (fewest number of edges),
     // which performs well both in theory and in practice
+    // edgeTo[v] is only read when v is marked, so starting a new workspace generation
+    // clears everything in constant time
     private boolean hasAugmentingPath(FlowNetwork G, int s, int t) {
-        edgeTo = new FlowEdge[G.V()];
-        marked = new boolean[G.V()];
+        generation = ws.begin();
 
         // breadth-first search
-        Queue<Integer> queue = new Queue<Integer>();
+        IntQueue queue = ws.queue();
         queue.enqueue(s);
-        marked[s] = true;
-        while (!queue.isEmpty() && !marked[t]) {
+        ws.mark(s);
+        while (!queue.isEmpty() && !ws.marked(t)) {
             int v = queue.dequeue();
 
             for (FlowEdge e : G.adj(v)) {
@@ -135,9 +166,9 @@ public class FordFulkerson {
 
                 // if residual capacity from v to w
                 if (e.residualCapacityTo(w) > 0) {
-                    if (!marked[w]) {
+                    if (!ws.marked(w)) {
                         edgeTo[w] = e;
-                        marked[w] = true;
+                        ws.mark(w);
                         queue.enqueue(w);
                     }
                 }
@@ -145,7 +176,7 @@ public class FordFulkerson {
         }
 
         // is there an augmenting path?
-        return marked[t];
+        return ws.marked(t);
     }
 
 
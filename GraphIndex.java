@@ -0,0 +1,68 @@
+/******************************************************************************
+ *  Compilation:  javac GraphIndex.java
+ *  Execution:    none
+ *  Dependencies: EdgeWeightedGraph.java
+ *
+ *  Base class of the read-only structures built once from a graph, which
+ *  must notice when the graph is modified afterwards.
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code GraphIndex} class is the common base of the structures that
+ *  are built from an {@link EdgeWeightedGraph} in one pass and then only
+ *  queried, such as {@link BandwidthIndex}, {@link WidestPath} and
+ *  {@link KruskalReconstructionTree}.
+ *  <p>
+ *  Such a structure is a snapshot. It records the graph's
+ *  {@link EdgeWeightedGraph#version()} when it is built and is not updated
+ *  when the graph changes; {@link #isCurrent()} tells whether it still
+ *  describes the graph, and subclasses call {@code checkCurrent()} before
+ *  answering a query, so that a stale structure throws an
+ *  {@code IllegalStateException} instead of answering for a graph that no
+ *  longer exists. Build a new one instead.
+ *
+ *  @author Christian Jarani
+ */
+public abstract class GraphIndex {
+    private final EdgeWeightedGraph G;
+    private final int version;      // graph version the structure was built at
+
+    /**
+     * Records the graph a structure is being built from, and its version.
+     *
+     * @param  G the edge-weighted graph
+     */
+    protected GraphIndex(EdgeWeightedGraph G) {
+        this.G = G;
+        this.version = G.version();
+    }
+
+    /**
+     * Returns the graph this structure was built from.
+     *
+     * @return the graph this structure was built from
+     */
+    public EdgeWeightedGraph graph() {
+        return G;
+    }
+
+    /**
+     * Has the graph not been modified since this structure was built?
+     *
+     * @return {@code true} if the structure still describes the graph
+     */
+    public boolean isCurrent() {
+        return G.version() == version;
+    }
+
+    /**
+     * Throws unless the graph is unmodified since this structure was built.
+     *
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    protected void checkCurrent() {
+        if (!isCurrent())
+            throw new IllegalStateException("graph was modified after the " + getClass().getSimpleName() + " was built");
+    }
+}
@@ -0,0 +1,452 @@
+/******************************************************************************
+ *  Compilation:  javac GraphLoader.java
+ *  Execution:    java GraphLoader filename.txt [trials]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java MediaType.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Loads a network_data file into an EdgeWeightedGraph by memory-mapping
+ *  the file and parsing the fields straight from the mapped bytes, either
+ *  sequentially or in parallel chunks on a fork-join pool.
+ *
+ *  % java NetworkGenerator 1000000 4000000 42 big_network.txt
+ *  % java GraphLoader big_network.txt 3
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code GraphLoader} class reads a network description in the
+ *  network_data file format (a vertex count followed by one
+ *  "v w type bandwidth length" record per line) into an
+ *  {@link EdgeWeightedGraph}.
+ *  <p>
+ *  Unlike {@link java.util.Scanner}, which matches every token against a
+ *  regular expression and allocates a {@code String} for it, this
+ *  implementation memory-maps the file and decodes the integers, the cable
+ *  type and the length directly from the mapped bytes. The only objects
+ *  allocated per record are the {@link Edge} itself and its adjacency-list
+ *  nodes. Files larger than a single mapping are processed in windows
+ *  that end on a line boundary.
+ *  <p>
+ *  For very large files, {@link #loadParallel(String)} splits each window
+ *  into line-aligned chunks that are decoded concurrently on a fork-join
+ *  pool and then merged in file order.
+ *  <p>
+ *  Vertex indices are validated exactly as the {@code Scanner} loop in
+ *  {@link NetworkAnalysis} did, with the same error message.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class GraphLoader {
+    private static final int WINDOW = 1 << 30;      // bytes mapped at a time
+    private static final int CHUNK  = 8 << 20;      // bytes parsed by one fork-join task
+
+    // this class should not be instantiated
+    private GraphLoader() { }
+
+    /**
+     * Reads the named network_data file into a new edge-weighted graph.
+     *
+     * @param  filename the name of the file
+     * @return the graph described by the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed or an
+     *         endpoint is not between {@code 0} and {@code V-1}
+     */
+    public static EdgeWeightedGraph load(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            long start = 0;
+            EdgeWeightedGraph g = null;
+            while (start < size) {
+                long length = Math.min(WINDOW, size - start);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int end = (int) length;
+                if (start + length < size) end = lastLineEnd(buf, end);
+                Cursor in = new Cursor(buf, 0, end);
+                if (g == null) {
+                    if (!in.hasNext()) throw new IllegalArgumentException("missing vertex count");
+                    g = new EdgeWeightedGraph(in.nextInt());
+                }
+                while (in.hasNext()) {
+                    g.addEdge(in.nextEdge(g.V()));
+                }
+                start += end;
+            }
+            if (g == null) throw new IllegalArgumentException("missing vertex count");
+            return g;
+        }
+    }
+
+    /**
+     * Reads the named network_data file into a new edge-weighted graph,
+     * parsing it in parallel on the common fork-join pool.
+     *
+     * @param  filename the name of the file
+     * @return the graph described by the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed or an
+     *         endpoint is not between {@code 0} and {@code V-1}
+     * @see    #loadParallel(String, ForkJoinPool)
+     */
+    public static EdgeWeightedGraph loadParallel(String filename) throws IOException {
+        return loadParallel(filename, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads the named network_data file into a new edge-weighted graph,
+     * parsing it in parallel on the given fork-join pool.
+     * <p>
+     * Each mapped window is split into chunks of about 8 MB that end on a line
+     * boundary. The tasks decode their chunks into primitive edge buffers,
+     * which are then added to the graph in file order, so the result is
+     * identical to {@link #load(String)}. If the file contains errors, the
+     * exception thrown is the one {@code load} would have thrown first.
+     *
+     * @param  filename the name of the file
+     * @param  pool the pool that runs the parsing tasks
+     * @return the graph described by the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed or an
+     *         endpoint is not between {@code 0} and {@code V-1}
+     */
+    public static EdgeWeightedGraph loadParallel(String filename, ForkJoinPool pool) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            long start = 0;
+            EdgeWeightedGraph g = null;
+            while (start < size) {
+                long length = Math.min(WINDOW, size - start);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int end = (int) length;
+                if (start + length < size) end = lastLineEnd(buf, end);
+                int from = 0;
+                if (g == null) {
+                    Cursor in = new Cursor(buf, 0, end);
+                    if (!in.hasNext()) throw new IllegalArgumentException("missing vertex count");
+                    g = new EdgeWeightedGraph(in.nextInt());
+                    from = in.pos;
+                }
+                int[] bounds = chunkBounds(buf, from, end);
+                EdgeBuffer[] parsed = new EdgeBuffer[bounds.length - 1];
+                pool.invoke(new ParseTask(buf, bounds, parsed, 0, parsed.length, g.V()));
+                for (EdgeBuffer edges : parsed) {
+                    edges.addTo(g);
+                }
+                start += end;
+            }
+            if (g == null) throw new IllegalArgumentException("missing vertex count");
+            return g;
+        }
+    }
+
+    // splits buf[from..end) into runs of about CHUNK bytes that end just after a newline
+    private static int[] chunkBounds(MappedByteBuffer buf, int from, int end) {
+        int[] bounds = new int[2 + (end - from) / CHUNK];
+        int n = 0;
+        bounds[n++] = from;
+        int next = from;
+        while (end - next > CHUNK) {
+            next += CHUNK;
+            while (next < end && buf.get(next - 1) != '\n') next++;
+            bounds[n++] = next;
+        }
+        if (next < end) bounds[n++] = end;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    // parses chunks [lo, hi) of a window, splitting until one chunk per task
+    @SuppressWarnings("serial")
+    private static final class ParseTask extends RecursiveAction {
+        private final MappedByteBuffer buf;
+        private final int[] bounds;
+        private final EdgeBuffer[] parsed;
+        private final int lo, hi, V;
+
+        ParseTask(MappedByteBuffer buf, int[] bounds, EdgeBuffer[] parsed, int lo, int hi, int V) {
+            this.buf = buf;
+            this.bounds = bounds;
+            this.parsed = parsed;
+            this.lo = lo;
+            this.hi = hi;
+            this.V = V;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi == lo) return;               // a window with no edge lines, e.g. just the vertex count
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ParseTask(buf, bounds, parsed, lo, mid, V),
+                          new ParseTask(buf, bounds, parsed, mid, hi, V));
+                return;
+            }
+            EdgeBuffer edges = new EdgeBuffer((bounds[lo+1] - bounds[lo]) / 24);
+            Cursor in = new Cursor(buf, bounds[lo], bounds[lo+1]);
+            try {
+                while (in.hasNext()) in.nextEdge(V, edges);
+            }
+            catch (IllegalArgumentException e) {
+                edges.error = e;         // reported once the earlier chunks are merged
+            }
+            parsed[lo] = edges;
+        }
+    }
+
+    // growable columns of parsed edge records
+    private static final class EdgeBuffer {
+        private int n;
+        private int[] v, w, bandwidth;
+        private byte[] type;
+        private double[] length;
+        private IllegalArgumentException error;
+
+        EdgeBuffer(int capacity) {
+            capacity = Math.max(capacity, 16);
+            v = new int[capacity];
+            w = new int[capacity];
+            bandwidth = new int[capacity];
+            type = new byte[capacity];
+            length = new double[capacity];
+        }
+
+        void add(int v, int w, byte type, int bandwidth, double length) {
+            if (n == this.v.length) {
+                int capacity = 2 * n;
+                this.v = Arrays.copyOf(this.v, capacity);
+                this.w = Arrays.copyOf(this.w, capacity);
+                this.bandwidth = Arrays.copyOf(this.bandwidth, capacity);
+                this.type = Arrays.copyOf(this.type, capacity);
+                this.length = Arrays.copyOf(this.length, capacity);
+            }
+            this.v[n] = v;
+            this.w[n] = w;
+            this.type[n] = type;
+            this.bandwidth[n] = bandwidth;
+            this.length[n] = length;
+            n++;
+        }
+
+        // adds the buffered edges to g, then rethrows the chunk's parse error, if any
+        void addTo(EdgeWeightedGraph g) {
+            for (int i = 0; i < n; i++) {
+                g.addEdge(new Edge(v[i], w[i], type[i], bandwidth[i], length[i]));
+            }
+            if (error != null) throw error;
+        }
+    }
+
+    // returns the number of bytes up to and including the last newline in buf[0..end)
+    private static int lastLineEnd(MappedByteBuffer buf, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buf.get(i) == '\n') return i + 1;
+        }
+        throw new IllegalArgumentException("line longer than " + WINDOW + " bytes");
+    }
+
+    // decodes whitespace-separated fields from a range of a byte buffer
+    private static final class Cursor {
+        private final MappedByteBuffer buf;
+        private final int end;
+        private int pos;
+
+        Cursor(MappedByteBuffer buf, int start, int end) {
+            this.buf = buf;
+            this.pos = start;
+            this.end = end;
+        }
+
+        // skips whitespace; returns true if another field follows
+        boolean hasNext() {
+            while (pos < end && buf.get(pos) <= ' ') pos++;
+            return pos < end;
+        }
+
+        // reads one "v w type bandwidth length" record
+        Edge nextEdge(int V) {
+            int v = nextVertex(V);
+            int w = nextVertex(V);
+            byte type = nextType();
+            int bandwidth = nextInt();
+            double length = nextDouble();
+            return new Edge(v, w, type, bandwidth, length);
+        }
+
+        // reads one "v w type bandwidth length" record into out
+        void nextEdge(int V, EdgeBuffer out) {
+            int v = nextVertex(V);
+            int w = nextVertex(V);
+            byte type = nextType();
+            int bandwidth = nextInt();
+            double length = nextDouble();
+            out.add(v, w, type, bandwidth, length);
+        }
+
+        int nextVertex(int V) {
+            int v = nextInt();
+            if (v < 0 || v >= V)
+                throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+            return v;
+        }
+
+        int nextInt() {
+            if (!hasNext()) throw new IllegalArgumentException("unexpected end of input");
+            boolean negative = buf.get(pos) == '-';
+            if (negative) pos++;
+            int start = pos;
+            long value = 0;
+            while (pos < end) {
+                int d = buf.get(pos) - '0';
+                if (d < 0 || d > 9) break;
+                value = 10 * value + d;
+                if (value > Integer.MAX_VALUE + 1L) throw malformed(start);
+                pos++;
+            }
+            if (pos == start || !atDelimiter()) throw malformed(start);
+            if (negative) value = -value;
+            if (value > Integer.MAX_VALUE) throw malformed(start);
+            return (int) value;
+        }
+
+        // [-]digits[.digits]; anything more exotic falls back to Double.parseDouble
+        double nextDouble() {
+            if (!hasNext()) throw new IllegalArgumentException("unexpected end of input");
+            int start = pos;
+            boolean negative = buf.get(pos) == '-';
+            if (negative) pos++;
+            long mantissa = 0;
+            int digits = 0, scale = 0;
+            boolean fraction = false;
+            while (pos < end) {
+                byte c = buf.get(pos);
+                if (c >= '0' && c <= '9') {
+                    mantissa = 10 * mantissa + (c - '0');
+                    digits++;
+                    if (fraction) scale++;
+                }
+                else if (c == '.' && !fraction) fraction = true;
+                else break;
+                pos++;
+            }
+            if (digits == 0 || !atDelimiter() || digits > 15 || scale > 22) {
+                while (pos < end && buf.get(pos) > ' ') pos++;
+                try {
+                    return Double.parseDouble(token(start));
+                }
+                catch (NumberFormatException e) {
+                    throw malformed(start);
+                }
+            }
+            // both operands are exact, so the quotient is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        // returns the MediaType code of the cable type, without allocating
+        byte nextType() {
+            if (!hasNext()) throw new IllegalArgumentException("unexpected end of input");
+            int start = pos;
+            while (pos < end && buf.get(pos) > ' ') pos++;
+            int types = MediaType.count();
+            for (int i = 0; i < types; i++) {
+                if (matches(start, MediaType.name((byte) i))) return (byte) i;
+            }
+            return MediaType.code(token(start));     // throws for unknown types
+        }
+
+        private boolean matches(int start, String s) {
+            if (pos - start != s.length()) return false;
+            for (int i = 0; i < s.length(); i++) {
+                if (buf.get(start + i) != s.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private boolean atDelimiter() {
+            return pos == end || buf.get(pos) <= ' ';
+        }
+
+        private String token(int start) {
+            byte[] bytes = new byte[pos - start];
+            for (int i = 0; i < bytes.length; i++) bytes[i] = buf.get(start + i);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+
+        private IllegalArgumentException malformed(int start) {
+            while (pos < end && buf.get(pos) > ' ') pos++;
+            return new IllegalArgumentException("malformed number \"" + token(start) + "\"");
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = 10.0 * POWERS_OF_TEN[i-1];
+    }
+
+    // the Scanner-based loop this class replaces, kept for the benchmark below
+    private static EdgeWeightedGraph scannerLoad(String filename) throws IOException {
+        Scanner reader = new Scanner(new File(filename));
+        EdgeWeightedGraph g = new EdgeWeightedGraph(reader.nextInt());
+        while (reader.hasNext()) {
+            int v = reader.nextInt();
+            if (v < 0 || v >= g.V())
+                throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (g.V()-1));
+            int w = reader.nextInt();
+            if (w < 0 || w >= g.V())
+                throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (g.V()-1));
+            String type = reader.next();
+            int bandwidth = reader.nextInt();
+            double length = reader.nextDouble();
+            g.addEdge(new Edge(v, w, type, bandwidth, length));
+        }
+        reader.close();
+        return g;
+    }
+
+    /**
+     * Benchmarks the memory-mapped loader against the {@code Scanner} loop.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        String filename = args[0];
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        EdgeWeightedGraph g = load(filename);
+        StdOut.println(g.V() + " vertices, " + g.E() + " edges");
+
+        for (int t = 1; t <= trials; t++) {
+            long start = System.nanoTime();
+            EdgeWeightedGraph a = scannerLoad(filename);
+            double scanner = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            EdgeWeightedGraph b = load(filename);
+            double mapped = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            EdgeWeightedGraph c = loadParallel(filename);
+            double parallel = (System.nanoTime() - start) / 1e6;
+
+            if (a.E() != b.E() || b.E() != c.E())
+                throw new IllegalStateException("loaders disagree on edge count");
+            StdOut.printf("trial %d: Scanner %10.1f ms   mmap %10.1f ms   parallel %10.1f ms\n",
+                          t, scanner, mapped, parallel);
+        }
+    }
+}
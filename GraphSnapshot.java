@@ -0,0 +1,283 @@
+/******************************************************************************
+ *  Compilation:  javac GraphSnapshot.java
+ *  Execution:    java GraphSnapshot network.txt network.snap
+ *  Dependencies: EdgeWeightedGraph.java CSRGraph.java Edge.java GraphLoader.java
+ *                MediaType.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Binary snapshot format for an EdgeWeightedGraph. Converts a network_data
+ *  file into a snapshot, then times reopening the snapshot against
+ *  re-parsing the text.
+ *
+ *  % java GraphSnapshot big_network.txt big_network.snap
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code GraphSnapshot} class reads and writes edge-weighted graphs in a
+ *  compact binary format that can be opened with a memory-mapped file and
+ *  no text parsing.
+ *  <p>
+ *  The file consists of a 16-byte header followed by fixed-width columns,
+ *  all little-endian:
+ *  <pre>
+ *    int    magic          "NETG"
+ *    int    version
+ *    int    V              number of vertices
+ *    int    E              number of edges
+ *    double length[E]
+ *    int    either[E]      one endpoint of each edge
+ *    int    other[E]       the other endpoint
+ *    int    bandwidth[E]
+ *    int    adjOffset[V+1] adjacency list of v is adjEdge[adjOffset[v]..adjOffset[v+1])
+ *    int    adjEdge[2E]    edge ids, in the order adj(v) iterates them
+ *    byte   type[E]        cable type code
+ *    int    types          number of cable types, followed for each code by
+ *    int    nameLength
+ *    byte   name[nameLength]
+ *    double speed          meters per second
+ *  </pre>
+ *  The trailing table records the {@link MediaType} names and speeds the
+ *  codes referred to when the snapshot was written; on open, they are
+ *  registered if necessary and translated to the current codes.
+ *  Edge ids are positions in the columns. Because the adjacency lists are
+ *  stored in iteration order, a reopened graph iterates {@code adj(v)} and
+ *  {@code edges()} exactly as the graph that was written.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+
+public class GraphSnapshot {
+    private static final int MAGIC   = 0x4E455447;      // "NETG"
+    private static final int VERSION = 2;
+    private static final int HEADER  = 16;
+
+    // this class should not be instantiated
+    private GraphSnapshot() { }
+
+    /**
+     * Writes the graph {@code G} to the named file as a snapshot.
+     *
+     * @param  G the edge-weighted graph
+     * @param  filename the name of the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(EdgeWeightedGraph G, String filename) throws IOException {
+        int V = G.V(), E = G.E();
+        Edge[] edges = new Edge[E];
+        IdentityHashMap<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>(2 * E);
+        for (Edge e : G.edges()) {
+            ids.put(e, ids.size());
+            edges[ids.size() - 1] = e;
+        }
+
+        int types = MediaType.count();
+        byte[][] names = new byte[types][];
+        long size = size(V, E) + 4;
+        for (int i = 0; i < types; i++) {
+            names[i] = MediaType.name((byte) i).getBytes(StandardCharsets.UTF_8);
+            size += 4 + names[i].length + 8;
+        }
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("graph too large for a single snapshot mapping");
+
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(size);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(E);
+            for (Edge e : edges) buf.putDouble(e.getLength());
+            for (Edge e : edges) buf.putInt(e.either());
+            for (Edge e : edges) buf.putInt(e.other(e.either()));
+            for (Edge e : edges) buf.putInt(e.getBandwidth());
+            int offset = 0;
+            for (int v = 0; v < V; v++) {
+                buf.putInt(offset);
+                offset += G.degree(v);
+            }
+            buf.putInt(offset);
+            for (int v = 0; v < V; v++) {
+                for (Edge e : G.adj(v)) buf.putInt(ids.get(e));
+            }
+            for (Edge e : edges) buf.put(e.getTypeCode());
+            buf.putInt(types);
+            for (int i = 0; i < types; i++) {
+                buf.putInt(names[i].length).put(names[i]).putDouble(MediaType.speed((byte) i));
+            }
+            buf.force();
+        }
+    }
+
+    /**
+     * Opens the named snapshot file and returns the graph it contains.
+     *
+     * @param  filename the name of the snapshot file
+     * @return the edge-weighted graph stored in the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    public static EdgeWeightedGraph open(String filename) throws IOException {
+        return read(filename, false);
+    }
+
+    /**
+     * Opens the named snapshot file directly into an immutable {@link CSRGraph},
+     * whose arrays are filled straight from the snapshot columns without
+     * building any adjacency lists.
+     *
+     * @param  filename the name of the snapshot file
+     * @return the graph stored in the snapshot, in compressed sparse row form
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    public static CSRGraph openFrozen(String filename) throws IOException {
+        return (CSRGraph) read(filename, true);
+    }
+
+    private static EdgeWeightedGraph read(String filename, boolean frozen) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER || fileSize > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(filename + " is not a graph snapshot");
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC)
+                throw new IllegalArgumentException(filename + " is not a graph snapshot");
+            int version = buf.getInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("unsupported snapshot version " + version);
+            int V = buf.getInt();
+            int E = buf.getInt();
+            if (V < 0 || E < 0 || size(V, E) + 4 > fileSize)
+                throw new IllegalArgumentException("snapshot " + filename + " is truncated or corrupt");
+
+            double[] length = new double[E];
+            int[] either    = new int[E];
+            int[] other     = new int[E];
+            int[] bandwidth = new int[E];
+            int[] adjOffset = new int[V + 1];
+            int[] adjEdge   = new int[2 * E];
+            byte[] type     = new byte[E];
+            buf.asDoubleBuffer().get(length);
+            buf.position(buf.position() + 8 * E);
+            buf.asIntBuffer().get(either);
+            buf.position(buf.position() + 4 * E);
+            buf.asIntBuffer().get(other);
+            buf.position(buf.position() + 4 * E);
+            buf.asIntBuffer().get(bandwidth);
+            buf.position(buf.position() + 4 * E);
+            buf.asIntBuffer().get(adjOffset);
+            buf.position(buf.position() + 4 * (V + 1));
+            buf.asIntBuffer().get(adjEdge);
+            buf.position(buf.position() + 8 * E);
+            buf.get(type);
+            byte[] code = readMediaTypes(buf, filename);
+            checkAdjacency(V, E, adjOffset, adjEdge, filename);
+
+            Edge[] edges = new Edge[E];
+            for (int i = 0; i < E; i++) {
+                if (type[i] < 0 || type[i] >= code.length)
+                    throw new IllegalArgumentException("snapshot edge " + i + " has unknown type code " + type[i]);
+                edges[i] = new Edge(either[i], other[i], code[type[i]], bandwidth[i], length[i]);
+            }
+            if (frozen) return new CSRGraph(V, edges, adjOffset, adjEdge);
+            return new EdgeWeightedGraph(V, edges, adjOffset, adjEdge);
+        }
+    }
+
+    /**
+     * Returns true if the named file starts with the snapshot magic number.
+     *
+     * @param  filename the name of the file
+     * @return {@code true} if the file looks like a snapshot; {@code false} otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSnapshot(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            if (file.length() < HEADER) return false;
+            byte[] magic = new byte[4];
+            file.readFully(magic);
+            return ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+        }
+    }
+
+    // number of bytes in a snapshot of a graph with V vertices and E edges, excluding the type table
+    private static long size(int V, int E) {
+        return HEADER + 8L * E + 4L * E * 3 + 4L * (V + 1) + 4L * 2 * E + E;
+    }
+
+    // the graph constructors index edges by adjEdge while walking the offsets,
+    // so corrupt columns must be rejected before either constructor sees them
+    private static void checkAdjacency(int V, int E, int[] adjOffset, int[] adjEdge, String filename) {
+        if (adjOffset[0] != 0 || adjOffset[V] != 2 * E)
+            throw new IllegalArgumentException("snapshot " + filename + " has corrupt adjacency offsets");
+        for (int v = 0; v < V; v++)
+            if (adjOffset[v] > adjOffset[v+1])
+                throw new IllegalArgumentException("snapshot " + filename + " has corrupt adjacency offsets");
+        for (int i = 0; i < 2 * E; i++)
+            if (adjEdge[i] < 0 || adjEdge[i] >= E)
+                throw new IllegalArgumentException("snapshot " + filename + " has corrupt adjacency entry " + i);
+    }
+
+    // reads the trailing cable type table; returns the current code for each snapshot code
+    private static byte[] readMediaTypes(ByteBuffer buf, String filename) {
+        try {
+            int types = buf.getInt();
+            if (types < 0 || types > MediaType.count() + Byte.MAX_VALUE)
+                throw new IllegalArgumentException("snapshot " + filename + " is truncated or corrupt");
+            byte[] code = new byte[types];
+            for (int i = 0; i < types; i++) {
+                byte[] name = new byte[buf.getInt()];
+                buf.get(name);
+                double speed = buf.getDouble();
+                code[i] = MediaType.register(new String(name, StandardCharsets.UTF_8), speed);
+            }
+            if (buf.hasRemaining())
+                throw new IllegalArgumentException("snapshot " + filename + " is truncated or corrupt");
+            return code;
+        }
+        catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("snapshot " + filename + " is truncated or corrupt");
+        }
+    }
+
+    /**
+     * Converts a network_data file to a snapshot and compares load times.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        double parsed = (System.nanoTime() - start) / 1e6;
+
+        write(g, args[1]);
+
+        start = System.nanoTime();
+        EdgeWeightedGraph h = open(args[1]);
+        double opened = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        CSRGraph c = openFrozen(args[1]);
+        double frozen = (System.nanoTime() - start) / 1e6;
+
+        String expected = g.toString();
+        if (!expected.equals(h.toString()) || !expected.equals(c.toString()))
+            throw new IllegalStateException("snapshot does not round-trip");
+        StdOut.println(g.V() + " vertices, " + g.E() + " edges");
+        StdOut.printf("text load %10.1f ms   snapshot open %10.1f ms   frozen open %10.1f ms\n",
+                      parsed, opened, frozen);
+    }
+}
@@ -0,0 +1,511 @@
+/******************************************************************************
+ *  Compilation:  javac KShortestPaths.java
+ *  Execution:    java KShortestPaths input.txt [k] [queries]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java DijkstraSP.java
+ *                QueryWorkspace.java DoubleIndexMinPQ.java GraphLoader.java
+ *                StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  The k lowest-latency loopless paths between two switches, for failover
+ *  planning. Running it checks random queries (against an exhaustive
+ *  enumeration on small graphs) and reports how long they took.
+ *
+ *  % java KShortestPaths network_data2.txt 5 10
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code KShortestPaths} class finds the <em>k</em> lowest-latency
+ *  loopless paths from a source vertex <em>s</em> to a target vertex
+ *  <em>t</em>, together with the latency and bottleneck bandwidth of each,
+ *  so that an operator can see which routes traffic would fall back to.
+ *  <p>
+ *  This implementation uses Yen's algorithm. The next path is always the
+ *  best <em>deviation</em> from one already found: it follows an accepted
+ *  path for its first <em>i</em> cables (the <em>root</em>), then takes a
+ *  <em>spur</em> path to <em>t</em> that avoids the root's vertices and the
+ *  <em>i</em>-th cable of every accepted path sharing that root. Three
+ *  things keep the spur searches cheap:
+ *  <ul>
+ *  <li>A single {@link DijkstraSP} tree from <em>t</em> gives the exact
+ *      latency from every vertex to <em>t</em> in the whole graph. Blocking
+ *      vertices and cables only makes paths longer, so it is a consistent
+ *      A* heuristic for every spur search, which heads straight for
+ *      <em>t</em>, settles little more than the spur path itself, and
+ *      stops as soon as <em>t</em> is settled. The first path is read off
+ *      the tree directly.
+ *  <li>A path generated at spur position <em>i</em> is only spurred from
+ *      positions <em>i</em> onwards: its shorter roots belong to its
+ *      parent, whose deviations there have already been generated.
+ *  <li>Only the best <em>k</em> - <em>j</em> candidates can still be
+ *      accepted once <em>j</em> paths are; worse ones are dropped, and a
+ *      spur search is abandoned as soon as its root latency plus its
+ *      smallest key cannot beat the worst candidate still kept.
+ *  </ul>
+ *  All spur searches run on the calling thread's {@link QueryWorkspace},
+ *  whose generation stamps make starting each one take constant time.
+ *  <p>
+ *  Paths are reported in order of increasing latency; ties are broken in
+ *  the order the paths were found. Fewer than <em>k</em> paths are
+ *  reported if fewer exist.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+public class KShortestPaths implements Iterable<KShortestPaths.Path> {
+    private static final double EPSILON = 1e-12;  // relative rounding slack for check()
+
+    private final Path[] paths;         // paths[i] = the (i+1)-th lowest-latency path
+    private int spurs;                  // number of spur searches run
+    private int settled;                // vertices settled by all spur searches
+    private int serial;                 // creation order of paths, for breaking ties
+
+    /**
+     * Computes the {@code k} lowest-latency loopless paths from {@code s}
+     * to {@code t} in the edge-weighted graph {@code G}.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @param  k the number of paths wanted
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IllegalArgumentException unless {@code 0 <= s < V} and {@code 0 <= t < V}
+     * @throws IllegalArgumentException unless {@code k >= 1}
+     */
+    public KShortestPaths(EdgeWeightedGraph G, int s, int t, int k) {
+        this(G, new DijkstraSP(G, validateVertex(t, G.V())), s, t, k);
+    }
+
+    /**
+     * Computes the {@code k} lowest-latency loopless paths from {@code s}
+     * to {@code t}, given a shortest-paths tree from {@code t}. Queries from
+     * several sources to the same target can share that tree.
+     *
+     * @param  G the edge-weighted graph
+     * @param  toTarget a shortest-paths tree of {@code G} from {@code t}
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @param  k the number of paths wanted
+     * @throws IllegalArgumentException unless {@code 0 <= s < V} and {@code 0 <= t < V}
+     * @throws IllegalArgumentException unless {@code k >= 1}
+     * @throws IllegalArgumentException if {@code toTarget} is not a tree from {@code t}
+     */
+    public KShortestPaths(EdgeWeightedGraph G, DijkstraSP toTarget, int s, int t, int k) {
+        int V = G.V();
+        validateVertex(s, V);
+        validateVertex(t, V);
+        if (k < 1) throw new IllegalArgumentException("k must be positive");
+        if (toTarget.distTo(t) != 0.0 || toTarget.edgeTo(t) != null)
+            throw new IllegalArgumentException("shortest-paths tree is not rooted at " + t);
+
+        ArrayList<Path> accepted = new ArrayList<Path>();
+        if (toTarget.hasPathTo(s)) {
+            Path first = new Path(s, treePath(toTarget, s, t), 0, serial++);
+            accepted.add(first);
+            search(G, toTarget, s, t, k, accepted);
+        }
+        paths = accepted.toArray(new Path[accepted.size()]);
+
+        assert check(G, s, t);
+    }
+
+    // Yen's algorithm, spurring each accepted path from its deviation point onwards
+    private void search(EdgeWeightedGraph G, DijkstraSP toTarget, int s, int t, int k, ArrayList<Path> accepted) {
+        QueryWorkspace ws = QueryWorkspace.forThread(G.V());
+        if (ws.V() < G.V())
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, graph has " + G.V());
+        TreeSet<Path> candidates = new TreeSet<Path>(BY_LATENCY);
+        HashSet<Path> seen = new HashSet<Path>();    // accepted paths and candidates
+        seen.add(accepted.get(0));
+        Edge[] blocked = new Edge[k];
+
+        while (accepted.size() < k) {
+            Path last = accepted.get(accepted.size() - 1);
+            int remaining = k - accepted.size();
+            for (int i = last.deviation; i < last.size(); i++) {
+                int u = last.vertices[i];
+                double root = last.prefix[i];
+                double bound = candidates.size() < remaining ? Double.POSITIVE_INFINITY
+                                                             : candidates.last().latency;
+                if (root + toTarget.distTo(u) >= bound) continue;
+
+                // the root's vertices are off limits, and so are the cables out
+                // of u that earlier paths with this root took
+                ws.begin();
+                for (int j = 0; j < i; j++)
+                    ws.mark(last.vertices[j]);
+                int n = 0;
+                for (Path p : accepted)
+                    if (p.size() > i && p.sharesRoot(last, i))
+                        blocked[n++] = p.edges[i];
+
+                spurs++;
+                Edge[] spur = spur(G, toTarget, ws, u, t, blocked, n, root, bound);
+                if (spur == null) continue;
+
+                Edge[] edges = Arrays.copyOf(last.edges, i + spur.length);
+                System.arraycopy(spur, 0, edges, i, spur.length);
+                Path candidate = new Path(s, edges, i, serial++);
+                if (!seen.add(candidate)) continue;
+                candidates.add(candidate);
+                if (candidates.size() > remaining) seen.remove(candidates.pollLast());
+            }
+            if (candidates.isEmpty()) break;
+            accepted.add(candidates.pollFirst());
+        }
+    }
+
+    // the tree path from u to t, in order from u
+    private static Edge[] treePath(DijkstraSP toTarget, int u, int t) {
+        int length = 0;
+        for (int v = u; v != t; length++)
+            v = toTarget.edgeTo(v).other(v);
+        Edge[] edges = new Edge[length];
+        int i = 0;
+        for (int v = u; v != t; i++) {
+            edges[i] = toTarget.edgeTo(v);
+            v = edges[i].other(v);
+        }
+        return edges;
+    }
+
+    private static boolean isBlocked(Edge e, Edge[] blocked, int n) {
+        for (int i = 0; i < n; i++)
+            if (blocked[i] == e) return true;
+        return false;
+    }
+
+    // A* from u to t avoiding marked vertices and the blocked cables out of u,
+    // abandoned once root + key >= bound; returns the cables in order from u
+    private Edge[] spur(EdgeWeightedGraph G, DijkstraSP toTarget, QueryWorkspace ws,
+                        int u, int t, Edge[] blocked, int n, double root, double bound) {
+        double[] distTo = ws.doubles();
+        Edge[] edgeTo = ws.edges();
+        DoubleIndexMinPQ pq = ws.pq();
+        ws.reach(u);
+        distTo[u] = 0.0;
+        edgeTo[u] = null;
+        pq.insert(u, toTarget.distTo(u));
+        while (!pq.isEmpty()) {
+            if (root + pq.minKey() >= bound) return null;
+            int v = pq.delMin();
+            settled++;
+            if (v == t) break;
+            for (Edge e : G.adj(v)) {
+                if (v == u && isBlocked(e, blocked, n)) continue;
+                int w = e.other(v);
+                if (ws.marked(w)) continue;
+                double h = toTarget.distTo(w);
+                if (h == Double.POSITIVE_INFINITY) continue;
+                double d = distTo[v] + e.getLatency();
+                if (!ws.reached(w)) {
+                    ws.reach(w);
+                    distTo[w] = d;
+                    edgeTo[w] = e;
+                    pq.insert(w, d + h);
+                }
+                else if (d < distTo[w]) {
+                    distTo[w] = d;
+                    edgeTo[w] = e;
+                    // a shorter d can round to the same key once h is added
+                    if (!pq.contains(w))            pq.insert(w, d + h);
+                    else if (d + h < pq.keyOf(w))   pq.decreaseKey(w, d + h);
+                }
+            }
+        }
+        if (!ws.reached(t) || pq.contains(t)) return null;
+
+        int length = 0;
+        for (int v = t; v != u; v = edgeTo[v].other(v))
+            length++;
+        Edge[] edges = new Edge[length];
+        for (int v = t; v != u; v = edgeTo[v].other(v))
+            edges[--length] = edgeTo[v];
+        return edges;
+    }
+
+    /**
+     * Returns the number of paths found, which is {@code k} unless fewer
+     * loopless paths exist.
+     *
+     * @return the number of paths found
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * Returns the path of rank {@code i}: path {@code 0} has the lowest
+     * latency, path {@code 1} the next lowest, and so on.
+     *
+     * @param  i the rank
+     * @return the path of rank {@code i}
+     * @throws IllegalArgumentException unless {@code 0 <= i < size()}
+     */
+    public Path path(int i) {
+        if (i < 0 || i >= paths.length)
+            throw new IllegalArgumentException("rank " + i + " is not between 0 and " + (paths.length-1));
+        return paths[i];
+    }
+
+    /**
+     * Returns an iterator over the paths found, in order of increasing latency.
+     *
+     * @return an iterator over the paths found
+     */
+    public Iterator<Path> iterator() {
+        return Arrays.asList(paths).iterator();
+    }
+
+    /**
+     * Returns the number of spur searches run.
+     *
+     * @return the number of spur searches
+     */
+    public int spurs() {
+        return spurs;
+    }
+
+    /**
+     * Returns the number of vertices settled by all spur searches together.
+     *
+     * @return the number of settled vertices
+     */
+    public int settled() {
+        return settled;
+    }
+
+    // orders paths by latency, then by the order they were found in
+    private static final Comparator<Path> BY_LATENCY = new Comparator<Path>() {
+        public int compare(Path a, Path b) {
+            int c = Double.compare(a.latency, b.latency);
+            return c != 0 ? c : Integer.compare(a.serial, b.serial);
+        }
+    };
+
+    /**
+     * A loopless path from {@code s} to {@code t}, with its latency and the
+     * bandwidth available along it. Two paths are equal if they use the
+     * same cables in the same order.
+     */
+    public static final class Path implements Iterable<Edge> {
+        private final Edge[] edges;
+        private final int[] vertices;       // vertices[i] = i-th vertex from s; edges[i] joins vertices[i] and vertices[i+1]
+        private final double[] prefix;      // prefix[i] = latency of the first i cables
+        private final double latency;
+        private final int bandwidth;
+        private final int deviation;        // position of the spur this path was found from
+        private final int serial;
+        private final int hash;
+
+        private Path(int s, Edge[] edges, int deviation, int serial) {
+            this.edges = edges;
+            this.vertices = new int[edges.length + 1];
+            this.prefix = new double[edges.length + 1];
+            this.deviation = deviation;
+            this.serial = serial;
+            int bandwidth = Integer.MAX_VALUE, hash = 1;
+            vertices[0] = s;
+            for (int i = 0; i < edges.length; i++) {
+                vertices[i+1] = edges[i].other(vertices[i]);
+                prefix[i+1] = prefix[i] + edges[i].getLatency();
+                bandwidth = Math.min(bandwidth, edges[i].getBandwidth());
+                hash = 31 * hash + System.identityHashCode(edges[i]);
+            }
+            this.latency = prefix[edges.length];
+            this.bandwidth = bandwidth;
+            this.hash = hash;
+        }
+
+        // does this path start with the same i cables as that one?
+        private boolean sharesRoot(Path that, int i) {
+            for (int j = 0; j < i; j++)
+                if (edges[j] != that.edges[j]) return false;
+            return true;
+        }
+
+        /**
+         * Returns the total latency of this path.
+         *
+         * @return the total latency of this path
+         */
+        public double latency() {
+            return latency;
+        }
+
+        /**
+         * Returns the smallest bandwidth of any cable on this path.
+         *
+         * @return the bottleneck bandwidth; {@code Integer.MAX_VALUE} if the
+         *         path has no edges
+         */
+        public int bandwidth() {
+            return bandwidth;
+        }
+
+        /**
+         * Returns the number of cables on this path.
+         *
+         * @return the number of cables on this path
+         */
+        public int size() {
+            return edges.length;
+        }
+
+        /**
+         * Returns an iterator over the cables of this path, from the source.
+         *
+         * @return an iterator over the cables of this path
+         */
+        public Iterator<Edge> iterator() {
+            return Arrays.asList(edges).iterator();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Path)) return false;
+            Path that = (Path) other;
+            return hash == that.hash && edges.length == that.edges.length && sharesRoot(that, edges.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // check that every path is a loopless s-t path with the right latency,
+    // that the paths are distinct and that they come in order of latency
+    private boolean check(EdgeWeightedGraph G, int s, int t) {
+        HashSet<Path> distinct = new HashSet<Path>();
+        boolean[] onPath = new boolean[G.V()];
+        double previous = 0.0;
+        for (Path p : paths) {
+            if (p.vertices[0] != s || p.vertices[p.size()] != t) {
+                System.err.println("path does not join " + s + " and " + t);
+                return false;
+            }
+            double latency = 0.0;
+            for (int i = 0; i <= p.size(); i++) {
+                if (onPath[p.vertices[i]]) {
+                    System.err.println("path visits " + p.vertices[i] + " twice");
+                    return false;
+                }
+                onPath[p.vertices[i]] = true;
+                if (i < p.size()) latency += p.edges[i].getLatency();
+            }
+            for (int v : p.vertices)
+                onPath[v] = false;
+            if (Math.abs(latency - p.latency) > EPSILON * latency) {
+                System.err.println("path latency " + p.latency + " does not add up to " + latency);
+                return false;
+            }
+            if (p.latency < previous * (1 - EPSILON)) {
+                System.err.println("paths out of order: " + p.latency + " after " + previous);
+                return false;
+            }
+            previous = p.latency;
+            if (!distinct.add(p)) {
+                System.err.println("path found twice");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private static int validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+        return v;
+    }
+
+    // latencies of every loopless s-t path, by depth-first enumeration
+    private static void enumerate(EdgeWeightedGraph G, int v, int t, boolean[] onPath, double latency,
+                                  ArrayList<Double> found) {
+        if (v == t) {
+            found.add(latency);
+            return;
+        }
+        onPath[v] = true;
+        for (Edge e : G.adj(v)) {
+            int w = e.other(v);
+            if (!onPath[w]) enumerate(G, w, t, onPath, latency + e.getLatency(), found);
+        }
+        onPath[v] = false;
+    }
+
+    /**
+     * Finds the {@code k} lowest-latency paths between random pairs of
+     * vertices and prints the first query. On graphs of up to 16 vertices
+     * the latencies are checked against every loopless path; on larger
+     * ones the first path is checked against {@code DijkstraSP}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int V = g.V();
+
+        StdRandom.setSeed(42);
+        long reverse = 0, spurs = 0, total = 0, found = 0, searches = 0, settled = 0;
+        for (int q = 0; q < queries; q++) {
+            int s = StdRandom.uniform(V), t = StdRandom.uniform(V);
+
+            long start = System.nanoTime();
+            DijkstraSP toTarget = new DijkstraSP(g, t);
+            long middle = System.nanoTime();
+            KShortestPaths ksp = new KShortestPaths(g, toTarget, s, t, k);
+            long end = System.nanoTime();
+            reverse += middle - start;
+            spurs += end - middle;
+            total += end - start;
+            found += ksp.size();
+            searches += ksp.spurs();
+            settled += ksp.settled();
+
+            if (V <= 16) {
+                ArrayList<Double> all = new ArrayList<Double>();
+                enumerate(g, s, t, new boolean[V], 0.0, all);
+                java.util.Collections.sort(all);
+                if (ksp.size() != Math.min(k, all.size()))
+                    throw new IllegalStateException(ksp.size() + " paths from " + s + " to " + t + ", expected "
+                                                    + Math.min(k, all.size()));
+                for (int i = 0; i < ksp.size(); i++)
+                    if (Math.abs(ksp.path(i).latency() - all.get(i)) > EPSILON * all.get(i))
+                        throw new IllegalStateException("path " + i + " from " + s + " to " + t + " has latency "
+                                                        + ksp.path(i).latency() + ", expected " + all.get(i));
+            }
+            else if (ksp.size() > 0) {
+                double expected = new DijkstraSP(g, s, t).distTo(t);
+                if (Math.abs(ksp.path(0).latency() - expected) > EPSILON * expected)
+                    throw new IllegalStateException("lowest-latency path from " + s + " to " + t + " disagrees");
+            }
+
+            if (q == 0) {
+                StdOut.printf("%d lowest-latency paths from %d to %d:\n", ksp.size(), s, t);
+                int rank = 1;
+                for (Path p : ksp) {
+                    StdOut.printf("%3d. %.3f ns  %d Mbps  %d cables", rank++, p.latency() * 1e9, p.bandwidth(), p.size());
+                    if (V <= 16) for (Edge e : p) StdOut.print("   " + e);
+                    StdOut.println();
+                }
+            }
+        }
+        StdOut.printf("%d queries, k = %d: %.1f paths/query, %.2f ms/query (tree from t %.2f ms, spurs %.2f ms)\n",
+                      queries, k, (double) found / queries, total / 1e6 / queries, reverse / 1e6 / queries,
+                      spurs / 1e6 / queries);
+        StdOut.printf("%.1f spur searches/query, %d vertices settled/query\n",
+                      (double) searches / queries, settled / queries);
+    }
+}
@@ -0,0 +1,324 @@
+/******************************************************************************
+ *  Compilation:  javac KruskalReconstructionTree.java
+ *  Execution:    java KruskalReconstructionTree input.txt [queries]
+ *  Dependencies: EdgeWeightedGraph.java GraphIndex.java Edge.java UF.java CC.java
+ *                BandwidthIndex.java GraphLoader.java StdRandom.java
+ *                StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Connectivity of the network restricted to cables of at least X Mbps,
+ *  for every X at once. Running it times random threshold queries and
+ *  compares them, at every distinct bandwidth, with connected components
+ *  of a filtered copy of the graph.
+ *
+ *  % java KruskalReconstructionTree big_network.txt 1000000
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code KruskalReconstructionTree} class answers "are <em>a</em>
+ *  and <em>b</em> connected using only cables of at least <em>X</em>
+ *  Mbps?" and "how many components does the network fall into at
+ *  <em>X</em> Mbps?" for any threshold <em>X</em>, without filtering the
+ *  graph and searching it for every question.
+ *  <p>
+ *  Kruskal's algorithm on decreasing bandwidth merges components one
+ *  cable at a time. The reconstruction tree records every merge as a new
+ *  node whose children are the two merged components and whose weight is
+ *  the bandwidth of the merging cable; the <em>V</em> vertices are its
+ *  leaves. Weights never increase towards the root, so:
+ *  <ul>
+ *  <li>the components at threshold <em>X</em> are the subtrees of the
+ *      highest nodes of weight at least <em>X</em>, and
+ *  <li><em>a</em> and <em>b</em> are connected at <em>X</em> exactly when
+ *      the weight of their lowest common ancestor is at least <em>X</em>.
+ *      That weight is the largest threshold connecting them, the same
+ *      value {@link WidestPath#bottleneck(int, int)} computes.
+ *  </ul>
+ *  The merge weights, in the order Kruskal's algorithm makes them, also
+ *  form the table of component counts: at threshold <em>X</em>, the
+ *  count is <em>V</em> minus the number of merges of weight at least
+ *  <em>X</em>.
+ *  <p>
+ *  The constructor takes time proportional to <em>E</em> log <em>E</em>
+ *  + <em>V</em> log <em>V</em> and space proportional to
+ *  <em>V</em> log <em>V</em>. Afterwards, {@code connected()},
+ *  {@code threshold()}, {@code component()}, {@code size()} and
+ *  {@code count()} take time proportional to log <em>V</em>. The tree is
+ *  a {@link GraphIndex} snapshot of the graph.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class KruskalReconstructionTree extends GraphIndex {
+    private final int V;
+    private final int nodes;        // V leaves, then one node per merge
+    private final int[] weight;     // weight[x] = bandwidth of the merge x; MAX_VALUE for leaves
+    private final int[] size;       // size[x] = number of vertices below x
+    private final int[] depth;      // depth[x] = number of tree edges from the root above x
+    private final int[][] up;       // up[k][x] = 2^k-th ancestor of x, or its root
+
+    /**
+     * Builds the Kruskal reconstruction tree of {@code G} on bandwidth.
+     *
+     * @param  G the edge-weighted graph
+     * @throws IllegalArgumentException if a bandwidth is negative
+     */
+    public KruskalReconstructionTree(EdgeWeightedGraph G) {
+        super(G);
+        this.V = G.V();
+        int[] byBandwidth = BandwidthIndex.edgesByBandwidth(G);
+
+        // Kruskal: every union creates a node above the two components' nodes
+        int capacity = Math.max(1, 2 * V - 1);
+        int[] parent = new int[capacity];
+        int[] w = new int[capacity];
+        int[] sz = new int[capacity];
+        int[] top = new int[V];             // top[find(v)] = node of v's component
+        for (int v = 0; v < V; v++) {
+            parent[v] = v;
+            w[v] = Integer.MAX_VALUE;
+            sz[v] = 1;
+            top[v] = v;
+        }
+        UF uf = new UF(V);
+        int n = V;
+        for (int i = 0; i < byBandwidth.length && n < 2 * V - 1; i++) {
+            Edge e = G.edge(byBandwidth[i]);
+            int p = uf.find(e.either()), q = uf.find(e.other(e.either()));
+            if (p == q) continue;
+            int x = n++;
+            parent[x] = x;
+            parent[top[p]] = x;
+            parent[top[q]] = x;
+            w[x] = e.getBandwidth();
+            sz[x] = sz[top[p]] + sz[top[q]];
+            uf.union(p, q);
+            top[uf.find(p)] = x;
+        }
+        nodes = n;
+        weight = Arrays.copyOf(w, n);
+        size = Arrays.copyOf(sz, n);
+
+        // a parent is created after its children, so filling the tables
+        // from the last node down visits every parent before its children
+        int levels = 1;
+        while ((1 << levels) < n) levels++;
+        depth = new int[n];
+        up = new int[levels][n];
+        for (int x = n - 1; x >= 0; x--) {
+            up[0][x] = parent[x];
+            depth[x] = parent[x] == x ? 0 : depth[parent[x]] + 1;
+        }
+        for (int k = 1; k < levels; k++)
+            for (int x = 0; x < n; x++)
+                up[k][x] = up[k-1][up[k-1][x]];
+
+        assert check();
+    }
+
+    /**
+     * Returns the largest threshold at which {@code a} and {@code b} are
+     * connected: the weight of their lowest common ancestor.
+     *
+     * @param  a one vertex
+     * @param  b the other vertex
+     * @return the largest {@code X} such that {@code a} and {@code b} are
+     *         connected by cables of at least {@code X} Mbps;
+     *         {@code Integer.MAX_VALUE} if {@code a == b}, and {@code -1}
+     *         if they are not connected at all
+     * @throws IllegalArgumentException unless {@code 0 <= a, b < V}
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public int threshold(int a, int b) {
+        checkCurrent();
+        validateVertex(a);
+        validateVertex(b);
+        if (depth[a] < depth[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        int diff = depth[a] - depth[b];
+        for (int k = 0; diff != 0; k++, diff >>>= 1)
+            if ((diff & 1) != 0) a = up[k][a];
+        if (a == b) return weight[a];
+        for (int k = up.length - 1; k >= 0; k--) {
+            if (up[k][a] != up[k][b]) {
+                a = up[k][a];
+                b = up[k][b];
+            }
+        }
+        if (up[0][a] == a) return -1;       // two different roots
+        return weight[up[0][a]];
+    }
+
+    /**
+     * Are {@code a} and {@code b} connected using only cables of at least
+     * {@code minBandwidth} Mbps?
+     *
+     * @param  a one vertex
+     * @param  b the other vertex
+     * @param  minBandwidth the bandwidth threshold; a threshold of {@code 0}
+     *         or less asks whether they are connected at all
+     * @return {@code true} if {@code a} and {@code b} are connected at the threshold
+     * @throws IllegalArgumentException unless {@code 0 <= a, b < V}
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public boolean connected(int a, int b, int minBandwidth) {
+        // threshold() is -1 across components, so clamp: no threshold connects them
+        return threshold(a, b) >= Math.max(minBandwidth, 0);
+    }
+
+    /**
+     * Returns an identifier of the component containing {@code v} when only
+     * cables of at least {@code minBandwidth} Mbps are used. Two vertices
+     * have the same identifier at a threshold if and only if they are
+     * connected at it.
+     *
+     * @param  v the vertex
+     * @param  minBandwidth the bandwidth threshold
+     * @return the tree node of the component of {@code v}, between {@code 0}
+     *         and {@code 2V - 2}
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public int component(int v, int minBandwidth) {
+        checkCurrent();
+        validateVertex(v);
+        int x = v;
+        for (int k = up.length - 1; k >= 0; k--)
+            if (weight[up[k][x]] >= minBandwidth) x = up[k][x];
+        return x;
+    }
+
+    /**
+     * Returns the number of vertices in the component containing {@code v}
+     * when only cables of at least {@code minBandwidth} Mbps are used.
+     *
+     * @param  v the vertex
+     * @param  minBandwidth the bandwidth threshold
+     * @return the number of vertices connected to {@code v} at the threshold
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public int size(int v, int minBandwidth) {
+        return size[component(v, minBandwidth)];
+    }
+
+    /**
+     * Returns the number of components when only cables of at least
+     * {@code minBandwidth} Mbps are used.
+     *
+     * @param  minBandwidth the bandwidth threshold
+     * @return the number of components at the threshold
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public int count(int minBandwidth) {
+        checkCurrent();
+        // merge weights are non-increasing in creation order; count the
+        // merges of weight at least minBandwidth
+        int lo = V, hi = nodes;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (weight[mid] >= minBandwidth) lo = mid + 1;
+            else                             hi = mid;
+        }
+        return V - (lo - V);
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    // check that weights never increase towards the roots, that sizes add
+    // up, and that every cable connects its endpoints at its own bandwidth
+    private boolean check() {
+        int[] leaves = new int[nodes];
+        for (int x = 0; x < nodes; x++) {
+            int p = up[0][x];
+            if (x < V) leaves[x]++;
+            if (p == x) continue;
+            if (p <= x || weight[p] > weight[x]) {
+                System.err.println("node " + x + " is heavier than its parent " + p);
+                return false;
+            }
+            leaves[p] += leaves[x];
+            if (leaves[x] != size[x]) {
+                System.err.println("size of node " + x + " is " + size[x] + " instead of " + leaves[x]);
+                return false;
+            }
+        }
+        for (Edge e : graph().edges()) {
+            int v = e.either();
+            if (threshold(v, e.other(v)) < e.getBandwidth()) {
+                System.err.println("edge " + e + " does not connect its endpoints at its bandwidth");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Times random threshold queries, and at every distinct bandwidth
+     * compares them with the connected components of a filtered copy of
+     * the graph.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int V = g.V();
+
+        long start = System.nanoTime();
+        KruskalReconstructionTree tree = new KruskalReconstructionTree(g);
+        StdOut.printf("reconstruction tree of %d vertices, %d cables built in %.1f ms\n",
+                      V, g.E(), (System.nanoTime() - start) / 1e6);
+
+        int[] levels = new BandwidthIndex(g).bandwidths();
+        StdRandom.setSeed(42);
+        int[] a = new int[queries], b = new int[queries], x = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            a[q] = StdRandom.uniform(V);
+            b[q] = StdRandom.uniform(V);
+            x[q] = levels.length == 0 ? 0 : levels[StdRandom.uniform(levels.length)];
+        }
+        int yes = 0;
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++)
+            if (tree.connected(a[q], b[q], x[q])) yes++;
+        StdOut.printf("%d pairwise queries: %.0f ns each, %d connected\n",
+                      queries, (double) (System.nanoTime() - start) / queries, yes);
+
+        CC all = new CC(g);
+        for (int q = 0; q < queries; q++)
+            if (tree.connected(a[q], b[q], 0) != all.connected(a[q], b[q])
+                || tree.connected(a[q], b[q], -1) != all.connected(a[q], b[q]))
+                throw new IllegalStateException(a[q] + " and " + b[q] + " disagree on plain connectivity");
+
+        for (int min : levels) {
+            start = System.nanoTime();
+            CC cc = new CC(BandwidthIndex.filter(g, min));
+            double filteredMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            int count = tree.count(min);
+            double countNs = System.nanoTime() - start;
+            if (count != cc.count())
+                throw new IllegalStateException(count + " components at " + min + " Mbps instead of " + cc.count());
+            for (int q = 0; q < queries; q++) {
+                if (tree.connected(a[q], b[q], min) != cc.connected(a[q], b[q])
+                    || tree.size(a[q], min) != cc.size(a[q]))
+                    throw new IllegalStateException("components of " + a[q] + " and " + b[q]
+                                                    + " disagree at " + min + " Mbps");
+            }
+            StdOut.printf(">= %6d Mbps: %7d components   filtered copy + CC %8.1f ms   table %6.0f ns\n",
+                          min, count, filteredMs, countNs);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/******************************************************************************
+ *  Compilation:  javac LandmarkAStarSP.java
+ *  Execution:    java LandmarkAStarSP input.txt [landmarks] [queries]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java Landmarks.java
+ *                DoubleIndexMinPQ.java Stack.java DijkstraSP.java
+ *                BidirectionalDijkstraSP.java GraphLoader.java
+ *                StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Lowest-latency path between two vertices using A* search with landmark
+ *  lower bounds (ALT). Running it loads or computes input.txt.landmarks and
+ *  compares random queries against DijkstraSP and BidirectionalDijkstraSP.
+ *
+ *  % java LandmarkAStarSP big_network.txt 16 100
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code LandmarkAStarSP} class finds a lowest-latency path between a
+ *  source vertex <em>s</em> and a target vertex <em>t</em> with the A*
+ *  variant of Dijkstra's algorithm. Each vertex <em>v</em> is keyed by the
+ *  latency from <em>s</em> plus a lower bound on the latency from
+ *  <em>v</em> to <em>t</em> taken from a set of {@link Landmarks}, so the
+ *  search settles vertices in the direction of <em>t</em> first and stops
+ *  as soon as <em>t</em> is settled.
+ *  <p>
+ *  Landmark bounds are consistent, so the first time the search settles
+ *  <em>t</em> its distance is exact. How many vertices are settled on the way
+ *  depends on how well the landmarks cover the graph; {@link #settled()}
+ *  reports it for comparison with {@link DijkstraSP#settled()}.
+ *  <p>
+ *  The results match those of {@link BidirectionalDijkstraSP}, up to
+ *  floating-point rounding and the choice between tied paths.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+
+public class LandmarkAStarSP {
+    private final int t;
+    private double[] distTo;          // distTo[v] = latency of best s->v path found
+    private double[] bound;           // bound[v]  = landmark lower bound on v->t, or -1 if not computed yet
+    private Edge[] edgeTo;            // edgeTo[v] = last edge on that path
+    private DoubleIndexMinPQ pq;      // vertices keyed by distTo[v] + bound[v]
+    private int settled;              // number of vertices removed from pq
+
+    /**
+     * Computes a lowest-latency path from {@code s} to {@code t} in the
+     * edge-weighted graph {@code G}.
+     *
+     * @param  G the edge-weighted graph
+     * @param  L landmarks computed for {@code G}
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     * @throws IllegalArgumentException unless {@code 0 <= t < V}
+     */
+    public LandmarkAStarSP(EdgeWeightedGraph G, Landmarks L, int s, int t) {
+        int V = G.V();
+        validateVertex(s, V);
+        validateVertex(t, V);
+        this.t = t;
+
+        distTo = new double[V];
+        bound = new double[V];
+        edgeTo = new Edge[V];
+        for (int v = 0; v < V; v++) {
+            distTo[v] = Double.POSITIVE_INFINITY;
+            bound[v] = -1.0;
+        }
+        distTo[s] = 0.0;
+
+        pq = new DoubleIndexMinPQ(V);
+        pq.insert(s, boundTo(L, s));
+        while (!pq.isEmpty()) {
+            if (pq.minKey() == Double.POSITIVE_INFINITY) break;    // the landmarks say t is unreachable
+            int v = pq.delMin();
+            settled++;
+            if (v == t) break;
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                double latency = e.getLatency();
+                if (latency < 0)
+                    throw new IllegalArgumentException("edge " + e + " has negative weight");
+
+                if (distTo[w] > distTo[v] + latency) {
+                    distTo[w] = distTo[v] + latency;
+                    edgeTo[w] = e;
+                    double key = distTo[w] + boundTo(L, w);
+                    // a shorter distTo[w] can round to the same key once the bound is added
+                    if (!pq.contains(w))          pq.insert(w, key);
+                    else if (key < pq.keyOf(w))   pq.decreaseKey(w, key);
+                }
+            }
+        }
+    }
+
+    // lower bound on the latency from v to t, computed once per vertex
+    private double boundTo(Landmarks L, int v) {
+        if (bound[v] < 0) bound[v] = L.lowerBound(v, t);
+        return bound[v];
+    }
+
+    /**
+     * Returns the latency of a lowest-latency path from {@code s} to {@code t}.
+     *
+     * @return the latency of a lowest-latency path from {@code s} to {@code t};
+     *         {@code Double.POSITIVE_INFINITY} if no such path
+     */
+    public double distance() {
+        return distTo[t];
+    }
+
+    /**
+     * Returns true if there is a path from {@code s} to {@code t}.
+     *
+     * @return {@code true} if there is a path from {@code s} to {@code t};
+     *         {@code false} otherwise
+     */
+    public boolean hasPath() {
+        return distTo[t] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a lowest-latency path from {@code s} to {@code t}.
+     *
+     * @return a lowest-latency path from {@code s} to {@code t} as an iterable
+     *         of edges in order from {@code s}, and {@code null} if no such path
+     */
+    public Iterable<Edge> path() {
+        if (!hasPath()) return null;
+        Stack<Edge> path = new Stack<Edge>();
+        for (int v = t; edgeTo[v] != null; v = edgeTo[v].other(v))
+            path.push(edgeTo[v]);
+        return path;
+    }
+
+    /**
+     * Returns the smallest bandwidth of any cable on {@code path()}.
+     *
+     * @return the bottleneck bandwidth of the path; {@code Integer.MAX_VALUE}
+     *         if {@code s == t}, and {@code 0} if there is no path
+     */
+    public int bottleneck() {
+        if (!hasPath()) return 0;
+        int min = Integer.MAX_VALUE;
+        for (Edge e : path())
+            min = Math.min(min, e.getBandwidth());
+        return min;
+    }
+
+    /**
+     * Returns the number of vertices removed from the priority queue.
+     *
+     * @return the number of settled vertices
+     */
+    public int settled() {
+        return settled;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private static void validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Unit tests the {@code LandmarkAStarSP} data type, and compares random
+     * queries against {@code DijkstraSP} and {@code BidirectionalDijkstraSP}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        long start = System.nanoTime();
+        Landmarks L = Landmarks.open(args[0] + ".landmarks", g, Math.min(k, g.V()));
+        StdOut.printf("%d landmarks ready in %.1f ms\n", L.count(), (System.nanoTime() - start) / 1e6);
+
+        StdRandom.setSeed(42);
+        long uni = 0, bi = 0, alt = 0, settledUni = 0, settledBi = 0, settledAlt = 0;
+        for (int q = 0; q < queries; q++) {
+            int s = StdRandom.uniform(g.V()), t = StdRandom.uniform(g.V());
+
+            start = System.nanoTime();
+            DijkstraSP a = new DijkstraSP(g, s, t);
+            uni += System.nanoTime() - start;
+            start = System.nanoTime();
+            BidirectionalDijkstraSP b = new BidirectionalDijkstraSP(g, s, t);
+            bi += System.nanoTime() - start;
+            start = System.nanoTime();
+            LandmarkAStarSP c = new LandmarkAStarSP(g, L, s, t);
+            alt += System.nanoTime() - start;
+
+            double expected = a.distTo(t);
+            if (a.hasPathTo(t) != c.hasPath() || Math.abs(expected - c.distance()) > 1e-9 * expected)
+                throw new IllegalStateException("searches disagree from " + s + " to " + t);
+            settledUni += a.settled();
+            settledBi += b.settled();
+            settledAlt += c.settled();
+
+            if (q == 0) {
+                StdOut.printf("%d to %d (%.8f)  ", s, t, c.distance());
+                if (c.hasPath()) for (Edge e : c.path()) StdOut.print(e + "   ");
+                StdOut.println();
+            }
+        }
+        StdOut.printf("%d queries, ms/query (settled):  DijkstraSP %.2f (%d)   bidirectional %.2f (%d)   ALT %.2f (%d)\n",
+                      queries, uni / 1e6 / queries, settledUni / queries, bi / 1e6 / queries, settledBi / queries,
+                      alt / 1e6 / queries, settledAlt / queries);
+    }
+}
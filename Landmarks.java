@@ -0,0 +1,286 @@
+/******************************************************************************
+ *  Compilation:  javac Landmarks.java
+ *  Execution:    java Landmarks input.txt k output.landmarks
+ *  Dependencies: EdgeWeightedGraph.java Edge.java DijkstraSP.java
+ *                GraphLoader.java StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Chooses landmark vertices and records the latency from each of them to
+ *  every vertex, for use as A* lower bounds by LandmarkAStarSP.
+ *
+ *  % java Landmarks big_network.txt 16 big_network.landmarks
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code Landmarks} class holds the preprocessing for <em>ALT</em>
+ *  (A*, landmarks and triangle inequality) lowest-latency queries: a small
+ *  set of landmark vertices <em>L</em>, and for each of them the latency
+ *  <em>d</em>(<em>L</em>, <em>v</em>) of a lowest-latency path to every
+ *  vertex <em>v</em>, computed with {@link DijkstraSP}.
+ *  <p>
+ *  Because the graph is undirected, the triangle inequality gives
+ *  |<em>d</em>(<em>L</em>, <em>t</em>) &minus; <em>d</em>(<em>L</em>, <em>v</em>)|
+ *  &le; <em>d</em>(<em>v</em>, <em>t</em>) for every landmark, and
+ *  {@link #lowerBound(int, int)} returns the largest of these bounds.
+ *  {@link LandmarkAStarSP} uses it to steer its search towards the target.
+ *  <p>
+ *  Landmarks are chosen greedily: the first is the vertex farthest from a
+ *  random start vertex, and each later one is the vertex farthest from
+ *  all landmarks chosen so far. Vertices no landmark can reach count as
+ *  infinitely far, so every connected component gets a landmark before any
+ *  component gets a second one.
+ *  <p>
+ *  Preprocessing runs <em>k</em> + 1 full Dijkstra searches and takes
+ *  space proportional to <em>k V</em>. The result can be saved with
+ *  {@link #write(String)} next to the graph file and loaded again with
+ *  {@link #read(String, EdgeWeightedGraph)}, which checks that it was built
+ *  for the same graph.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class Landmarks {
+    private static final int MAGIC   = 0x4E45544C;      // "NETL"
+    private static final int VERSION = 1;
+    private static final int HEADER  = 32;
+
+    private final int V;
+    private final int E;
+    private final double fingerprint;   // sum of all edge latencies of the graph
+    private final int[] landmark;       // landmark[i] = the ith landmark vertex
+    private final double[][] dist;      // dist[i][v]  = latency from landmark[i] to v
+
+    /**
+     * Chooses {@code k} landmarks in the graph {@code G} and computes the
+     * latency from each of them to every vertex.
+     *
+     * @param  G the edge-weighted graph
+     * @param  k the number of landmarks
+     * @throws IllegalArgumentException unless {@code 1 <= k <= V}
+     */
+    public Landmarks(EdgeWeightedGraph G, int k) {
+        V = G.V();
+        E = G.E();
+        if (k < 1 || k > V) throw new IllegalArgumentException("number of landmarks must be between 1 and " + V);
+        fingerprint = G.fingerprint();
+        landmark = new int[k];
+        dist = new double[k][];
+
+        // closest[v] = latency from v to the nearest landmark chosen so far
+        double[] closest = distances(G, StdRandom.uniform(V));
+        for (int v = 0; v < V; v++)
+            if (closest[v] == Double.POSITIVE_INFINITY) closest[v] = 0.0;   // first landmark stays in the start's component
+        for (int i = 0; i < k; i++) {
+            int far = 0;
+            for (int v = 1; v < V; v++)
+                if (closest[v] > closest[far]) far = v;
+            landmark[i] = far;
+            dist[i] = distances(G, far);
+            for (int v = 0; v < V; v++)
+                closest[v] = (i == 0) ? dist[i][v] : Math.min(closest[v], dist[i][v]);
+        }
+    }
+
+    private Landmarks(int V, int E, double fingerprint, int[] landmark, double[][] dist) {
+        this.V = V;
+        this.E = E;
+        this.fingerprint = fingerprint;
+        this.landmark = landmark;
+        this.dist = dist;
+    }
+
+    // latency from s to every vertex
+    private static double[] distances(EdgeWeightedGraph G, int s) {
+        DijkstraSP sp = new DijkstraSP(G, s);
+        double[] d = new double[G.V()];
+        for (int v = 0; v < G.V(); v++)
+            d[v] = sp.distTo(v);
+        return d;
+    }
+
+    /**
+     * Returns the number of landmarks.
+     *
+     * @return the number of landmarks
+     */
+    public int count() {
+        return landmark.length;
+    }
+
+    /**
+     * Returns the {@code i}th landmark vertex.
+     *
+     * @param  i the landmark number
+     * @return the {@code i}th landmark vertex
+     */
+    public int landmark(int i) {
+        return landmark[i];
+    }
+
+    /**
+     * Returns the latency of a lowest-latency path between the {@code i}th
+     * landmark and vertex {@code v}.
+     *
+     * @param  i the landmark number
+     * @param  v the vertex
+     * @return the latency between the {@code i}th landmark and {@code v};
+     *         {@code Double.POSITIVE_INFINITY} if they are not connected
+     */
+    public double distance(int i, int v) {
+        return dist[i][v];
+    }
+
+    /**
+     * Returns a lower bound on the latency of any path between {@code v}
+     * and {@code t}.
+     *
+     * @param  v one vertex
+     * @param  t the other vertex
+     * @return a lower bound on the latency between {@code v} and {@code t};
+     *         {@code Double.POSITIVE_INFINITY} if a landmark shows that they
+     *         are not connected
+     */
+    public double lowerBound(int v, int t) {
+        double bound = 0.0;
+        for (int i = 0; i < landmark.length; i++) {
+            double dv = dist[i][v], dt = dist[i][t];
+            if (dv == Double.POSITIVE_INFINITY || dt == Double.POSITIVE_INFINITY) {
+                if (dv != dt) return Double.POSITIVE_INFINITY;  // exactly one of them is in this landmark's component
+                continue;
+            }
+            double b = dv > dt ? dv - dt : dt - dv;
+            if (b > bound) bound = b;
+        }
+        return bound;
+    }
+
+    /**
+     * Writes the landmarks to the named file.
+     *
+     * @param  filename the name of the landmark file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String filename) throws IOException {
+        int k = landmark.length;
+        long size = HEADER + 4L * k + 8L * k * V;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many landmarks for a single file mapping");
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(size);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(E).putDouble(fingerprint).putInt(k).putInt(0);
+            for (int i = 0; i < k; i++) buf.putInt(landmark[i]);
+            for (int i = 0; i < k; i++) {
+                buf.asDoubleBuffer().put(dist[i]);
+                buf.position(buf.position() + 8 * V);
+            }
+            buf.force();
+        }
+    }
+
+    /**
+     * Reads landmarks for the graph {@code G} from the named file.
+     *
+     * @param  filename the name of the landmark file
+     * @param  G the graph the landmarks were computed for
+     * @return the landmarks stored in the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid landmark
+     *         file, or was computed for a different graph
+     */
+    public static Landmarks read(String filename, EdgeWeightedGraph G) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER || fileSize > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(filename + " is not a landmark file");
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC)
+                throw new IllegalArgumentException(filename + " is not a landmark file");
+            int version = buf.getInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("unsupported landmark file version " + version);
+            int V = buf.getInt();
+            int E = buf.getInt();
+            double fingerprint = buf.getDouble();
+            int k = buf.getInt();
+            buf.getInt();
+            if (V != G.V() || E != G.E() || fingerprint != G.fingerprint())
+                throw new IllegalArgumentException("landmark file " + filename + " was computed for a different graph");
+            if (k < 1 || k > V || HEADER + 4L * k + 8L * k * V != fileSize)
+                throw new IllegalArgumentException("landmark file " + filename + " is truncated or corrupt");
+
+            int[] landmark = new int[k];
+            for (int i = 0; i < k; i++) {
+                landmark[i] = buf.getInt();
+                if (landmark[i] < 0 || landmark[i] >= V)
+                    throw new IllegalArgumentException("landmark file " + filename + " is truncated or corrupt");
+            }
+            double[][] dist = new double[k][V];
+            for (int i = 0; i < k; i++) {
+                buf.asDoubleBuffer().get(dist[i]);
+                buf.position(buf.position() + 8 * V);
+            }
+            return new Landmarks(V, E, fingerprint, landmark, dist);
+        }
+    }
+
+    /**
+     * Returns the landmarks stored in the named file if it exists and was
+     * computed for {@code G}; otherwise computes {@code k} new landmarks and
+     * saves them to that file.
+     *
+     * @param  filename the name of the landmark file
+     * @param  G the edge-weighted graph
+     * @param  k the number of landmarks to compute if the file cannot be used
+     * @return the landmarks for {@code G}
+     * @throws IOException if the file cannot be written
+     */
+    public static Landmarks open(String filename, EdgeWeightedGraph G, int k) throws IOException {
+        if (new File(filename).isFile()) {
+            try {
+                return read(filename, G);
+            }
+            catch (IllegalArgumentException stale) {
+                // fall through and recompute
+            }
+        }
+        Landmarks L = new Landmarks(G, k);
+        L.write(filename);
+        return L;
+    }
+
+    /**
+     * Computes landmarks for a graph and saves them.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int k = Integer.parseInt(args[1]);
+        long start = System.nanoTime();
+        Landmarks L = new Landmarks(g, k);
+        L.write(args[2]);
+        StdOut.printf("%d landmarks in %.1f ms:", k, (System.nanoTime() - start) / 1e6);
+        for (int i = 0; i < k; i++)
+            StdOut.print(" " + L.landmark(i));
+        StdOut.println();
+
+        Landmarks copy = read(args[2], g);
+        for (int i = 0; i < k; i++)
+            for (int v = 0; v < g.V(); v++)
+                if (Double.compare(copy.distance(i, v), L.distance(i, v)) != 0 || copy.landmark(i) != L.landmark(i))
+                    throw new IllegalStateException("landmark file does not round-trip");
+    }
+}
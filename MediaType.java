@@ -0,0 +1,166 @@
+/******************************************************************************
+ *  Compilation:  javac MediaType.java
+ *  Execution:    java MediaType
+ *  Dependencies: StdOut.java
+ *
+ *  The table of cable types and their propagation speeds.
+ *
+ *  % java MediaType
+ *  0 copper  230000000.0 m/s
+ *  1 optical 200000000.0 m/s
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code MediaType} class maintains the table of cable (media) types
+ *  known to the program, and the speed at which a data packet propagates
+ *  along each of them. Each type is identified by a small integer
+ *  <em>code</em>, which is what {@link Edge} stores; algorithms compare codes
+ *  instead of type names, and read the per-edge latency that {@code Edge}
+ *  computes from this table when it is constructed.
+ *  <p>
+ *  The table initially holds {@code copper} (230,000,000 m/s) and
+ *  {@code optical} (200,000,000 m/s). Further types can be added with
+ *  {@link #register(String, double)} before any edge of that type is
+ *  created. Registered speeds cannot be changed afterwards, since edges
+ *  cache their latency.
+ *  <p>
+ *  Latencies are also available in fixed point, as whole picosecond
+ *  <em>ticks</em> from {@link #ticks(byte, double)}; sums of ticks are
+ *  exact, which lets shortest-path code compare them with {@code ==}.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.util.Arrays;
+
+public final class MediaType {
+
+    /** The code of the {@code copper} cable type. */
+    public static final byte COPPER  = 0;
+
+    /** The code of the {@code optical} cable type. */
+    public static final byte OPTICAL = 1;
+
+    /** The number of latency ticks in one second: ticks are picoseconds. */
+    public static final long TICKS_PER_SECOND = 1000000000000L;
+
+    private static final int MAX_TYPES = Byte.MAX_VALUE + 1;
+
+    // replaced wholesale on register(), so readers never see a partial update
+    private static volatile String[] names  = { "copper", "optical" };
+    private static volatile double[] speeds = { 230000000, 200000000 };
+
+    // this class should not be instantiated
+    private MediaType() { }
+
+    /**
+     * Adds a cable type to the table, or returns the code of an existing
+     * type with the same name and speed.
+     *
+     * @param  name the name of the cable type, as it appears in network_data files
+     * @param  speed the propagation speed along the cable, in meters per second
+     * @return the code of the cable type
+     * @throws IllegalArgumentException if {@code speed} is not positive, if
+     *         {@code name} is already registered with a different speed, or
+     *         if the table is full
+     */
+    public static synchronized byte register(String name, double speed) {
+        if (!(speed > 0) || Double.isInfinite(speed))
+            throw new IllegalArgumentException("speed must be positive");
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                if (speeds[i] != speed)
+                    throw new IllegalArgumentException("cable type " + name + " is already registered at " + speeds[i] + " m/s");
+                return (byte) i;
+            }
+        }
+        if (names.length == MAX_TYPES) throw new IllegalArgumentException("too many cable types");
+        String[] n = Arrays.copyOf(names, names.length + 1);
+        double[] s = Arrays.copyOf(speeds, speeds.length + 1);
+        n[n.length - 1] = name;
+        s[s.length - 1] = speed;
+        speeds = s;
+        names = n;
+        return (byte) (n.length - 1);
+    }
+
+    /**
+     * Returns the code of the named cable type.
+     *
+     * @param  name the name of the cable type
+     * @return the code of the cable type
+     * @throws IllegalArgumentException if the type is not registered
+     */
+    public static byte code(String name) {
+        String[] n = names;
+        for (int i = 0; i < n.length; i++) {
+            if (n[i].equals(name)) return (byte) i;
+        }
+        throw new IllegalArgumentException("type must be one of " + String.join(", ", n));
+    }
+
+    /**
+     * Returns the name of the cable type with the given code.
+     *
+     * @param  code the code of the cable type
+     * @return the name of the cable type
+     * @throws IllegalArgumentException if no type has this code
+     */
+    public static String name(byte code) {
+        validate(code);
+        return names[code];
+    }
+
+    /**
+     * Returns the propagation speed along the cable type with the given code.
+     *
+     * @param  code the code of the cable type
+     * @return the speed, in meters per second
+     * @throws IllegalArgumentException if no type has this code
+     */
+    public static double speed(byte code) {
+        validate(code);
+        return speeds[code];
+    }
+
+    /**
+     * Returns the time a packet takes to cross {@code length} meters of the
+     * cable type with the given code, as a whole number of ticks (see
+     * {@link #TICKS_PER_SECOND}), rounded to the nearest tick.
+     *
+     * @param  code the code of the cable type
+     * @param  length the length of the cable, in meters
+     * @return the latency of the cable, in ticks
+     * @throws IllegalArgumentException if no type has this code
+     */
+    public static long ticks(byte code, double length) {
+        return Math.round(length * TICKS_PER_SECOND / speed(code));
+    }
+
+    /**
+     * Returns the number of registered cable types. Codes run from
+     * {@code 0} through {@code count() - 1}.
+     *
+     * @return the number of registered cable types
+     */
+    public static int count() {
+        return names.length;
+    }
+
+    private static void validate(byte code) {
+        if (code < 0 || code >= names.length)
+            throw new IllegalArgumentException("unknown cable type code " + code);
+    }
+
+    /**
+     * Prints the table of cable types.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        for (int i = 0; i < count(); i++) {
+            StdOut.printf("%d %-7s %.1f m/s\n", i, name((byte) i), speed((byte) i));
+        }
+    }
+}
@@ -4,49 +4,35 @@
 import dependencies.*;
 import java.util.Scanner;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Arrays;
+import java.io.IOException;
 
 public class NetworkAnalysis {
+
+	private static final long PARALLEL_LOAD_BYTES = 64L << 20; // Text files larger than this are parsed on all cores
+	private static final Scanner reader = new Scanner(System.in); // Scanner acts as our input reader from the keyboard, shared by every option
+	private static final double MAX_CORE_FRACTION = 0.05; // A hierarchy with a larger core answers queries no faster than BidirectionalDijkstraSP
+	private static volatile ContractionHierarchy hierarchy; // Built in the background at startup, and kept only if its core is small
+	private static WidestPath widest; // Built on the first widest-path query, then reused by every later one
 	
-	public static void main(String[] args) throws FileNotFoundException, IllegalArgumentException {
+	public static void main(String[] args) throws IOException, IllegalArgumentException {
 
-		Scanner reader = new Scanner(new File(args[0]));
-		
-		//System.out.println("---Network Info---");
-		EdgeWeightedGraph g = new EdgeWeightedGraph(reader.nextInt()); // Set scanner to read in info from file
+		EdgeWeightedGraph g;
+		if (GraphSnapshot.isSnapshot(args[0])) g = CSRGraph.open(args[0]); // Binary snapshot written by GraphSnapshot
+		else if (new File(args[0]).length() > PARALLEL_LOAD_BYTES) g = new CSRGraph(GraphLoader.loadParallel(args[0]));
+		else                                   g = new CSRGraph(GraphLoader.load(args[0])); // Reads in all data in from file, abiding by the predetermined format
+		// The graph is only queried from here on, so it is frozen into array-based (CSR) adjacency lists
 		//System.out.println("# of Vertices: "+g.V()+"\n");
-		int v,w;
-		String type;
-		int bandwidth;
-		double length;
-
-		while(reader.hasNextLine()) {    // Reads in all data in from file, abiding by the predetermined format
-			v = reader.nextInt();
-			if (v < 0 || v >= g.V())
-				throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (g.V()-1));
-			w = reader.nextInt();
-			if (w < 0 || w >= g.V())
-				throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (g.V()-1));
-				
-				type = reader.next();
-		   bandwidth = reader.nextInt();
-		      length = reader.nextDouble();
-		    //System.out.println("V: "+v+"\nW: "+w+"\nEdge Type: "+type+"\nBandwidth: "+bandwidth+"\nLength: "+length+"\n");
-		    g.addEdge(new Edge(v, w, type, bandwidth, length));
-		}
-
-		reader = new Scanner(System.in); // Reset scanner to act as our input reader from the keyboard
+		prebuildHierarchy(g);
 
 		int choice;
 		while(true) {  // Program Loop
 			System.out.println("What would you like to do?");
-			System.out.println("\t1. Find Lowest Latency Path\n\t2. Determine Copper-Only Connection\n\t3. Find Max Bandwidth Path\n\t4. Find Lowest Avg. Latency ST\n\t5. Determine Articulation Points\n\t6. Quit\n");
+			System.out.println("\t1. Find Lowest Latency Path\n\t2. Determine Copper-Only Connection\n\t3. Find Max Bandwidth Path\n\t4. Find Lowest Avg. Latency ST\n\t5. Determine Articulation Points\n\t6. Run Batch Latency Queries\n\t7. Find Widest (Bottleneck Bandwidth) Path\n\t8. Find Latency/Bandwidth Trade-offs\n\t9. Quit\n");
 			while (true) { // Ensures valid input
 				System.out.print("Select a number to choose an option: ");
 				choice = reader.nextInt();
-				if(choice < 1 || choice > 6) 
-				 	System.out.println("\n!! Invalid choice - please select an option between 1 and 6. !!\n");
+				if(choice < 1 || choice > 9) 
+				 	System.out.println("\n!! Invalid choice - please select an option between 1 and 9. !!\n");
 				else {
 					reader.nextLine();
 					break;
@@ -57,15 +43,16 @@ public class NetworkAnalysis {
 			else if (choice == 3) maxFlow(g);
 			else if (choice == 4) lowestAvgLatencyMST(g);
 			else if (choice == 5) articulationPoints(g);
-			else if (choice == 6) break;
+			else if (choice == 6) batchLatencyQueries(g);
+			else if (choice == 7) widestPath(g);
+			else if (choice == 8) latencyBandwidthTradeoffs(g);
+			else if (choice == 9) break;
 		}
 	}
 
-	// latency = length / bandwidth
-	// PROBLEM: won't find path if v > w, probably only checking adj[v] instead of adj[v] and adj[w]
+	// latency = length / propagation speed of the cable type
 	private static void lowestLatencyPath(EdgeWeightedGraph g) throws IllegalArgumentException {
 		
-		Scanner reader = new Scanner(System.in);
 		int v, w;
 
 		System.out.print("Please enter the starting vertex: ");
@@ -77,28 +64,108 @@ public class NetworkAnalysis {
 		if (w < 0 || w >= g.V())
 			throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (g.V()-1));
 		
-		DijkstraSP dsp = new DijkstraSP(g,v);
-		int[] temp = new int[g.E()];
-		int size = 0;
-
-        // print shortest path
-        if (dsp.hasPathTo(w)) {
-                StdOut.printf("\n%d to %d (%.2f)  ", v, w, dsp.distTo(w));
-                for (Edge e : dsp.pathTo(w)) {
-                    temp[size++] = e.getBandwidth();
-                    StdOut.print(e + "   ");
+		ContractionHierarchy ch = hierarchy;
+		if (ch == null) { // Until (or unless) a hierarchy is ready
+			BidirectionalDijkstraSP dsp = new BidirectionalDijkstraSP(g, v, w); // Searches from both ends until the two searches meet
+			if (dsp.hasPath()) printPath(v, w, dsp.distance(), dsp.path(), dsp.bottleneck());
+			else StdOut.printf("%d to %d         no path\n\n", v, w);
+			return;
+		}
+		ContractionHierarchy.Path p = ch.path(v, w); // Only searches upwards in the contraction order
+		if (p != null) printPath(v, w, p.latency(), p, p.bandwidth());
+		else StdOut.printf("%d to %d         no path\n\n", v, w);
+    }
+
+	// print shortest path
+	private static void printPath(int v, int w, double latency, Iterable<Edge> path, int bandwidth) {
+		StdOut.printf("\n%d to %d (%.2f)  ", v, w, latency);
+		for (Edge e : path) {
+			StdOut.print(e + "   ");
+		}
+		StdOut.println();
+		if (v != w) System.out.println("Minimum Bandwidth: "+bandwidth+"\n");
+	}
+
+	// contraction hierarchy preprocessing takes seconds, so it runs on a background thread while option 1 uses
+	// bidirectional Dijkstra; on random topologies most of the graph stays in the core and the hierarchy is dropped
+	private static void prebuildHierarchy(EdgeWeightedGraph g) {
+		Thread builder = new Thread(() -> {
+			ContractionHierarchy ch = new ContractionHierarchy(g);
+			if (ch.coreSize() <= MAX_CORE_FRACTION * g.V()) hierarchy = ch;
+		}, "hierarchy-builder");
+		builder.setDaemon(true); // Never keeps the program from quitting
+		builder.setPriority(Thread.MIN_PRIORITY);
+		builder.start();
+	}
+
+	// every path that no other path beats on both latency and bandwidth; a full label search, so kept off option 1
+	private static void latencyBandwidthTradeoffs(EdgeWeightedGraph g) throws IllegalArgumentException {
+
+		System.out.print("Please enter the starting vertex: ");
+		int v = reader.nextInt();
+		if (v < 0 || v >= g.V())
+			throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (g.V()-1));
+		System.out.print("Please enter the ending vertex: ");
+		int w = reader.nextInt();
+		if (w < 0 || w >= g.V())
+			throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (g.V()-1));
+
+		ParetoSP frontier = new ParetoSP(g, v, w, QueryWorkspace.forThread(g.V()));
+        if (frontier.size() > 0) {
+                StdOut.printf("\n%d to %d: %d paths, fastest first\n", v, w, frontier.size());
+                for (ParetoSP.Path p : frontier) {
+                    StdOut.printf("  (%.2f) %d Mbps  ", p.latency(), p.bandwidth());
+                    for (Edge e : p) {
+                        StdOut.print(e + "   ");
+                    }
+                    StdOut.println();
                 }
                 StdOut.println();
         }
-        else StdOut.printf("%d to %d         no path\n", v, w);
+        else StdOut.printf("%d to %d         no path\n\n", v, w);
+	}
 
-        int[] bandwidths = new int[size];
-        for(int count = 0; count < size; count++)
-        	bandwidths[count] = temp[count];
+	// the path whose slowest cable is as fast as possible, read off a maximum spanning forest on bandwidth
+	private static void widestPath(EdgeWeightedGraph g) throws IllegalArgumentException {
 
-        Arrays.sort(bandwidths);
-        System.out.println("Minimum Bandwidth: "+bandwidths[0]+"\n");
-    }
+		System.out.print("Please enter the starting vertex: ");
+		int v = reader.nextInt();
+		if (v < 0 || v >= g.V())
+			throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (g.V()-1));
+		System.out.print("Please enter the ending vertex: ");
+		int w = reader.nextInt();
+		if (w < 0 || w >= g.V())
+			throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (g.V()-1));
+
+		if (widest == null) {
+			long start = System.nanoTime();
+			widest = new WidestPath(g); // One-off preprocessing so that every query is a logarithmic table lookup
+			StdOut.printf("Widest-path forest built in %.1f ms\n", (System.nanoTime() - start) / 1e6);
+		}
+
+        if (widest.connected(v, w)) {
+                if (v != w) StdOut.printf("\n%d to %d (%d Mbps)  ", v, w, widest.bottleneck(v, w));
+                else        StdOut.printf("\n%d to %d  ", v, w);
+                for (Edge e : widest.pathTo(v, w)) {
+                    StdOut.print(e + "   ");
+                }
+                StdOut.println("\n");
+        }
+        else StdOut.printf("%d to %d         no path\n\n", v, w);
+	}
+
+	// one shortest-paths tree per distinct source, answers written to a file instead of the console
+	private static void batchLatencyQueries(EdgeWeightedGraph g) throws IOException {
+		
+		System.out.print("Please enter the query file (one \"source destination\" pair per line): ");
+		String queries = reader.next();
+		System.out.print("Please enter the output file: ");
+		String output = reader.next();
+
+		long start = System.nanoTime();
+		int n = BatchLatencyQueries.run(g, queries, output);
+		StdOut.printf("\n%d queries answered in %.1f ms, written to %s\n\n", n, (System.nanoTime() - start) / 1e6, output);
+	}
 
 	private static void copperOnlyConnection(EdgeWeightedGraph g) {
 		
@@ -111,18 +178,18 @@ public class NetworkAnalysis {
         StdOut.println(m + " components");
 
         // compute list of vertices in each connected component
-        Queue<Integer>[] components = (Queue<Integer>[]) new Queue[m];
+        IntBag[] components = new IntBag[m];
         for (int i = 0; i < m; i++) {
-            components[i] = new Queue<Integer>();
+            components[i] = new IntBag();
         }
         for (int j = 0; j < g.V(); j++) {
-            components[cc.id(j)].enqueue(j);
+            components[cc.id(j)].add(j);
         }
 
         // print results
         for (int i = 0; i < m; i++) {
-            for (int j : components[i]) {
-                StdOut.print(j + " ");
+            for (int k = 0; k < components[i].size(); k++) {
+                StdOut.print(components[i].get(k) + " ");
             }
             StdOut.println();
         }
@@ -131,11 +198,7 @@ public class NetworkAnalysis {
 	private static void maxFlow(EdgeWeightedGraph g) {
 
 		FlowNetwork f = new FlowNetwork(g.V());
-		Iterable<Edge> edges = g.edges();
-		for(Edge e : edges) 
-			f.addEdge( new FlowEdge(e.either(),e.other(e.either()),e.getBandwidth()) );
-        
-		Scanner reader = new Scanner(System.in);
+		g.forEachEdge((id, e) -> f.addEdge( new FlowEdge(e.either(),e.other(e.either()),e.getBandwidth()) ));
 
         System.out.print("Please enter the starting vertex: ");
 		int v = reader.nextInt();
@@ -146,7 +209,7 @@ public class NetworkAnalysis {
 		if (w < 0 || w >= f.V())
 			throw new IllegalArgumentException("vertex " + w + " is not between 0 and " + (f.V()-1));
 
-		FordFulkerson maxflow = new FordFulkerson(f, v, w);
+		Dinic maxflow = new Dinic(f, v, w);
         StdOut.println("\nMax flow from " + v + " to " + w);
         for (int j = 0; j < f.V(); j++) {
             for (FlowEdge e : f.adj(j)) {
@@ -178,6 +241,7 @@ public class NetworkAnalysis {
 		boolean repeatedPair = false;
 		EdgeWeightedGraph u;
 		CC cc;
+		QueryWorkspace ws = QueryWorkspace.forThread(g.V()); // Shared by every pair, so each CC run allocates nothing
 		int[] vertsToRemove = new int[2];
 
 		for(int i = 0; i < g.V() - 1; i++) {	    // For all but the last vertex..
@@ -189,7 +253,8 @@ public class NetworkAnalysis {
 					repeatedPair = false;
 				}
 				vertsToRemove[1] = j;		   	    				// Signal to remove vertex j from the graph.
-				for(Edge e : g.edges()) {	   	   					// Now iterate over all the edges of the original graph:
+				for(int id = 0; id < g.E(); id++) {	   	   			// Now iterate over all the edges of the original graph:
+					Edge e = g.edge(id);
 					System.out.println(e.either() + " " + e.other(e.either()));
 					if (vertsToRemove[0] == e.either() ||   		// If an edge connects to one of the vertices we want to remove,
 					    vertsToRemove[1] == e.either() ||   		// we don't add that edge to the graph, thus, removing the vertex from consideration.
@@ -200,7 +265,7 @@ public class NetworkAnalysis {
 					}
 					else u.addEdge(e);
 				}
-				cc = new CC(u);						// Pass new graph through connected component object
+				cc = new CC(u, ws);					// Pass new graph through connected component object
 				// number of connected components
 		        int numOfComponents = cc.count();	// Return the number of components
 		        if(numOfComponents > 1) {			// If more than one component, then graph became disconnected upon removing the vertice pair
@@ -0,0 +1,118 @@
+/******************************************************************************
+ *  Compilation:  javac NetworkGenerator.java
+ *  Execution:    java NetworkGenerator V E seed filename.txt
+ *  Dependencies: EdgeWeightedGraph.java Edge.java StdRandom.java
+ *
+ *  Generates random network topologies in the network_data file format,
+ *  for benchmarking the loaders and the query engines on large inputs.
+ *
+ *  % java NetworkGenerator 1000000 4000000 42 big_network.txt
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code NetworkGenerator} class provides static methods for creating
+ *  random connected networks of switches. The first <em>V</em> – 1 cables
+ *  form a random spanning tree (so every pair of switches is connected);
+ *  the remaining cables join uniformly random pairs of distinct switches.
+ *  Cable types, bandwidths and lengths are drawn uniformly at random.
+ *  <p>
+ *  Generation is deterministic for a given seed.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class NetworkGenerator {
+    private static final String[] TYPES = { "copper", "optical" };
+    private static final int[] BANDWIDTHS = { 100, 1000, 10000 };
+    private static final int MAX_LENGTH = 1000;
+
+    // this class should not be instantiated
+    private NetworkGenerator() { }
+
+    /**
+     * Returns a random connected network with {@code V} vertices and {@code E} edges.
+     *
+     * @param  V the number of vertices
+     * @param  E the number of edges
+     * @param  seed the seed for the random number generator
+     * @return a random connected network
+     * @throws IllegalArgumentException if {@code V < 1} or {@code E < V-1}
+     */
+    public static EdgeWeightedGraph generate(int V, int E, long seed) {
+        validate(V, E);
+        EdgeWeightedGraph g = new EdgeWeightedGraph(V);
+        StdRandom.setSeed(seed);
+        for (int i = 0; i < E; i++) {
+            int v = tail(i, V);
+            int w = head(i, v, V);
+            g.addEdge(new Edge(v, w, TYPES[StdRandom.uniform(TYPES.length)],
+                               BANDWIDTHS[StdRandom.uniform(BANDWIDTHS.length)],
+                               1 + StdRandom.uniform(MAX_LENGTH)));
+        }
+        return g;
+    }
+
+    /**
+     * Writes a random connected network with {@code V} vertices and {@code E} edges
+     * to the named file, in the network_data file format.
+     *
+     * @param  V the number of vertices
+     * @param  E the number of edges
+     * @param  seed the seed for the random number generator
+     * @param  filename the name of the file to write
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if {@code V < 1} or {@code E < V-1}
+     */
+    public static void write(int V, int E, long seed, String filename) throws IOException {
+        validate(V, E);
+        StdRandom.setSeed(seed);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            out.write(Integer.toString(V));
+            out.newLine();
+            for (int i = 0; i < E; i++) {
+                int v = tail(i, V);
+                int w = head(i, v, V);
+                out.write(v + " " + w + " " + TYPES[StdRandom.uniform(TYPES.length)] + " "
+                          + BANDWIDTHS[StdRandom.uniform(BANDWIDTHS.length)] + " "
+                          + (1 + StdRandom.uniform(MAX_LENGTH)));
+                out.newLine();
+            }
+        }
+    }
+
+    // the first V-1 edges attach vertex i+1 to the tree on vertices 0..i
+    private static int tail(int i, int V) {
+        if (i < V - 1) return i + 1;
+        return StdRandom.uniform(V);
+    }
+
+    private static int head(int i, int v, int V) {
+        if (i < V - 1) return StdRandom.uniform(v);
+        int w = StdRandom.uniform(V);
+        while (w == v && V > 1) w = StdRandom.uniform(V);
+        return w;
+    }
+
+    private static void validate(int V, int E) {
+        if (V < 1) throw new IllegalArgumentException("Number of vertices must be positive");
+        if (E < V - 1) throw new IllegalArgumentException("Need at least V-1 edges for a connected network");
+    }
+
+    /**
+     * Writes a random network to the file named on the command line.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        int V = Integer.parseInt(args[0]);
+        int E = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        write(V, E, seed, args[3]);
+        StdOut.println("wrote " + V + " vertices and " + E + " edges to " + args[3]);
+    }
+}
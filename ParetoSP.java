@@ -0,0 +1,437 @@
+/******************************************************************************
+ *  Compilation:  javac ParetoSP.java
+ *  Execution:    java ParetoSP input.txt [queries]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java QueryWorkspace.java
+ *                BandwidthIndex.java DijkstraSP.java GraphLoader.java
+ *                StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Every path between two switches that is not beaten on both latency and
+ *  bandwidth by another one: the Pareto frontier of (latency, bottleneck
+ *  bandwidth). Running it checks random queries against one
+ *  bandwidth-constrained DijkstraSP query per bandwidth level.
+ *
+ *  % java ParetoSP big_network.txt 20
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code ParetoSP} class finds the <em>Pareto frontier</em> of paths
+ *  from a source vertex <em>s</em> to a target vertex <em>t</em> under two
+ *  criteria: low total latency and high bottleneck bandwidth. A path is on
+ *  the frontier unless some other path has at most its latency and at least
+ *  its bandwidth, one of them strictly. The frontier starts with a
+ *  lowest-latency path, as found by {@link DijkstraSP}, and each further
+ *  path trades more latency for strictly more bandwidth; the last one has
+ *  the widest bottleneck available between <em>s</em> and <em>t</em>.
+ *  <p>
+ *  This implementation is a label-setting search. A <em>label</em> is a
+ *  path from <em>s</em> to some vertex, summarised by its latency and
+ *  bottleneck; labels are settled in order of increasing latency (higher
+ *  bandwidth first among ties), so a label is dominated exactly when an
+ *  earlier label at the same vertex had at least its bandwidth. Each vertex
+ *  therefore only remembers the widest bottleneck settled there, and
+ *  <ul>
+ *  <li>a label is dropped, before it enters the queue if possible, when
+ *      its vertex or <em>t</em> has already settled one at least as wide,
+ *      or when a queued label at its vertex dominates it; a queued label it
+ *      dominates is overwritten in place instead;
+ *  <li>every vertex settles at most one label per distinct cable bandwidth,
+ *      so the label sets stay bounded by the number of bandwidth levels
+ *      rather than by the number of paths;
+ *  <li>the search stops as soon as <em>t</em> settles a label as wide as
+ *      the widest cable at <em>s</em> or at <em>t</em>, since no path can
+ *      do better.
+ *  </ul>
+ *  The per-vertex bottlenecks live in a {@link QueryWorkspace}, so a
+ *  query only touches the vertices it reaches.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+public class ParetoSP implements Iterable<ParetoSP.Path> {
+    private static final double EPSILON = 1e-12;  // relative rounding slack for main()
+
+    private final Path[] frontier;      // in order of increasing latency and bandwidth
+    private int labels;                 // labels settled by the search
+
+    // labels, as parallel arrays indexed by label id
+    private int n;
+    private int[] vertex;
+    private double[] latency;
+    private int[] bandwidth;
+    private int[] parent;               // label extended by this one, or -1 at s
+    private Edge[] edge;                // cable from the parent's vertex to this one's
+    private int[] next;                 // next label at the same vertex, or -1
+    private int[] pos;                  // position in the heap, or -1 once removed
+
+    // binary heap of label ids, by increasing latency and then decreasing bandwidth
+    private int[] heap;
+    private int size;
+
+    /**
+     * Computes the Pareto frontier of paths from {@code s} to {@code t} in
+     * the edge-weighted graph {@code G}.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V} and {@code 0 <= t < V}
+     */
+    public ParetoSP(EdgeWeightedGraph G, int s, int t) {
+        this(G, s, t, new QueryWorkspace(G.V()));
+    }
+
+    /**
+     * Computes the Pareto frontier of paths from {@code s} to {@code t},
+     * keeping per-vertex state in {@code ws}. The paths found do not depend
+     * on {@code ws} afterwards.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  t the target vertex
+     * @param  ws the workspace, for at least {@code V} vertices
+     * @throws IllegalArgumentException if an edge scanned by the search has negative weight
+     * @throws IllegalArgumentException unless {@code 0 <= s < V} and {@code 0 <= t < V}
+     */
+    public ParetoSP(EdgeWeightedGraph G, int s, int t, QueryWorkspace ws) {
+        validateVertex(s, G.V());
+        validateVertex(t, G.V());
+        if (ws.V() < G.V())
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, graph has " + G.V());
+
+        vertex = new int[64];
+        latency = new double[64];
+        bandwidth = new int[64];
+        parent = new int[64];
+        edge = new Edge[64];
+        next = new int[64];
+        pos = new int[64];
+        heap = new int[64];
+        ArrayList<Path> found = new ArrayList<Path>();
+        for (int a : search(G, s, t, ws))
+            found.add(pathOf(a));
+        frontier = found.toArray(new Path[found.size()]);
+
+        // the labels are only needed to build the paths
+        vertex = parent = bandwidth = next = pos = heap = null;
+        latency = null;
+        edge = null;
+    }
+
+    // label-setting search; returns the labels settled at t, in order
+    private int[] search(EdgeWeightedGraph G, int s, int t, QueryWorkspace ws) {
+        ws.begin();
+        int[] widest = ws.ints();       // widest[v] = bottleneck of the last label settled at v, if reached
+        int[] first = ws.counts();      // first[v] = most recent label at v, if v is marked
+
+        // no path can be wider than the widest cable at either end
+        int cap = Integer.MAX_VALUE;
+        if (s != t) cap = Math.min(widestCable(G, s), widestCable(G, t));
+
+        int[] atTarget = new int[4];
+        int found = 0;
+        offer(ws, first, s, 0.0, Integer.MAX_VALUE, -1, null);
+        while (size > 0) {
+            int a = pop();
+            int v = vertex[a], b = bandwidth[a];
+            if (b <= widest(ws, widest, v) || b <= widest(ws, widest, t)) continue;
+            ws.reach(v);
+            widest[v] = b;
+            labels++;
+            if (v == t) {
+                if (found == atTarget.length) atTarget = Arrays.copyOf(atTarget, 2 * found);
+                atTarget[found++] = a;
+                if (b >= cap) break;
+                continue;
+            }
+            for (Edge e : G.adj(v)) {
+                if (e.getLatency() < 0)
+                    throw new IllegalArgumentException("edge " + e + " has negative weight");
+                int w = e.other(v);
+                int nb = Math.min(b, e.getBandwidth());
+                if (nb <= widest(ws, widest, w) || nb <= widest(ws, widest, t)) continue;
+                offer(ws, first, w, latency[a] + e.getLatency(), nb, a, e);
+            }
+        }
+        return Arrays.copyOf(atTarget, found);
+    }
+
+    // bottleneck of the last label settled at v, or -1 if there is none
+    private static int widest(QueryWorkspace ws, int[] widest, int v) {
+        return ws.reached(v) ? widest[v] : -1;
+    }
+
+    private static int widestCable(EdgeWeightedGraph G, int v) {
+        int max = -1;
+        for (Edge e : G.adj(v))
+            max = Math.max(max, e.getBandwidth());
+        return max;
+    }
+
+    // the path of label a, from s
+    private Path pathOf(int a) {
+        int length = 0;
+        for (int b = a; parent[b] >= 0; b = parent[b])
+            length++;
+        Edge[] edges = new Edge[length];
+        for (int b = a; parent[b] >= 0; b = parent[b])
+            edges[--length] = edge[b];
+        return new Path(edges, latency[a], bandwidth[a]);
+    }
+
+    // queues a label for v with latency d and bottleneck b, unless a label
+    // already at v dominates it; a queued label at v that it dominates is
+    // overwritten in place rather than left in the heap
+    private void offer(QueryWorkspace ws, int[] first, int v, double d, int b, int p, Edge e) {
+        int head = ws.marked(v) ? first[v] : -1;
+        int replace = -1;
+        for (int a = head; a >= 0; a = next[a]) {
+            if (latency[a] <= d && bandwidth[a] >= b) return;
+            if (replace < 0 && pos[a] >= 0 && latency[a] >= d && bandwidth[a] <= b) replace = a;
+        }
+        if (replace >= 0) {
+            latency[replace] = d;
+            bandwidth[replace] = b;
+            parent[replace] = p;
+            edge[replace] = e;
+            swim(pos[replace]);
+            return;
+        }
+
+        if (n == vertex.length) {
+            int capacity = 2 * n;
+            vertex = Arrays.copyOf(vertex, capacity);
+            latency = Arrays.copyOf(latency, capacity);
+            bandwidth = Arrays.copyOf(bandwidth, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            edge = Arrays.copyOf(edge, capacity);
+            next = Arrays.copyOf(next, capacity);
+            pos = Arrays.copyOf(pos, capacity);
+        }
+        vertex[n] = v;
+        latency[n] = d;
+        bandwidth[n] = b;
+        parent[n] = p;
+        edge[n] = e;
+        next[n] = head;
+        first[v] = n;
+        ws.mark(v);
+        push(n++);
+    }
+
+    /***************************************************************************
+     * Heap helper functions.
+     ***************************************************************************/
+    private boolean less(int i, int j) {
+        int a = heap[i], b = heap[j];
+        if (latency[a] != latency[b]) return latency[a] < latency[b];
+        return bandwidth[a] > bandwidth[b];
+    }
+
+    private void exch(int i, int j) {
+        int swap = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swap;
+        pos[heap[i]] = i;
+        pos[heap[j]] = j;
+    }
+
+    private void swim(int k) {
+        for (; k > 0 && less(k, (k - 1) / 2); k = (k - 1) / 2)
+            exch(k, (k - 1) / 2);
+    }
+
+    private void push(int a) {
+        if (size == heap.length) heap = Arrays.copyOf(heap, 2 * size);
+        heap[size] = a;
+        pos[a] = size;
+        swim(size++);
+    }
+
+    private int pop() {
+        int min = heap[0];
+        heap[0] = heap[--size];
+        pos[heap[0]] = 0;
+        pos[min] = -1;
+        int k = 0;
+        while (2*k + 1 < size) {
+            int j = 2*k + 1;
+            if (j + 1 < size && less(j + 1, j)) j++;
+            if (!less(j, k)) break;
+            exch(k, j);
+            k = j;
+        }
+        return min;
+    }
+
+    /**
+     * Returns the number of paths on the frontier: {@code 0} if {@code t}
+     * cannot be reached from {@code s}, and at most the number of distinct
+     * cable bandwidths otherwise.
+     *
+     * @return the number of Pareto-optimal paths
+     */
+    public int size() {
+        return frontier.length;
+    }
+
+    /**
+     * Returns the {@code i}-th path of the frontier. Path {@code 0} has the
+     * lowest latency and the narrowest bottleneck, path {@code size()-1}
+     * the highest latency and the widest bottleneck.
+     *
+     * @param  i the index of the path
+     * @return the {@code i}-th Pareto-optimal path
+     * @throws IllegalArgumentException unless {@code 0 <= i < size()}
+     */
+    public Path path(int i) {
+        if (i < 0 || i >= frontier.length)
+            throw new IllegalArgumentException("index " + i + " is not between 0 and " + (frontier.length-1));
+        return frontier[i];
+    }
+
+    /**
+     * Returns an iterator over the frontier, in order of increasing latency.
+     *
+     * @return an iterator over the Pareto-optimal paths
+     */
+    public Iterator<Path> iterator() {
+        return Arrays.asList(frontier).iterator();
+    }
+
+    /**
+     * Returns the number of labels the search settled; at most
+     * <em>V</em> times the number of distinct cable bandwidths.
+     *
+     * @return the number of settled labels
+     */
+    public int labels() {
+        return labels;
+    }
+
+    /**
+     * A path from {@code s} to {@code t} on the Pareto frontier, with its
+     * latency and the bandwidth available along it.
+     */
+    public static final class Path implements Iterable<Edge> {
+        private final Edge[] edges;
+        private final double latency;
+        private final int bandwidth;
+
+        private Path(Edge[] edges, double latency, int bandwidth) {
+            this.edges = edges;
+            this.latency = latency;
+            this.bandwidth = bandwidth;
+        }
+
+        /**
+         * Returns the total latency of this path.
+         *
+         * @return the total latency of this path
+         */
+        public double latency() {
+            return latency;
+        }
+
+        /**
+         * Returns the smallest bandwidth of any cable on this path.
+         *
+         * @return the bottleneck bandwidth; {@code Integer.MAX_VALUE} if the
+         *         path has no edges
+         */
+        public int bandwidth() {
+            return bandwidth;
+        }
+
+        /**
+         * Returns the number of cables on this path.
+         *
+         * @return the number of cables on this path
+         */
+        public int size() {
+            return edges.length;
+        }
+
+        /**
+         * Returns an iterator over the cables of this path, from the source.
+         *
+         * @return an iterator over the cables of this path
+         */
+        public Iterator<Edge> iterator() {
+            return Arrays.asList(edges).iterator();
+        }
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private static void validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Computes the frontier between random pairs of vertices and checks it:
+     * for every bandwidth level <em>X</em>, the fastest frontier path at
+     * least <em>X</em> wide must be as fast as a {@code DijkstraSP} query
+     * restricted to cables of at least <em>X</em> Mbps.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int V = g.V();
+        BandwidthIndex index = new BandwidthIndex(g);
+        int[] levels = index.bandwidths();
+        QueryWorkspace ws = QueryWorkspace.forThread(V);
+
+        StdRandom.setSeed(42);
+        long pareto = 0, dijkstra = 0, labels = 0, paths = 0;
+        for (int q = 0; q < queries; q++) {
+            int s = StdRandom.uniform(V), t = StdRandom.uniform(V);
+
+            long start = System.nanoTime();
+            ParetoSP sp = new ParetoSP(g, s, t, ws);
+            pareto += System.nanoTime() - start;
+            labels += sp.labels();
+            paths += sp.size();
+
+            // each level's constrained optimum must be the fastest frontier path that is wide enough
+            for (int min : levels) {
+                start = System.nanoTime();
+                DijkstraSP constrained = new DijkstraSP(index, min, s, t, ws);
+                dijkstra += System.nanoTime() - start;
+                double expected = constrained.distTo(t);
+                double best = Double.POSITIVE_INFINITY;
+                for (Path p : sp)
+                    if (p.bandwidth() >= min) { best = p.latency(); break; }
+                if (best != expected && Math.abs(best - expected) > EPSILON * expected)
+                    throw new IllegalStateException("frontier from " + s + " to " + t + " is wrong at " + min
+                                                    + " Mbps: " + best + " instead of " + expected);
+            }
+            for (int i = 1; i < sp.size(); i++)
+                if (sp.path(i).latency() < sp.path(i-1).latency() || sp.path(i).bandwidth() <= sp.path(i-1).bandwidth())
+                    throw new IllegalStateException("frontier from " + s + " to " + t + " contains a dominated path");
+
+            if (q == 0) {
+                StdOut.printf("Pareto frontier from %d to %d:\n", s, t);
+                for (Path p : sp) {
+                    StdOut.printf("  %.3f ns  %d Mbps  ", p.latency() * 1e9, p.bandwidth());
+                    if (V <= 16) for (Edge e : p) StdOut.print(e + "   ");
+                    else         StdOut.print(p.size() + " cables");
+                    StdOut.println();
+                }
+            }
+        }
+        StdOut.printf("%d queries: %.1f frontier paths, %d labels settled, %.2f ms/query"
+                      + "   (%d constrained DijkstraSP queries: %.2f ms)\n",
+                      queries, (double) paths / queries, labels / queries, pareto / 1e6 / queries,
+                      levels.length, dijkstra / 1e6 / queries);
+    }
+}
@@ -1,8 +1,8 @@
 /******************************************************************************
  *  Compilation:  javac PrimMST.java
  *  Execution:    java PrimMST filename.txt
- *  Dependencies: EdgeWeightedGraph.java Edge.java Queue.java
- *                IndexMinPQ.java UF.java In.java StdOut.java
+ *  Dependencies: EdgeWeightedGraph.java Edge.java Queue.java QueryWorkspace.java
+ *                DoubleIndexMinPQ.java UF.java In.java StdOut.java
  *  Data files:   http://algs4.cs.princeton.edu/43mst/tinyEWG.txt
  *                http://algs4.cs.princeton.edu/43mst/mediumEWG.txt
  *                http://algs4.cs.princeton.edu/43mst/largeEWG.txt
@@ -47,7 +47,7 @@
  *  returns its edges.
  *  <p>
  *  This implementation uses <em>Prim's algorithm</em> with an indexed
- *  binary heap.
+ *  4-ary heap of primitive {@code double} keys.
  *  The constructor takes time proportional to <em>E</em> log <em>V</em>
  *  and extra space (not including the graph) proportional to <em>V</em>,
  *  where <em>V</em> is the number of vertices and <em>E</em> is the number of edges.
@@ -68,28 +68,40 @@ import dependencies.*;
 public class PrimMST {
     private static final double FLOATING_POINT_EPSILON = 1E-12;
 
-    private Edge[] edgeTo;        // edgeTo[v] = shortest edge from tree vertex to non-tree vertex
-    private double[] distTo;      // distTo[v] = weight of shortest such edge
-    private boolean[] marked;     // marked[v] = true if v on tree, false otherwise
-    private IndexMinPQ<Double> pq;
-
-    private final double copperSpeed = 230000000;
-    private final double opticalSpeed = 200000000;
+    private final QueryWorkspace ws;    // holds the arrays below; entries count only for reached vertices
+    private final int generation;       // the workspace generation of this computation
+    private final int V;
+    private final Edge[] edgeTo;        // edgeTo[v] = shortest edge from tree vertex to non-tree vertex
+    private final double[] distTo;      // distTo[v] = weight of shortest such edge; tree vertices are marked in ws
 
     /**
      * Compute a minimum spanning tree (or forest) of an edge-weighted graph.
      * @param G the edge-weighted graph
      */
     public PrimMST(EdgeWeightedGraph G) {
-        edgeTo = new Edge[G.V()];
-        distTo = new double[G.V()];
-        marked = new boolean[G.V()];
-        pq = new IndexMinPQ<Double>(G.V());
-        for (int v = 0; v < G.V(); v++)
-            distTo[v] = Double.POSITIVE_INFINITY;
+        this(G, new QueryWorkspace(G.V()));
+        ws.trim();
+    }
+
+    /**
+     * Computes a minimum spanning forest of {@code G} using the arrays and
+     * priority queue of {@code ws}. The result is only valid until the next
+     * query on {@code ws} begins.
+     *
+     * @param  G the edge-weighted graph
+     * @param  ws the workspace, for at least {@code V} vertices
+     */
+    public PrimMST(EdgeWeightedGraph G, QueryWorkspace ws) {
+        this.ws = ws;
+        this.V = G.V();
+        if (ws.V() < V)
+            throw new IllegalArgumentException("workspace holds " + ws.V() + " vertices, graph has " + V);
+        this.generation = ws.begin();
+        edgeTo = ws.edges();
+        distTo = ws.doubles();
 
         for (int v = 0; v < G.V(); v++)      // run from each vertex to find
-            if (!marked[v]) prim(G, v);      // minimum spanning forest
+            if (!ws.marked(v)) prim(G, v);   // minimum spanning forest
 
         // check optimality conditions
         assert check(G);
@@ -97,34 +109,34 @@ public class PrimMST {
 
     // run Prim's algorithm in graph G, starting from vertex s
     private void prim(EdgeWeightedGraph G, int s) {
+        ws.reach(s);
         distTo[s] = 0.0;
+        edgeTo[s] = null;
+        DoubleIndexMinPQ pq = ws.pq();
         pq.insert(s, distTo[s]);
         while (!pq.isEmpty()) {
             int v = pq.delMin();
-            scan(G, v);
+            scan(G, pq, v);
         }
     }
 
     // scan vertex v
-    private void scan(EdgeWeightedGraph G, int v) {
-        marked[v] = true;
-        double speed = 1;
-        double latency;
-
+    private void scan(EdgeWeightedGraph G, DoubleIndexMinPQ pq, int v) {
+        ws.mark(v);
         for (Edge e : G.adj(v)) {
-
-                 if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-            else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
-
-            latency = e.getLength() / speed;
-
+            double latency = e.getLatency();
             int w = e.other(v);
-            if (marked[w]) continue;         // v-w is obsolete edge (will probably have to be if(marked[w] || marked[v]) or something like that)
-            if (latency < distTo[w]) {
+            if (ws.marked(w)) continue;      // v-w is obsolete edge (will probably have to be if(marked[w] || marked[v]) or something like that)
+            if (!ws.reached(w)) {
+                ws.reach(w);
                 distTo[w] = latency;
                 edgeTo[w] = e;
-                if (pq.contains(w)) pq.decreaseKey(w, distTo[w]);
-                else                pq.insert(w, distTo[w]);
+                pq.insert(w, distTo[w]);
+            }
+            else if (latency < distTo[w]) {
+                distTo[w] = latency;
+                edgeTo[w] = e;
+                pq.decreaseKey(w, distTo[w]);
             }
         }
     }
@@ -135,8 +147,9 @@ public class PrimMST {
      *    an iterable of edges
      */
     public Iterable<Edge> edges() {
+        ws.checkGeneration(generation);
         Queue<Edge> mst = new Queue<Edge>();
-        for (int v = 0; v < edgeTo.length; v++) {
+        for (int v = 0; v < V; v++) {
             Edge e = edgeTo[v];
             if (e != null) {
                 mst.enqueue(e);
@@ -151,13 +164,8 @@ public class PrimMST {
      */
     public double weight() {
         double weight = 0.0;
-        double speed = 1;
-
-        for (Edge e : edges()){
-                 if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-            else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
-            weight += e.getLength() / speed;
-        }
+        for (Edge e : edges())
+            weight += e.getLatency();
 
         return weight;
     }
@@ -168,14 +176,8 @@ public class PrimMST {
 
         // check weight
         double totalWeight = 0.0;
-        double speed = 1;
-        double latency, eLatency, fLatency;
-
         for (Edge e : edges()) {
-                 if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-            else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
-            latency = e.getLength() / speed;            
-            totalWeight += latency;
+            totalWeight += e.getLatency();
         }
         if (Math.abs(totalWeight - weight()) > FLOATING_POINT_EPSILON) {
             System.err.printf("Weight of edges does not equal weight(): %f vs. %f\n", totalWeight, weight());
@@ -216,16 +218,7 @@ public class PrimMST {
             for (Edge f : G.edges()) {
                 int x = f.either(), y = f.other(x);
                 if (!uf.connected(x, y)) {
-                    
-                         if (e.getType().compareTo("copper")  == 0) speed = copperSpeed;
-                    else if (e.getType().compareTo("optical") == 0) speed = opticalSpeed;
-                    eLatency = e.getLength() / speed;
-
-                         if (f.getType().compareTo("copper")  == 0) speed = copperSpeed;
-                    else if (f.getType().compareTo("optical") == 0) speed = opticalSpeed;
-                    fLatency = f.getLength() / speed;
-
-                    if (fLatency < eLatency) {
+                    if (f.getLatency() < e.getLatency()) {
                         System.err.println("Edge " + f + " violates cut optimality conditions");
                         return false;
                     }
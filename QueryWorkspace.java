@@ -0,0 +1,324 @@
+/******************************************************************************
+ *  Compilation:  javac QueryWorkspace.java
+ *  Execution:    java QueryWorkspace input.txt [queries]
+ *  Dependencies: Edge.java FlowEdge.java DoubleIndexMinPQ.java IntStack.java
+ *                IntQueue.java DijkstraSP.java CC.java GraphLoader.java
+ *                Allocations.java StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Per-vertex scratch arrays and queues shared by successive queries on
+ *  the same thread, reset in time proportional to what each query touched.
+ *  Running it times repeated DijkstraSP and CC queries with and without a
+ *  workspace, reporting bytes allocated.
+ *
+ *  % java QueryWorkspace big_network.txt 50
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code QueryWorkspace} class owns the vertex-indexed arrays and the
+ *  queues that graph searches need ({@code distTo}, {@code edgeTo},
+ *  {@code marked}, component ids and sizes, a priority queue, a stack and
+ *  a queue), so that {@link DijkstraSP}, {@link PrimMST}, {@link CC},
+ *  {@link CopperConnected} and {@link FordFulkerson} can run one query after
+ *  another without allocating them again.
+ *  <p>
+ *  Instead of being cleared, the arrays are qualified by <em>generation
+ *  stamps</em>. {@link #begin()} starts a new generation; a vertex counts as
+ *  reached (its {@code doubles()}, {@code edges()} and {@code ints()}
+ *  entries are meaningful) or marked only if its stamp equals the current
+ *  generation. Starting a query therefore takes constant time plus the
+ *  size of whatever the previous query left on the priority queue, rather
+ *  than time proportional to <em>V</em>. The stamps are cleared only when
+ *  the generation counter wraps around.
+ *  <p>
+ *  A workspace is not thread-safe; {@link #forThread(int)} returns one per
+ *  thread. The results of a query run on a workspace live in its arrays, so
+ *  they are only valid until the next query on that workspace starts;
+ *  the classes above throw an {@code IllegalStateException} if they are
+ *  read after that. Their constructors without a workspace argument
+ *  allocate a private one, and their results stay valid for good.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Arrays;
+
+public final class QueryWorkspace {
+    private static final ThreadLocal<QueryWorkspace> CURRENT = new ThreadLocal<QueryWorkspace>();
+
+    private final int V;
+    private int generation;
+    private final int[] reached;        // reached[v] == generation: v's array entries belong to this query
+    private int[] marked;               // marked[v] == generation: v is marked in this query
+    private double[] doubles;
+    private Edge[] edges;
+    private FlowEdge[] flowEdges;
+    private int[] ints;
+    private int[] counts;
+    private DoubleIndexMinPQ pq;
+    private IntStack stack;
+    private IntQueue queue;
+
+    /**
+     * Initializes a workspace for graphs of up to {@code V} vertices.
+     * Arrays other than the reached stamps are allocated on first use.
+     *
+     * @param  V the number of vertices
+     * @throws IllegalArgumentException if {@code V < 0}
+     */
+    public QueryWorkspace(int V) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        this.V = V;
+        this.reached = new int[V];
+    }
+
+    /**
+     * Returns the workspace of the calling thread, replacing it with a
+     * larger one if it cannot hold {@code V} vertices.
+     *
+     * @param  V the number of vertices
+     * @return a workspace for at least {@code V} vertices owned by this thread
+     */
+    public static QueryWorkspace forThread(int V) {
+        QueryWorkspace ws = CURRENT.get();
+        if (ws == null || ws.V < V) {
+            ws = new QueryWorkspace(V);
+            CURRENT.set(ws);
+        }
+        return ws;
+    }
+
+    /**
+     * Returns the number of vertices this workspace can hold.
+     *
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Starts a new query: every vertex becomes unreached and unmarked, and
+     * the priority queue, stack and queue are emptied. Results of earlier
+     * queries on this workspace are no longer valid.
+     *
+     * @return the generation of the new query
+     */
+    public int begin() {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(reached, 0);
+            if (marked != null) Arrays.fill(marked, 0);
+            generation = 0;
+        }
+        generation++;
+        if (pq != null)    pq.clear();
+        if (stack != null) stack.clear();
+        if (queue != null) queue.clear();
+        return generation;
+    }
+
+    /**
+     * Throws an exception unless {@code generation} is the current
+     * generation, that is, unless no later query has started.
+     *
+     * @param  generation the generation returned by {@link #begin()}
+     * @throws IllegalStateException if a later query has started
+     */
+    public void checkGeneration(int generation) {
+        if (generation != this.generation)
+            throw new IllegalStateException("workspace has been reused by a later query");
+    }
+
+    /**
+     * Has vertex {@code v} been reached in the current query?
+     *
+     * @param  v the vertex
+     * @return {@code true} if {@link #reach(int)} was called on {@code v}
+     *         since the last {@link #begin()}
+     */
+    public boolean reached(int v) {
+        return reached[v] == generation;
+    }
+
+    /**
+     * Marks vertex {@code v} as reached in the current query. The caller
+     * is responsible for initializing its array entries.
+     *
+     * @param  v the vertex
+     */
+    public void reach(int v) {
+        reached[v] = generation;
+    }
+
+    /**
+     * Is vertex {@code v} marked in the current query?
+     *
+     * @param  v the vertex
+     * @return {@code true} if {@link #mark(int)} was called on {@code v}
+     *         since the last {@link #begin()}
+     */
+    public boolean marked(int v) {
+        return marked != null && marked[v] == generation;
+    }
+
+    /**
+     * Marks vertex {@code v} in the current query.
+     *
+     * @param  v the vertex
+     */
+    public void mark(int v) {
+        if (marked == null) marked = new int[V];
+        marked[v] = generation;
+    }
+
+    /**
+     * Returns the vertex-indexed {@code double} array, such as {@code distTo}.
+     *
+     * @return the {@code double} array of this workspace
+     */
+    public double[] doubles() {
+        if (doubles == null) doubles = new double[V];
+        return doubles;
+    }
+
+    /**
+     * Returns the vertex-indexed {@code Edge} array, such as {@code edgeTo}.
+     *
+     * @return the {@code Edge} array of this workspace
+     */
+    public Edge[] edges() {
+        if (edges == null) edges = new Edge[V];
+        return edges;
+    }
+
+    /**
+     * Returns the vertex-indexed {@code FlowEdge} array used by flow searches.
+     *
+     * @return the {@code FlowEdge} array of this workspace
+     */
+    public FlowEdge[] flowEdges() {
+        if (flowEdges == null) flowEdges = new FlowEdge[V];
+        return flowEdges;
+    }
+
+    /**
+     * Returns the vertex-indexed {@code int} array, such as component ids.
+     *
+     * @return the {@code int} array of this workspace
+     */
+    public int[] ints() {
+        if (ints == null) ints = new int[V];
+        return ints;
+    }
+
+    /**
+     * Returns a second {@code int} array of length {@code V}, such as
+     * component sizes. Its entries are not covered by the reached stamps.
+     *
+     * @return the second {@code int} array of this workspace
+     */
+    public int[] counts() {
+        if (counts == null) counts = new int[V];
+        return counts;
+    }
+
+    /**
+     * Returns the indexed priority queue of this workspace.
+     *
+     * @return an indexed priority queue for indices {@code 0} to {@code V-1}
+     */
+    public DoubleIndexMinPQ pq() {
+        if (pq == null) pq = new DoubleIndexMinPQ(V);
+        return pq;
+    }
+
+    /**
+     * Returns the stack of this workspace.
+     *
+     * @return an {@code int} stack
+     */
+    public IntStack stack() {
+        if (stack == null) stack = new IntStack();
+        return stack;
+    }
+
+    /**
+     * Returns the queue of this workspace.
+     *
+     * @return an {@code int} queue
+     */
+    public IntQueue queue() {
+        if (queue == null) queue = new IntQueue();
+        return queue;
+    }
+
+    /**
+     * Drops the priority queue, stack and queue, keeping only the vertex
+     * arrays. For a private workspace whose results outlive the query.
+     */
+    public void trim() {
+        pq = null;
+        stack = null;
+        queue = null;
+    }
+
+    /**
+     * Times repeated point-to-point {@code DijkstraSP} queries and
+     * {@code CC} runs with and without a workspace, and reports the bytes
+     * each allocated.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        StdRandom.setSeed(42);
+        int[] from = new int[queries], to = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            from[q] = StdRandom.uniform(g.V());
+            to[q] = StdRandom.uniform(g.V());
+        }
+
+        for (int round = 1; round <= 2; round++) {
+            long bytes = Allocations.bytes(), start = System.nanoTime();
+            double sumFresh = 0.0;
+            for (int q = 0; q < queries; q++)
+                sumFresh += new DijkstraSP(g, from[q], to[q]).settled();
+            double freshMs = (System.nanoTime() - start) / 1e6;
+            long freshBytes = Allocations.bytes() - bytes;
+
+            QueryWorkspace ws = forThread(g.V());
+            bytes = Allocations.bytes();
+            start = System.nanoTime();
+            double sumReused = 0.0;
+            for (int q = 0; q < queries; q++)
+                sumReused += new DijkstraSP(g, from[q], to[q], ws).settled();
+            double reusedMs = (System.nanoTime() - start) / 1e6;
+            long reusedBytes = Allocations.bytes() - bytes;
+            if (sumFresh != sumReused)
+                throw new IllegalStateException("workspace queries disagree");
+            StdOut.printf("round %d: %d DijkstraSP queries  fresh %8.1f ms %,14d bytes   workspace %8.1f ms %,14d bytes\n",
+                          round, queries, freshMs, freshBytes, reusedMs, reusedBytes);
+
+            bytes = Allocations.bytes();
+            start = System.nanoTime();
+            int components = 0;
+            for (int q = 0; q < 10; q++)
+                components += new CC(g).count();
+            freshMs = (System.nanoTime() - start) / 1e6;
+            freshBytes = Allocations.bytes() - bytes;
+            bytes = Allocations.bytes();
+            start = System.nanoTime();
+            for (int q = 0; q < 10; q++)
+                components -= new CC(g, ws).count();
+            reusedMs = (System.nanoTime() - start) / 1e6;
+            reusedBytes = Allocations.bytes() - bytes;
+            if (components != 0)
+                throw new IllegalStateException("workspace components disagree");
+            StdOut.printf("round %d: 10 CC runs               fresh %8.1f ms %,14d bytes   workspace %8.1f ms %,14d bytes\n",
+                          round, freshMs, freshBytes, reusedMs, reusedBytes);
+        }
+    }
+}
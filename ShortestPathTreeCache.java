@@ -0,0 +1,294 @@
+/******************************************************************************
+ *  Compilation:  javac ShortestPathTreeCache.java
+ *  Execution:    java ShortestPathTreeCache input.txt [queries] [hotSources] [budgetMB]
+ *  Dependencies: EdgeWeightedGraph.java Edge.java MediaType.java DijkstraSP.java
+ *                GraphLoader.java StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  A bounded, least-recently-used cache of DijkstraSP shortest-paths trees
+ *  keyed by source vertex. Running it replays a query stream skewed
+ *  towards a few hot sources with and without the cache.
+ *
+ *  % java ShortestPathTreeCache big_network.txt 2000 200 512
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code ShortestPathTreeCache} class keeps the most recently used
+ *  {@link DijkstraSP} shortest-paths trees of an {@link EdgeWeightedGraph},
+ *  so that repeated queries from the same source switch reuse its
+ *  {@code distTo}/{@code edgeTo} arrays instead of running the search again.
+ *  <p>
+ *  The cache is bounded by a memory budget rather than a number of trees:
+ *  a tree over <em>V</em> vertices costs about {@link #bytesPerTree(int)}
+ *  bytes, and when adding one would exceed the budget the least recently
+ *  used trees are evicted first. Every tree is tagged with the graph's
+ *  {@link EdgeWeightedGraph#version()}; as soon as the graph has been
+ *  modified, the whole cache is dropped on the next lookup and the trees
+ *  are recomputed on demand.
+ *  <p>
+ *  Because every cable is full duplex, the tree of <em>s</em> answers
+ *  queries both from <em>s</em> and to <em>s</em>; {@link #latency(int, int)}
+ *  uses whichever endpoint is already cached before computing a new tree.
+ *  <p>
+ *  The cache is safe for use by multiple threads. Trees are computed
+ *  outside the lock, so a miss does not hold up hits on other sources;
+ *  two threads that miss on the same source at once may both compute it.
+ *  The counters returned by {@link #hits()}, {@link #misses()},
+ *  {@link #evictions()} and {@link #invalidations()} are meant for
+ *  monitoring.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ShortestPathTreeCache {
+    private final EdgeWeightedGraph G;
+    private final long budget;                      // bytes the cached trees may take
+    private final long treeBytes;                   // estimated bytes per tree
+    private final LinkedHashMap<Integer, DijkstraSP> trees;     // in access order, least recent first
+    private int version;                            // graph version the cached trees were computed at
+    private long hits, misses, evictions, invalidations;
+
+    /**
+     * Initializes an empty cache of shortest-paths trees of the graph
+     * {@code G}, which may use up to {@code budget} bytes.
+     *
+     * @param  G the edge-weighted graph
+     * @param  budget the memory budget, in bytes
+     * @throws IllegalArgumentException if {@code budget} is too small to
+     *         hold a single tree
+     */
+    public ShortestPathTreeCache(EdgeWeightedGraph G, long budget) {
+        this.G = G;
+        this.budget = budget;
+        this.treeBytes = bytesPerTree(G.V());
+        if (budget < treeBytes)
+            throw new IllegalArgumentException("a budget of " + budget + " bytes cannot hold one tree of "
+                                               + treeBytes + " bytes");
+        this.trees = new LinkedHashMap<Integer, DijkstraSP>(16, 0.75f, true);
+        this.version = G.version();
+    }
+
+    /**
+     * Returns the approximate memory taken by one cached shortest-paths tree
+     * over {@code V} vertices: a {@code double}, an {@code Edge} reference,
+     * an {@code int} and a reached stamp per vertex, plus object headers.
+     *
+     * @param  V the number of vertices
+     * @return the estimated size of a tree, in bytes
+     */
+    public static long bytesPerTree(int V) {
+        return 24L * V + 128;
+    }
+
+    /**
+     * Returns the shortest-paths tree from {@code s}, computing and caching
+     * it if it is not cached yet. The tree must not be used after the graph
+     * is modified.
+     *
+     * @param  s the source vertex
+     * @return the shortest-paths tree from {@code s}
+     * @throws IllegalArgumentException unless {@code 0 <= s < V}
+     */
+    public DijkstraSP tree(int s) {
+        if (s < 0 || s >= G.V())
+            throw new IllegalArgumentException("vertex " + s + " is not between 0 and " + (G.V()-1));
+        int current;
+        synchronized (this) {
+            current = revalidate();
+            DijkstraSP sp = trees.get(s);
+            if (sp != null) {
+                hits++;
+                return sp;
+            }
+            misses++;
+        }
+        DijkstraSP sp = new DijkstraSP(G, s);
+        synchronized (this) {
+            if (G.version() == current && version == current) {
+                trees.put(s, sp);
+                evict();
+            }
+        }
+        return sp;
+    }
+
+    /**
+     * Returns the latency of a lowest-latency path between {@code s} and
+     * {@code t}, from the cached tree of either endpoint if there is one.
+     *
+     * @param  s one vertex
+     * @param  t the other vertex
+     * @return the latency between {@code s} and {@code t};
+     *         {@code Double.POSITIVE_INFINITY} if they are not connected
+     * @throws IllegalArgumentException unless {@code 0 <= s < V} and {@code 0 <= t < V}
+     */
+    public double latency(int s, int t) {
+        if (t < 0 || t >= G.V())
+            throw new IllegalArgumentException("vertex " + t + " is not between 0 and " + (G.V()-1));
+        if (!contains(s) && contains(t)) return tree(t).distTo(s);
+        return tree(s).distTo(t);
+    }
+
+    /**
+     * Is the tree from {@code s} cached and current? This does not count as
+     * a use of the tree.
+     *
+     * @param  s the source vertex
+     * @return {@code true} if the tree from {@code s} is cached and was
+     *         computed at the graph's current version
+     */
+    public synchronized boolean contains(int s) {
+        return version == G.version() && trees.containsKey(s);
+    }
+
+    // drop every tree if the graph was modified since they were computed; returns the current version
+    private int revalidate() {
+        int current = G.version();
+        if (current != version) {
+            if (!trees.isEmpty()) invalidations++;
+            trees.clear();
+            version = current;
+        }
+        return current;
+    }
+
+    // evict least recently used trees until the cache fits the budget
+    private void evict() {
+        Iterator<Map.Entry<Integer, DijkstraSP>> it = trees.entrySet().iterator();
+        while (trees.size() * treeBytes > budget && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes every tree from the cache. The counters are not reset.
+     */
+    public synchronized void clear() {
+        trees.clear();
+    }
+
+    /**
+     * Returns the number of trees in the cache.
+     *
+     * @return the number of cached trees
+     */
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * Returns the estimated memory taken by the cached trees.
+     *
+     * @return the estimated size of the cached trees, in bytes
+     */
+    public synchronized long bytes() {
+        return trees.size() * treeBytes;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to compute a tree.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of trees evicted to stay within the budget.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of times the cache was dropped because the graph
+     * had been modified.
+     *
+     * @return the number of invalidations
+     */
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns a one-line summary of the cache counters.
+     *
+     * @return a string with the size and counters of this cache
+     */
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("%d trees (%,d of %,d bytes), %d hits, %d misses (%.1f%% hit rate), %d evictions, %d invalidations",
+                             trees.size(), trees.size() * treeBytes, budget, hits, misses,
+                             lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions, invalidations);
+    }
+
+    /**
+     * Replays a query stream in which most sources come from a small hot
+     * set, timing fresh {@code DijkstraSP} searches against the cache, then
+     * adds an edge and checks that the cache notices.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int hot = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long budget = (args.length > 3 ? Long.parseLong(args[3]) : 256) << 20;
+        int V = g.V();
+
+        // 90% of queries come from the hot sources, the rest from anywhere
+        StdRandom.setSeed(42);
+        int[] hotSources = new int[Math.min(hot, V)];
+        for (int i = 0; i < hotSources.length; i++)
+            hotSources[i] = StdRandom.uniform(V);
+        int[] from = new int[queries], to = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            from[q] = StdRandom.bernoulli(0.9) ? hotSources[StdRandom.uniform(hotSources.length)] : StdRandom.uniform(V);
+            to[q] = StdRandom.uniform(V);
+        }
+
+        long start = System.nanoTime();
+        double[] expected = new double[queries];
+        for (int q = 0; q < queries; q++)
+            expected[q] = new DijkstraSP(g, from[q]).distTo(to[q]);
+        double freshMs = (System.nanoTime() - start) / 1e6;
+
+        ShortestPathTreeCache cache = new ShortestPathTreeCache(g, budget);
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++)
+            if (cache.tree(from[q]).distTo(to[q]) != expected[q])
+                throw new IllegalStateException("cached tree disagrees from " + from[q] + " to " + to[q]);
+        double cachedMs = (System.nanoTime() - start) / 1e6;
+
+        StdOut.printf("%d queries: fresh DijkstraSP %.1f ms   cached %.1f ms\n", queries, freshMs, cachedMs);
+        StdOut.println(cache);
+
+        // any modification makes every cached tree stale
+        if (V > 1) {
+            g.addEdge(new Edge(0, V - 1, MediaType.OPTICAL, 1, 0.0));
+            if (cache.contains(from[0]) || cache.latency(0, V - 1) != 0.0)
+                throw new IllegalStateException("cache was not invalidated by addEdge()");
+            StdOut.println("after addEdge: " + cache);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/******************************************************************************
+ *  Compilation:  javac WidestPath.java
+ *  Execution:    java WidestPath input.txt [queries] [checks]
+ *  Dependencies: EdgeWeightedGraph.java GraphIndex.java Edge.java UF.java
+ *                Queue.java Stack.java BandwidthIndex.java DijkstraSP.java
+ *                QueryWorkspace.java GraphLoader.java StdRandom.java StdOut.java
+ *  Data files:   network_data1.txt network_data2.txt
+ *
+ *  Maximum-bandwidth (bottleneck) paths between any two vertices, from a
+ *  maximum spanning forest on bandwidth. Running it times random queries
+ *  and checks a sample of them with bandwidth-constrained DijkstraSP
+ *  searches.
+ *
+ *  % java WidestPath big_network.txt 1000000 20
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code WidestPath} class answers "what is the most bandwidth a
+ *  single path from <em>s</em> to <em>t</em> can carry?": the largest
+ *  <em>b</em> such that <em>s</em> and <em>t</em> are connected by cables
+ *  of at least <em>b</em> Mbps each, together with such a path.
+ *  <p>
+ *  Between any two vertices, the path in a maximum spanning forest on
+ *  {@link Edge#getBandwidth()} is a widest path. The constructor builds
+ *  that forest with Kruskal's algorithm, roots each tree and stores, for
+ *  every vertex, its 2<sup><em>k</em></sup>-th ancestor and the smallest
+ *  bandwidth on the way there (binary lifting). The bottleneck between
+ *  <em>s</em> and <em>t</em> is then the smallest bandwidth on the two
+ *  climbs to their lowest common ancestor.
+ *  <p>
+ *  The constructor takes time proportional to <em>E</em> log <em>E</em>
+ *  + <em>V</em> log <em>V</em> and space proportional to
+ *  <em>V</em> log <em>V</em>. Afterwards, {@code bottleneck()} takes time
+ *  proportional to log <em>V</em>, {@code connected()} constant time, and
+ *  {@code pathTo()} time proportional to the length of the path, which is
+ *  the forest path and may have more hops than a lowest-latency one.
+ *  <p>
+ *  This replaces {@code dependencies.MaxDijkstraSP}, which adds up the
+ *  bandwidths along a path instead of taking their minimum. The forest
+ *  is a {@link GraphIndex} snapshot of the graph.
+ *
+ *  @author Christian Jarani
+ */
+import dependencies.*;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class WidestPath extends GraphIndex {
+    private final int V;
+    private final int[] root;       // root[v] = root of the tree containing v
+    private final int[] depth;      // depth[v] = number of tree edges from root[v] to v
+    private final Edge[] parent;    // parent[v] = tree edge from v towards its root
+    private final int[][] up;       // up[k][v] = 2^k-th ancestor of v, or the root
+    private final int[][] low;      // low[k][v] = smallest bandwidth on the way up to up[k][v]
+    private final Queue<Edge> forest = new Queue<Edge>();  // edges of the maximum spanning forest
+
+    /**
+     * Builds the maximum spanning forest of {@code G} on bandwidth and
+     * the tables for bottleneck queries.
+     *
+     * @param  G the edge-weighted graph
+     * @throws IllegalArgumentException if a bandwidth is negative
+     */
+    public WidestPath(EdgeWeightedGraph G) {
+        super(G);
+        this.V = G.V();
+
+        // Kruskal on decreasing bandwidth
+        int[] byBandwidth = BandwidthIndex.edgesByBandwidth(G);
+        UF uf = new UF(V);
+        int[] offset = new int[V + 1];
+        for (int i = 0; i < byBandwidth.length && forest.size() < V - 1; i++) {
+            Edge e = G.edge(byBandwidth[i]);
+            int v = e.either(), w = e.other(v);
+            if (uf.connected(v, w)) continue;
+            uf.union(v, w);
+            forest.enqueue(e);
+            offset[v+1]++;
+            offset[w+1]++;
+        }
+
+        // adjacency lists of the forest, in compressed sparse row form
+        for (int v = 0; v < V; v++)
+            offset[v+1] += offset[v];
+        Edge[] adj = new Edge[offset[V]];
+        int[] next = Arrays.copyOf(offset, V);
+        for (Edge e : forest) {
+            int v = e.either(), w = e.other(v);
+            adj[next[v]++] = e;
+            adj[next[w]++] = e;
+        }
+
+        // root every tree with a breadth-first search, so that parents
+        // come before their children in order[]
+        int levels = 1;
+        while ((1 << levels) < V) levels++;
+        root = new int[V];
+        depth = new int[V];
+        parent = new Edge[V];
+        up = new int[levels][V];
+        low = new int[levels][V];
+        Arrays.fill(root, -1);
+        int[] order = new int[V];
+        int head = 0, tail = 0;
+        for (int r = 0; r < V; r++) {
+            if (root[r] != -1) continue;
+            root[r] = r;
+            up[0][r] = r;
+            low[0][r] = Integer.MAX_VALUE;
+            order[tail++] = r;
+            while (head < tail) {
+                int v = order[head++];
+                for (int i = offset[v]; i < offset[v+1]; i++) {
+                    Edge e = adj[i];
+                    int w = e.other(v);
+                    if (root[w] != -1) continue;
+                    root[w] = r;
+                    depth[w] = depth[v] + 1;
+                    parent[w] = e;
+                    up[0][w] = v;
+                    low[0][w] = e.getBandwidth();
+                    order[tail++] = w;
+                }
+            }
+        }
+        for (int k = 1; k < levels; k++) {
+            int[] half = up[k-1], halfLow = low[k-1];
+            for (int v = 0; v < V; v++) {
+                int mid = half[v];
+                up[k][v] = half[mid];
+                low[k][v] = Math.min(halfLow[v], halfLow[mid]);
+            }
+        }
+
+        assert check();
+    }
+
+    /**
+     * Are {@code s} and {@code t} connected at all?
+     *
+     * @param  s one vertex
+     * @param  t the other vertex
+     * @return {@code true} if there is a path between {@code s} and {@code t}
+     * @throws IllegalArgumentException unless {@code 0 <= s, t < V}
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public boolean connected(int s, int t) {
+        checkCurrent();
+        validateVertex(s);
+        validateVertex(t);
+        return root[s] == root[t];
+    }
+
+    /**
+     * Returns the largest bandwidth a single path between {@code s} and
+     * {@code t} can carry: the smallest bandwidth on a widest path.
+     *
+     * @param  s one vertex
+     * @param  t the other vertex
+     * @return the bottleneck bandwidth between {@code s} and {@code t};
+     *         {@code Integer.MAX_VALUE} if {@code s == t}, and {@code 0}
+     *         if they are not connected
+     * @throws IllegalArgumentException unless {@code 0 <= s, t < V}
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public int bottleneck(int s, int t) {
+        if (!connected(s, t)) return 0;
+        int min = Integer.MAX_VALUE;
+        if (depth[s] < depth[t]) {
+            int swap = s;
+            s = t;
+            t = swap;
+        }
+
+        // lift s to the depth of t
+        int diff = depth[s] - depth[t];
+        for (int k = 0; diff != 0; k++, diff >>>= 1) {
+            if ((diff & 1) != 0) {
+                min = Math.min(min, low[k][s]);
+                s = up[k][s];
+            }
+        }
+        if (s == t) return min;
+
+        // lift both to just below their lowest common ancestor
+        for (int k = up.length - 1; k >= 0; k--) {
+            if (up[k][s] != up[k][t]) {
+                min = Math.min(min, Math.min(low[k][s], low[k][t]));
+                s = up[k][s];
+                t = up[k][t];
+            }
+        }
+        return Math.min(min, Math.min(low[0][s], low[0][t]));
+    }
+
+    /**
+     * Returns a widest path from {@code s} to {@code t}.
+     *
+     * @param  s the source vertex
+     * @param  t the destination vertex
+     * @return a path from {@code s} to {@code t} whose smallest bandwidth is
+     *         {@code bottleneck(s, t)}, as an iterable of edges in order from
+     *         {@code s}, and {@code null} if there is no path
+     * @throws IllegalArgumentException unless {@code 0 <= s, t < V}
+     * @throws IllegalStateException if the graph was modified after construction
+     */
+    public Iterable<Edge> pathTo(int s, int t) {
+        if (!connected(s, t)) return null;
+        Queue<Edge> path = new Queue<Edge>();   // climb from s, in order
+        Stack<Edge> down = new Stack<Edge>();   // climb from t, reversed
+        while (depth[s] > depth[t]) {
+            path.enqueue(parent[s]);
+            s = up[0][s];
+        }
+        while (depth[t] > depth[s]) {
+            down.push(parent[t]);
+            t = up[0][t];
+        }
+        while (s != t) {
+            path.enqueue(parent[s]);
+            down.push(parent[t]);
+            s = up[0][s];
+            t = up[0][t];
+        }
+        for (Edge e : down)
+            path.enqueue(e);
+        return path;
+    }
+
+    /**
+     * Returns the edges of the maximum spanning forest on bandwidth.
+     *
+     * @return the edges of the maximum spanning forest
+     */
+    public Iterable<Edge> edges() {
+        return forest;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    // check that the forest spans every component and no non-forest edge
+    // is wider than the narrowest forest edge between its endpoints
+    private boolean check() {
+        UF uf = new UF(V);
+        for (Edge e : graph().edges()) {
+            int v = e.either(), w = e.other(v);
+            uf.union(v, w);
+            if (e.getBandwidth() > bottleneck(v, w)) {
+                System.err.println("edge " + e + " is wider than the forest path between its endpoints");
+                return false;
+            }
+        }
+        if (uf.count() != V - forest.size()) {
+            System.err.println("forest does not span every component");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Times random bottleneck queries, and checks a sample of them: the
+     * vertices must be connected by cables of at least the bottleneck
+     * bandwidth, but not by cables of more.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedGraph g = GraphLoader.load(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int checks = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int V = g.V();
+
+        long start = System.nanoTime();
+        WidestPath widest = new WidestPath(g);
+        StdOut.printf("widest-path forest of %d vertices, %d cables built in %.1f ms\n",
+                      V, g.E(), (System.nanoTime() - start) / 1e6);
+
+        StdRandom.setSeed(42);
+        int[] from = new int[queries], to = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            from[q] = StdRandom.uniform(V);
+            to[q] = StdRandom.uniform(V);
+        }
+        long sum = 0;
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++)
+            sum += widest.bottleneck(from[q], to[q]);
+        double queryNs = (double) (System.nanoTime() - start) / queries;
+        StdOut.printf("%d bottleneck queries: %.0f ns each (checksum %d)\n", queries, queryNs, sum);
+
+        // a constrained search must connect s and t at the bottleneck, and fail just above it
+        BandwidthIndex index = new BandwidthIndex(g);
+        QueryWorkspace ws = QueryWorkspace.forThread(V);
+        long searchNs = 0;
+        int searched = 0;
+        for (int q = 0; q < Math.min(checks, queries); q++) {
+            int s = from[q], t = to[q];
+            int b = widest.bottleneck(s, t);
+            Iterable<Edge> path = widest.pathTo(s, t);
+            if (s == t || b == 0) {
+                if ((b == 0) == widest.connected(s, t) || (path == null) != (b == 0))
+                    throw new IllegalStateException("connectivity disagrees between " + s + " and " + t);
+                continue;
+            }
+            int v = s, narrowest = Integer.MAX_VALUE;
+            for (Edge e : path) {
+                v = e.other(v);
+                narrowest = Math.min(narrowest, e.getBandwidth());
+            }
+            if (v != t || narrowest != b)
+                throw new IllegalStateException("path from " + s + " to " + t + " does not carry " + b + " Mbps");
+
+            start = System.nanoTime();
+            boolean atB = new DijkstraSP(index, b, s, t, ws).hasPathTo(t);
+            searchNs += System.nanoTime() - start;
+            searched++;
+            boolean aboveB = b < Integer.MAX_VALUE && new DijkstraSP(index, b + 1, s, t, ws).hasPathTo(t);
+            if (!atB || aboveB)
+                throw new IllegalStateException("bottleneck from " + s + " to " + t + " is not " + b + " Mbps");
+            StdOut.printf("  %d to %d: %d Mbps over %d hops\n", s, t, b, ((Queue<Edge>) path).size());
+        }
+        if (searched > 0)
+            StdOut.printf("checked %d queries; one constrained DijkstraSP search takes %.2f ms\n",
+                          searched, searchNs / 1e6 / searched);
+    }
+}
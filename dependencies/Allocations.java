@@ -0,0 +1,40 @@
+package dependencies;
+/******************************************************************************
+ *  Compilation:  javac Allocations.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Per-thread allocation counter for the benchmarks that report how many
+ *  bytes a workload allocates.
+ *
+ ******************************************************************************/
+
+import java.lang.management.ManagementFactory;
+
+/**
+ *  The {@code Allocations} class reads the number of bytes the current
+ *  thread has allocated, so that a benchmark can report the garbage a
+ *  workload creates: take the difference of two readings around it. The
+ *  count comes from the HotSpot extension of the thread management bean;
+ *  on a JVM without it, every reading is {@code -1}.
+ *
+ *  @author Christian Jarani
+ */
+public final class Allocations {
+
+    // this class should not be instantiated
+    private Allocations() { }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return the bytes allocated by the current thread, or {@code -1} if
+     *         the JVM cannot tell
+     */
+    public static long bytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+}
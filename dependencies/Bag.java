@@ -34,7 +34,7 @@ import java.util.NoSuchElementException;
 
 /**
  *  The {@code Bag} class represents a bag (or multiset) of 
- *  generic items. It supports insertion and iterating over the 
+ *  generic items. It supports insertion, removal and iterating over the 
  *  items in arbitrary order.
  *  <p>
  *  This implementation uses a singly-linked list with a static nested class Node.
@@ -42,7 +42,8 @@ import java.util.NoSuchElementException;
  *  textbook that uses a non-static nested class.
  *  See {@link ResizingArrayBag} for a version that uses a resizing array.
  *  The <em>add</em>, <em>isEmpty</em>, and <em>size</em> operations
- *  take constant time. Iteration takes time proportional to the number of items.
+ *  take constant time. Iteration and <em>remove</em> take time proportional
+ *  to the number of items.
  *  <p>
  *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/13stacks">Section 1.3</a> of
  *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
@@ -102,6 +103,28 @@ public class Bag<Item> implements Iterable<Item> {
         n++;
     }
 
+    /**
+     * Removes one occurrence of the item from this bag, if there is one.
+     * Items are compared with {@code equals()}. This takes time proportional
+     * to the number of items in the bag.
+     *
+     * @param  item the item to remove from this bag
+     * @return {@code true} if an occurrence was removed;
+     *         {@code false} if the bag did not contain the item
+     */
+    public boolean remove(Item item) {
+        Node<Item> previous = null;
+        for (Node<Item> x = first; x != null; previous = x, x = x.next) {
+            if (x.item == null ? item == null : x.item.equals(item)) {
+                if (previous == null) first = x.next;
+                else                  previous.next = x.next;
+                n--;
+                return true;
+            }
+        }
+        return false;
+    }
+
 
     /**
      * Returns an iterator that iterates over the items in this bag in arbitrary order.
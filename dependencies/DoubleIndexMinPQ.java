@@ -0,0 +1,374 @@
+package dependencies;
+/******************************************************************************
+ *  Compilation:  javac DoubleIndexMinPQ.java
+ *  Execution:    java DoubleIndexMinPQ [n] [rounds] [arity]
+ *  Dependencies: IndexMinPQ.java Allocations.java StdRandom.java StdOut.java
+ *
+ *  Minimum-oriented indexed PQ with primitive double keys, implemented
+ *  with a d-ary heap. Running it benchmarks a Dijkstra-like workload
+ *  against IndexMinPQ<Double>, reporting time and bytes allocated.
+ *
+ *  % java DoubleIndexMinPQ 1000000 10 4
+ *
+ ******************************************************************************/
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The {@code DoubleIndexMinPQ} class represents an indexed priority queue
+ *  of {@code double} keys. Like {@link IndexMinPQ}, it supports the usual
+ *  <em>insert</em> and <em>delete-the-minimum</em> operations, along with
+ *  <em>delete</em> and <em>change-the-key</em> methods. Each key is
+ *  associated with an integer index between {@code 0} and {@code maxN - 1}.
+ *  <p>
+ *  Unlike {@code IndexMinPQ<Double>}, the keys are stored in a
+ *  {@code double[]}: nothing is boxed and keys are compared with
+ *  {@code <} rather than through {@code compareTo}. The heap is
+ *  <em>d</em>-ary (4-ary by default), which makes the tree shallower and
+ *  keeps the children of a node next to each other in memory; this
+ *  favours workloads such as Dijkstra's algorithm, which do many more
+ *  <em>decrease-key</em> operations than <em>delete-the-minimum</em> ones.
+ *  <p>
+ *  The <em>insert</em>, <em>decrease-key</em> and <em>increase-key</em>
+ *  operations take time proportional to log<sub><em>d</em></sub> <em>n</em>;
+ *  <em>delete-the-minimum</em>, <em>delete</em> and <em>change-key</em> take
+ *  time proportional to <em>d</em> log<sub><em>d</em></sub> <em>n</em>.
+ *  {@link #clear()} empties the queue in time proportional to the number
+ *  of indices still on it, rather than {@code maxN}, so one queue can be
+ *  reused across many searches.
+ *
+ *  @author Christian Jarani
+ */
+public class DoubleIndexMinPQ {
+    private final int maxN;     // maximum number of elements on PQ
+    private final int d;        // arity of the heap
+    private int n;              // number of elements on PQ
+    private final int[] pq;     // d-ary heap using 0-based indexing
+    private final int[] qp;     // inverse of pq - qp[pq[k]] = k, or -1 if not on PQ
+    private final double[] keys;// keys[i] = priority of i
+
+    /**
+     * Initializes an empty 4-ary indexed priority queue with indices between
+     * {@code 0} and {@code maxN - 1}.
+     *
+     * @param  maxN the keys on this priority queue are index from {@code 0}
+     *         to {@code maxN - 1}
+     * @throws IllegalArgumentException if {@code maxN < 0}
+     */
+    public DoubleIndexMinPQ(int maxN) {
+        this(maxN, 4);
+    }
+
+    /**
+     * Initializes an empty <em>d</em>-ary indexed priority queue with indices
+     * between {@code 0} and {@code maxN - 1}.
+     *
+     * @param  maxN the keys on this priority queue are index from {@code 0}
+     *         to {@code maxN - 1}
+     * @param  d the number of children of each heap node
+     * @throws IllegalArgumentException if {@code maxN < 0} or {@code d < 2}
+     */
+    public DoubleIndexMinPQ(int maxN, int d) {
+        if (maxN < 0) throw new IllegalArgumentException();
+        if (d < 2) throw new IllegalArgumentException("arity must be at least 2");
+        this.maxN = maxN;
+        this.d = d;
+        keys = new double[maxN];
+        pq   = new int[maxN];
+        qp   = new int[maxN];
+        for (int i = 0; i < maxN; i++)
+            qp[i] = -1;
+    }
+
+    /**
+     * Returns true if this priority queue is empty.
+     *
+     * @return {@code true} if this priority queue is empty;
+     *         {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Is {@code i} an index on this priority queue?
+     *
+     * @param  i an index
+     * @return {@code true} if {@code i} is an index on this priority queue;
+     *         {@code false} otherwise
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < maxN}
+     */
+    public boolean contains(int i) {
+        if (i < 0 || i >= maxN) throw new IndexOutOfBoundsException();
+        return qp[i] != -1;
+    }
+
+    /**
+     * Returns the number of keys on this priority queue.
+     *
+     * @return the number of keys on this priority queue
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Removes every index from this priority queue, in time proportional
+     * to the number of indices on it.
+     */
+    public void clear() {
+        for (int k = 0; k < n; k++)
+            qp[pq[k]] = -1;
+        n = 0;
+    }
+
+    /**
+     * Associates key with index {@code i}.
+     *
+     * @param  i an index
+     * @param  key the key to associate with index {@code i}
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < maxN}
+     * @throws IllegalArgumentException if there already is an item associated
+     *         with index {@code i}
+     */
+    public void insert(int i, double key) {
+        if (contains(i)) throw new IllegalArgumentException("index is already in the priority queue");
+        keys[i] = key;
+        swim(n++, i);
+    }
+
+    /**
+     * Returns an index associated with a minimum key.
+     *
+     * @return an index associated with a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public int minIndex() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return pq[0];
+    }
+
+    /**
+     * Returns a minimum key.
+     *
+     * @return a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public double minKey() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return keys[pq[0]];
+    }
+
+    /**
+     * Removes a minimum key and returns its associated index.
+     *
+     * @return an index associated with a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        int min = pq[0];
+        qp[min] = -1;
+        int last = pq[--n];
+        if (n > 0) sink(0, last);
+        return min;
+    }
+
+    /**
+     * Returns the key associated with index {@code i}.
+     *
+     * @param  i the index of the key to return
+     * @return the key associated with index {@code i}
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < maxN}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public double keyOf(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        return keys[i];
+    }
+
+    /**
+     * Change the key associated with index {@code i} to the specified value.
+     *
+     * @param  i the index of the key to change
+     * @param  key change the key associated with index {@code i} to this key
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < maxN}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public void changeKey(int i, double key) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        double old = keys[i];
+        keys[i] = key;
+        if (key < old) swim(qp[i], i);
+        else           sink(qp[i], i);
+    }
+
+    /**
+     * Decrease the key associated with index {@code i} to the specified value.
+     *
+     * @param  i the index of the key to decrease
+     * @param  key decrease the key associated with index {@code i} to this key
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < maxN}
+     * @throws IllegalArgumentException if {@code key >= keyOf(i)}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public void decreaseKey(int i, double key) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        if (!(key < keys[i]))
+            throw new IllegalArgumentException("Calling decreaseKey() with given argument would not strictly decrease the key");
+        keys[i] = key;
+        swim(qp[i], i);
+    }
+
+    /**
+     * Increase the key associated with index {@code i} to the specified value.
+     *
+     * @param  i the index of the key to increase
+     * @param  key increase the key associated with index {@code i} to this key
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < maxN}
+     * @throws IllegalArgumentException if {@code key <= keyOf(i)}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public void increaseKey(int i, double key) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        if (!(key > keys[i]))
+            throw new IllegalArgumentException("Calling increaseKey() with given argument would not strictly increase the key");
+        keys[i] = key;
+        sink(qp[i], i);
+    }
+
+    /**
+     * Remove the key associated with index {@code i}.
+     *
+     * @param  i the index of the key to remove
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < maxN}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public void delete(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        int k = qp[i];
+        qp[i] = -1;
+        int last = pq[--n];
+        if (k == n) return;
+        // put the last element in the hole, then restore heap order in whichever direction it is violated
+        if (k > 0 && keys[last] < keys[pq[(k-1)/d]]) swim(k, last);
+        else                                         sink(k, last);
+    }
+
+
+   /***************************************************************************
+    * Heap helper functions. Both move a hole rather than swapping, and
+    * drop index i into its final position.
+    ***************************************************************************/
+    private void swim(int k, int i) {
+        double key = keys[i];
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            int p = pq[parent];
+            if (!(key < keys[p])) break;
+            pq[k] = p;
+            qp[p] = k;
+            k = parent;
+        }
+        pq[k] = i;
+        qp[i] = k;
+    }
+
+    private void sink(int k, int i) {
+        double key = keys[i];
+        while (true) {
+            int first = d * k + 1;
+            if (first >= n) break;
+            int last = Math.min(first + d, n);
+            int c = first;
+            double min = keys[pq[first]];
+            for (int j = first + 1; j < last; j++) {
+                double kj = keys[pq[j]];
+                if (kj < min) {
+                    min = kj;
+                    c = j;
+                }
+            }
+            if (!(min < key)) break;
+            int child = pq[c];
+            pq[k] = child;
+            qp[child] = k;
+            k = c;
+        }
+        pq[k] = i;
+        qp[i] = k;
+    }
+
+
+    /**
+     * Benchmarks {@code DoubleIndexMinPQ} against {@code IndexMinPQ<Double>}
+     * on a Dijkstra-like sequence of inserts, decrease-keys and
+     * delete-the-minimums, checking that both return the same keys.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int d = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        // the workload: n inserts, then 3n operations mixing
+        // decrease-keys of random queued indices with delete-the-minimums
+        StdRandom.setSeed(42);
+        int ops = 3 * n;
+        int[] who = new int[ops];
+        double[] frac = new double[ops];
+        for (int k = 0; k < ops; k++) {
+            who[k] = StdRandom.uniform(n);
+            frac[k] = StdRandom.uniform();
+        }
+        double[] init = new double[n];
+        for (int i = 0; i < n; i++)
+            init[i] = StdRandom.uniform();
+
+        DoubleIndexMinPQ primitive = new DoubleIndexMinPQ(n, d);
+        for (int r = 1; r <= rounds; r++) {
+            long bytes = Allocations.bytes();
+            long start = System.nanoTime();
+            IndexMinPQ<Double> boxed = new IndexMinPQ<Double>(n);
+            double boxedSum = 0.0;
+            for (int i = 0; i < n; i++) boxed.insert(i, init[i]);
+            for (int k = 0; k < ops; k++) {
+                if ((k & 3) == 0) {
+                    if (!boxed.isEmpty()) boxedSum += boxed.minKey() + boxed.delMin();
+                }
+                else if (boxed.contains(who[k])) {
+                    double key = boxed.keyOf(who[k]);
+                    if (key * frac[k] < key) boxed.decreaseKey(who[k], key * frac[k]);
+                }
+            }
+            while (!boxed.isEmpty()) boxedSum += boxed.minKey() + boxed.delMin();
+            double boxedMs = (System.nanoTime() - start) / 1e6;
+            long boxedBytes = Allocations.bytes() - bytes;
+
+            bytes = Allocations.bytes();
+            start = System.nanoTime();
+            primitive.clear();
+            double primSum = 0.0;
+            for (int i = 0; i < n; i++) primitive.insert(i, init[i]);
+            for (int k = 0; k < ops; k++) {
+                if ((k & 3) == 0) {
+                    if (!primitive.isEmpty()) primSum += primitive.minKey() + primitive.delMin();
+                }
+                else if (primitive.contains(who[k])) {
+                    double key = primitive.keyOf(who[k]);
+                    if (key * frac[k] < key) primitive.decreaseKey(who[k], key * frac[k]);
+                }
+            }
+            while (!primitive.isEmpty()) primSum += primitive.minKey() + primitive.delMin();
+            double primMs = (System.nanoTime() - start) / 1e6;
+            long primBytes = Allocations.bytes() - bytes;
+
+            // both sums add the same keys; only the order of indices with equal keys may differ
+            if (Math.abs(boxedSum - primSum) > 1e-6 * Math.abs(boxedSum))
+                throw new IllegalStateException("priority queues disagree");
+            StdOut.printf("round %2d: IndexMinPQ<Double> %8.1f ms %,14d bytes   DoubleIndexMinPQ(d=%d) %8.1f ms %,14d bytes\n",
+                          r, boxedMs, boxedBytes, d, primMs, primBytes);
+        }
+    }
+}
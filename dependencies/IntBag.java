@@ -0,0 +1,152 @@
+package dependencies;
+/******************************************************************************
+ *  Compilation:  javac IntBag.java
+ *  Execution:    java IntBag [n] [rounds]
+ *  Dependencies: Bag.java StdOut.java
+ *
+ *  A bag of primitive ints, implemented using a growable array.
+ *  Running it benchmarks filling and scanning against Bag<Integer>.
+ *
+ *  % java IntBag 1000000 20
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code IntBag} class represents a bag (or multiset) of {@code int}
+ *  values. It supports insertion, indexed access in insertion order, and
+ *  clearing the bag for reuse.
+ *  <p>
+ *  This implementation uses an array that doubles when full and never
+ *  shrinks, so values are never boxed and a reused bag allocates nothing
+ *  once it has grown to its working size.
+ *  The <em>add</em> operation takes constant amortized time; all other
+ *  operations take constant time in the worst case. Iterate with
+ *  {@code for (int i = 0; i < bag.size(); i++) bag.get(i)}.
+ *  <p>
+ *  Compare with {@link Bag}, which allocates a linked-list node per item.
+ *
+ *  @author Christian Jarani
+ */
+public class IntBag {
+    private int[] a;        // values, in insertion order
+    private int n;          // number of values in bag
+
+    /**
+     * Initializes an empty bag.
+     */
+    public IntBag() {
+        this(16);
+    }
+
+    /**
+     * Initializes an empty bag with room for {@code capacity} values
+     * before it needs to grow.
+     *
+     * @param  capacity the initial capacity
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public IntBag(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        a = new int[capacity];
+    }
+
+    /**
+     * Returns true if this bag is empty.
+     *
+     * @return {@code true} if this bag is empty; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of values in this bag.
+     *
+     * @return the number of values in this bag
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Removes all values from this bag, keeping its capacity.
+     */
+    public void clear() {
+        n = 0;
+    }
+
+    /**
+     * Adds the value to this bag.
+     *
+     * @param  x the value to add
+     */
+    public void add(int x) {
+        if (n == a.length) a = java.util.Arrays.copyOf(a, 2 * a.length);
+        a[n++] = x;
+    }
+
+    /**
+     * Returns the {@code i}th value added to this bag.
+     *
+     * @param  i the index
+     * @return the {@code i}th value added
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < size()}
+     */
+    public int get(int i) {
+        if (i < 0 || i >= n) throw new IndexOutOfBoundsException("index " + i + " is not between 0 and " + (n-1));
+        return a[i];
+    }
+
+    /**
+     * Returns a new array holding the values in this bag, in insertion order.
+     *
+     * @return the values in this bag
+     */
+    public int[] toArray() {
+        return java.util.Arrays.copyOf(a, n);
+    }
+
+    /**
+     * Returns a string representation of this bag.
+     *
+     * @return the values in insertion order, separated by spaces
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            s.append(a[i]);
+            s.append(' ');
+        }
+        return s.toString();
+    }
+
+    /**
+     * Benchmarks {@code IntBag} against {@code Bag<Integer>}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        IntBag ints = new IntBag();
+        for (int r = 1; r <= rounds; r++) {
+            long start = System.nanoTime();
+            Bag<Integer> boxed = new Bag<Integer>();
+            for (int i = 0; i < n; i++) boxed.add(i);
+            long boxedSum = 0;
+            for (int x : boxed) boxedSum += x;
+            double linked = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            ints.clear();
+            for (int i = 0; i < n; i++) ints.add(i);
+            long intSum = 0;
+            for (int i = 0; i < ints.size(); i++) intSum += ints.get(i);
+            double array = (System.nanoTime() - start) / 1e6;
+
+            if (boxedSum != intSum) throw new IllegalStateException("bags disagree");
+            StdOut.printf("round %2d: Bag<Integer> %8.2f ms   IntBag %8.2f ms\n", r, linked, array);
+        }
+    }
+}
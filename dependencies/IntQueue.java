@@ -0,0 +1,186 @@
+package dependencies;
+/******************************************************************************
+ *  Compilation:  javac IntQueue.java
+ *  Execution:    java IntQueue [n] [rounds]
+ *  Dependencies: Queue.java StdOut.java
+ *
+ *  A queue of primitive ints, implemented using a growable circular array.
+ *  Running it benchmarks breadth-first style enqueue/dequeue traffic
+ *  against Queue<Integer>.
+ *
+ *  % java IntQueue 1000000 20
+ *
+ ******************************************************************************/
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The {@code IntQueue} class represents a first-in-first-out (FIFO)
+ *  queue of {@code int} values.
+ *  It supports the usual <em>enqueue</em> and <em>dequeue</em>
+ *  operations, along with methods for peeking at the first value,
+ *  testing if the queue is empty, and clearing the queue for reuse.
+ *  <p>
+ *  This implementation uses a circular array that doubles when full and
+ *  never shrinks, so values are never boxed and a queue that is
+ *  {@link #clear() cleared} and reused (for example, once per breadth-first
+ *  search) allocates nothing after it has grown to its working size.
+ *  The <em>enqueue</em> operation takes constant amortized time; all other
+ *  operations take constant time in the worst case.
+ *  <p>
+ *  Compare with {@link Queue}, which allocates a linked-list node per item.
+ *
+ *  @author Christian Jarani
+ */
+public class IntQueue {
+    private int[] q;        // queue elements
+    private int n;          // number of elements on queue
+    private int first;      // index of first element of queue
+
+    /**
+     * Initializes an empty queue.
+     */
+    public IntQueue() {
+        this(16);
+    }
+
+    /**
+     * Initializes an empty queue with room for {@code capacity} values
+     * before it needs to grow.
+     *
+     * @param  capacity the initial capacity
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public IntQueue(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        q = new int[capacity];
+    }
+
+    /**
+     * Returns true if this queue is empty.
+     *
+     * @return {@code true} if this queue is empty; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of values in this queue.
+     *
+     * @return the number of values in this queue
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Removes all values from this queue, keeping its capacity.
+     */
+    public void clear() {
+        n = 0;
+        first = 0;
+    }
+
+    /**
+     * Adds the value to this queue.
+     *
+     * @param  x the value to add
+     */
+    public void enqueue(int x) {
+        if (n == q.length) resize(2 * q.length);
+        int last = first + n;
+        if (last >= q.length) last -= q.length;
+        q[last] = x;
+        n++;
+    }
+
+    /**
+     * Removes and returns the value on this queue that was least recently added.
+     *
+     * @return the value on this queue that was least recently added
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int dequeue() {
+        if (isEmpty()) throw new NoSuchElementException("Queue underflow");
+        int x = q[first++];
+        if (first == q.length) first = 0;
+        n--;
+        return x;
+    }
+
+    /**
+     * Returns the value least recently added to this queue.
+     *
+     * @return the value least recently added to this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int peek() {
+        if (isEmpty()) throw new NoSuchElementException("Queue underflow");
+        return q[first];
+    }
+
+    // unwrap the circular array into a new array of the given capacity
+    private void resize(int capacity) {
+        int[] copy = new int[capacity];
+        for (int i = 0; i < n; i++) {
+            int j = first + i;
+            if (j >= q.length) j -= q.length;
+            copy[i] = q[j];
+        }
+        q = copy;
+        first = 0;
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     *
+     * @return the sequence of values in FIFO order, separated by spaces
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            int j = first + i;
+            if (j >= q.length) j -= q.length;
+            s.append(q[j]);
+            s.append(' ');
+        }
+        return s.toString();
+    }
+
+    /**
+     * Benchmarks {@code IntQueue} against {@code Queue<Integer>}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        IntQueue ints = new IntQueue();
+        for (int r = 1; r <= rounds; r++) {
+            long start = System.nanoTime();
+            Queue<Integer> boxed = new Queue<Integer>();
+            long boxedSum = 0;
+            for (int i = 0; i < n; i++) {
+                boxed.enqueue(i);
+                if ((i & 3) == 3) boxedSum += boxed.dequeue();
+            }
+            while (!boxed.isEmpty()) boxedSum += boxed.dequeue();
+            double linked = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            ints.clear();
+            long intSum = 0;
+            for (int i = 0; i < n; i++) {
+                ints.enqueue(i);
+                if ((i & 3) == 3) intSum += ints.dequeue();
+            }
+            while (!ints.isEmpty()) intSum += ints.dequeue();
+            double array = (System.nanoTime() - start) / 1e6;
+
+            if (boxedSum != intSum) throw new IllegalStateException("queues disagree");
+            StdOut.printf("round %2d: Queue<Integer> %8.2f ms   IntQueue %8.2f ms\n", r, linked, array);
+        }
+    }
+}
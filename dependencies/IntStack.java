@@ -0,0 +1,163 @@
+package dependencies;
+/******************************************************************************
+ *  Compilation:  javac IntStack.java
+ *  Execution:    java IntStack [n] [rounds]
+ *  Dependencies: Stack.java StdOut.java
+ *
+ *  A stack of primitive ints, implemented using a growable array.
+ *  Running it benchmarks depth-first style push/pop traffic against
+ *  Stack<Integer>.
+ *
+ *  % java IntStack 1000000 20
+ *
+ ******************************************************************************/
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The {@code IntStack} class represents a last-in-first-out (LIFO) stack
+ *  of {@code int} values.
+ *  It supports the usual <em>push</em> and <em>pop</em> operations, along
+ *  with methods for peeking at the top value, testing if the stack is
+ *  empty, and clearing the stack for reuse.
+ *  <p>
+ *  This implementation uses an array that doubles when full and never
+ *  shrinks, so values are never boxed and a reused stack allocates nothing
+ *  once it has grown to its working size.
+ *  The <em>push</em> operation takes constant amortized time; all other
+ *  operations take constant time in the worst case.
+ *  <p>
+ *  Compare with {@link Stack}, which allocates a linked-list node per item.
+ *
+ *  @author Christian Jarani
+ */
+public class IntStack {
+    private int[] a;        // stack entries, a[n-1] is the top
+    private int n;          // number of elements on stack
+
+    /**
+     * Initializes an empty stack.
+     */
+    public IntStack() {
+        this(16);
+    }
+
+    /**
+     * Initializes an empty stack with room for {@code capacity} values
+     * before it needs to grow.
+     *
+     * @param  capacity the initial capacity
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public IntStack(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        a = new int[capacity];
+    }
+
+    /**
+     * Returns true if this stack is empty.
+     *
+     * @return {@code true} if this stack is empty; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of values in this stack.
+     *
+     * @return the number of values in this stack
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Removes all values from this stack, keeping its capacity.
+     */
+    public void clear() {
+        n = 0;
+    }
+
+    /**
+     * Adds the value to this stack.
+     *
+     * @param  x the value to add
+     */
+    public void push(int x) {
+        if (n == a.length) a = java.util.Arrays.copyOf(a, 2 * a.length);
+        a[n++] = x;
+    }
+
+    /**
+     * Removes and returns the value most recently added to this stack.
+     *
+     * @return the value most recently added
+     * @throws NoSuchElementException if this stack is empty
+     */
+    public int pop() {
+        if (isEmpty()) throw new NoSuchElementException("Stack underflow");
+        return a[--n];
+    }
+
+    /**
+     * Returns (but does not remove) the value most recently added to this stack.
+     *
+     * @return the value most recently added to this stack
+     * @throws NoSuchElementException if this stack is empty
+     */
+    public int peek() {
+        if (isEmpty()) throw new NoSuchElementException("Stack underflow");
+        return a[n-1];
+    }
+
+    /**
+     * Returns a string representation of this stack.
+     *
+     * @return the sequence of values in LIFO order, separated by spaces
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = n - 1; i >= 0; i--) {
+            s.append(a[i]);
+            s.append(' ');
+        }
+        return s.toString();
+    }
+
+    /**
+     * Benchmarks {@code IntStack} against {@code Stack<Integer>}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        IntStack ints = new IntStack();
+        for (int r = 1; r <= rounds; r++) {
+            long start = System.nanoTime();
+            Stack<Integer> boxed = new Stack<Integer>();
+            long boxedSum = 0;
+            for (int i = 0; i < n; i++) {
+                boxed.push(i);
+                if ((i & 3) == 3) boxedSum += boxed.pop();
+            }
+            while (!boxed.isEmpty()) boxedSum += boxed.pop();
+            double linked = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            ints.clear();
+            long intSum = 0;
+            for (int i = 0; i < n; i++) {
+                ints.push(i);
+                if ((i & 3) == 3) intSum += ints.pop();
+            }
+            while (!ints.isEmpty()) intSum += ints.pop();
+            double array = (System.nanoTime() - start) / 1e6;
+
+            if (boxedSum != intSum) throw new IllegalStateException("stacks disagree");
+            StdOut.printf("round %2d: Stack<Integer> %8.2f ms   IntStack %8.2f ms\n", r, linked, array);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package dependencies;
+/******************************************************************************
+ *  Compilation:  javac RadixHeap.java
+ *  Execution:    java RadixHeap [n] [rounds]
+ *  Dependencies: DoubleIndexMinPQ.java IndexMinPQ.java StdRandom.java StdOut.java
+ *
+ *  Monotone priority queue of int items with nonnegative long keys,
+ *  implemented as a radix heap. Running it benchmarks a Dijkstra-like
+ *  workload against IndexMinPQ<Double> and DoubleIndexMinPQ.
+ *
+ *  % java RadixHeap 1000000 10
+ *
+ ******************************************************************************/
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ *  The {@code RadixHeap} class represents a <em>monotone</em> priority
+ *  queue of integer items with nonnegative {@code long} keys: no key
+ *  inserted may be smaller than the last key removed. Dijkstra's algorithm
+ *  with nonnegative integer edge weights meets this condition, since every
+ *  key it inserts is the distance of a settled vertex plus a weight.
+ *  <p>
+ *  Items live in 65 buckets. Bucket 0 holds the items whose key equals the
+ *  last key removed, and bucket <em>b</em> &gt; 0 holds those whose key
+ *  first differs from it in bit <em>b</em> &minus; 1. Only bucket 0 is
+ *  ever searched for the minimum; when it is empty the lowest nonempty
+ *  bucket is emptied into the buckets below it, and each item moves down at
+ *  least one bucket every time it is moved. Keys are compared as plain
+ *  {@code long}s and nothing is boxed.
+ *  <p>
+ *  There is no <em>decrease-key</em>. A client that improves the key of an
+ *  item inserts it again, and skips the stale copy when it comes out with
+ *  a key larger than the one it currently has. <em>insert</em> takes
+ *  constant time and <em>delete-the-minimum</em> takes amortized time
+ *  proportional to the number of bits in the keys.
+ *
+ *  @author Christian Jarani
+ */
+public class RadixHeap {
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    private final int[][] item;     // item[b][0..size[b]-1] = items in bucket b
+    private final long[][] key;     // key[b][j] = key of item[b][j]
+    private final int[] size;
+    private long last;              // the last key removed, or 0 if none
+    private int n;                  // number of items on the heap
+
+    /**
+     * Initializes an empty radix heap.
+     */
+    public RadixHeap() {
+        item = new int[BUCKETS][];
+        key = new long[BUCKETS][];
+        size = new int[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            item[b] = new int[4];
+            key[b] = new long[4];
+        }
+    }
+
+    /**
+     * Returns true if this heap is empty.
+     *
+     * @return {@code true} if this heap is empty; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of items on this heap, counting every copy of an
+     * item that was inserted more than once.
+     *
+     * @return the number of items on this heap
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Removes every item and resets the last key removed to {@code 0}, so
+     * the heap can be reused for another search.
+     */
+    public void clear() {
+        Arrays.fill(size, 0);
+        last = 0;
+        n = 0;
+    }
+
+    /**
+     * Adds an item with the given key.
+     *
+     * @param  v the item
+     * @param  k the key of the item
+     * @throws IllegalArgumentException if {@code k} is smaller than the last
+     *         key removed
+     */
+    public void insert(int v, long k) {
+        if (k < last)
+            throw new IllegalArgumentException("key " + k + " is smaller than the last key removed " + last);
+        add(bucket(k), v, k);
+        n++;
+    }
+
+    /**
+     * Returns a smallest key on this heap.
+     *
+     * @return a smallest key on this heap
+     * @throws NoSuchElementException if this heap is empty
+     */
+    public long minKey() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        if (size[0] == 0) redistribute();
+        return last;
+    }
+
+    /**
+     * Removes an item with a smallest key and returns it. Its key is
+     * {@link #lastKey()} afterwards.
+     *
+     * @return an item with a smallest key
+     * @throws NoSuchElementException if this heap is empty
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        if (size[0] == 0) redistribute();
+        n--;
+        return item[0][--size[0]];
+    }
+
+    /**
+     * Returns the key of the item most recently removed.
+     *
+     * @return the last key removed, or {@code 0} if none has been
+     */
+    public long lastKey() {
+        return last;
+    }
+
+    // bucket of key k relative to last: 0 if equal, else one plus the highest differing bit
+    private int bucket(long k) {
+        return k == last ? 0 : Long.SIZE - Long.numberOfLeadingZeros(k ^ last);
+    }
+
+    private void add(int b, int v, long k) {
+        int m = size[b];
+        if (m == item[b].length) {
+            item[b] = Arrays.copyOf(item[b], 2 * m);
+            key[b] = Arrays.copyOf(key[b], 2 * m);
+        }
+        item[b][m] = v;
+        key[b][m] = k;
+        size[b] = m + 1;
+    }
+
+    // bucket 0 is empty: make the smallest key in the lowest nonempty bucket
+    // the new last key, and spread that bucket over the buckets below it
+    private void redistribute() {
+        int b = 1;
+        while (size[b] == 0) b++;
+        int[] items = item[b];
+        long[] keys = key[b];
+        int m = size[b];
+        long min = keys[0];
+        for (int j = 1; j < m; j++)
+            if (keys[j] < min) min = keys[j];
+        last = min;
+        size[b] = 0;
+        for (int j = 0; j < m; j++)
+            add(bucket(keys[j]), items[j], keys[j]);
+    }
+
+    /**
+     * Benchmarks {@code RadixHeap} against {@code IndexMinPQ<Double>} and
+     * {@code DoubleIndexMinPQ} on a Dijkstra-like workload: every removed
+     * item inserts a few successors with larger keys, and each queue gets
+     * the same sequence of keys.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        // the workload: item v, once removed, offers keys to successors succ[v][*]
+        StdRandom.setSeed(42);
+        int degree = 4;
+        int[] succ = new int[degree * n];
+        long[] weight = new long[degree * n];
+        for (int j = 0; j < degree * n; j++) {
+            succ[j] = StdRandom.uniform(n);
+            weight[j] = 1 + StdRandom.uniform(1000000);
+        }
+
+        RadixHeap radix = new RadixHeap();
+        DoubleIndexMinPQ primitive = new DoubleIndexMinPQ(n);
+        long[] dist = new long[n];
+        double[] ddist = new double[n];
+        for (int r = 1; r <= rounds; r++) {
+            long start = System.nanoTime();
+            IndexMinPQ<Double> boxed = new IndexMinPQ<Double>(n);
+            Arrays.fill(ddist, Double.POSITIVE_INFINITY);
+            ddist[0] = 0.0;
+            boxed.insert(0, 0.0);
+            double boxedSum = 0.0;
+            while (!boxed.isEmpty()) {
+                int v = boxed.delMin();
+                boxedSum += ddist[v];
+                for (int j = degree * v; j < degree * (v + 1); j++) {
+                    int w = succ[j];
+                    double d = ddist[v] + weight[j];
+                    if (d < ddist[w]) {
+                        ddist[w] = d;
+                        if (boxed.contains(w)) boxed.decreaseKey(w, d);
+                        else                   boxed.insert(w, d);
+                    }
+                }
+            }
+            double boxedMs = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            primitive.clear();
+            Arrays.fill(ddist, Double.POSITIVE_INFINITY);
+            ddist[0] = 0.0;
+            primitive.insert(0, 0.0);
+            double primSum = 0.0;
+            while (!primitive.isEmpty()) {
+                int v = primitive.delMin();
+                primSum += ddist[v];
+                for (int j = degree * v; j < degree * (v + 1); j++) {
+                    int w = succ[j];
+                    double d = ddist[v] + weight[j];
+                    if (d < ddist[w]) {
+                        ddist[w] = d;
+                        if (primitive.contains(w)) primitive.decreaseKey(w, d);
+                        else                       primitive.insert(w, d);
+                    }
+                }
+            }
+            double primMs = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            radix.clear();
+            Arrays.fill(dist, Long.MAX_VALUE);
+            dist[0] = 0;
+            radix.insert(0, 0);
+            long radixSum = 0;
+            while (!radix.isEmpty()) {
+                int v = radix.delMin();
+                if (radix.lastKey() > dist[v]) continue;    // stale copy
+                radixSum += dist[v];
+                for (int j = degree * v; j < degree * (v + 1); j++) {
+                    int w = succ[j];
+                    long d = dist[v] + weight[j];
+                    if (d < dist[w]) {
+                        dist[w] = d;
+                        radix.insert(w, d);
+                    }
+                }
+            }
+            double radixMs = (System.nanoTime() - start) / 1e6;
+
+            // integer weights below 2^53 are exact in double arithmetic, so all three sums agree exactly
+            if (boxedSum != radixSum || primSum != radixSum)
+                throw new IllegalStateException("priority queues disagree");
+            StdOut.printf("round %2d: IndexMinPQ<Double> %8.1f ms   DoubleIndexMinPQ %8.1f ms   RadixHeap %8.1f ms\n",
+                          r, boxedMs, primMs, radixMs);
+        }
+    }
+}